@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import org.grails.datastore.mapping.core.Datastore;
+
+/**
+ * A {@link Datastore} that caches the results of queries executed with
+ * {@link org.grails.datastore.mapping.query.Query#cache(boolean)} enabled.
+ *
+ * Implementations are responsible for invalidating the cache when entities are written, typically by registering a
+ * {@link QueryResultCacheInvalidatingListener}.
+ *
+ * @since 7.1
+ */
+public interface QueryCacheCapableDatastore extends Datastore {
+
+    /**
+     * @return The query result cache
+     */
+    QueryResultCache getQueryResultCache();
+}
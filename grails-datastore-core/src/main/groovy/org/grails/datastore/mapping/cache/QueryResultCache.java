@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.grails.datastore.mapping.model.PersistentEntity;
+
+/**
+ * <p>Caches the results of queries that were executed with {@link org.grails.datastore.mapping.query.Query#cache(boolean)}
+ * enabled.</p>
+ *
+ * <p>Queries that return entities are cached as the list of their identifiers, so the entities themselves are read
+ * through the session when the result is reused. Queries with projections are only cached if all of their values are
+ * immutable.</p>
+ *
+ * <p>Each result records the generation of the entity hierarchies it was read from. A write to an entity advances the
+ * generation of its hierarchy through {@link #invalidate(PersistentEntity)}, which makes every result that depends on it
+ * stale without having to find them. A write that happens while a query is executing also makes its result stale, since
+ * the generations are read before the query is executed.</p>
+ *
+ * @since 7.1
+ */
+public class QueryResultCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final Map<Object, CachedResult> results;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of results, beyond which the least recently used result is evicted
+     */
+    public QueryResultCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size of query cache must be at least 1, but was [" + maxSize + "]");
+        }
+        this.maxSize = maxSize;
+        this.results = new LinkedHashMap<Object, CachedResult>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+                return size() > QueryResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Reads the generations of the given entities. The generations have to be read before the query is executed and
+     * passed to {@link #cacheIdentifiers(Object, long[], Collection, List)} or
+     * {@link #cacheValues(Object, long[], Collection, List)} with its result.
+     *
+     * @param entities The entities the query reads from
+     * @return The generations
+     */
+    public long[] getGenerations(Collection<PersistentEntity> entities) {
+        long[] current = new long[entities.size()];
+        int i = 0;
+        for (PersistentEntity entity : entities) {
+            current[i++] = getGeneration(entity).get();
+        }
+        return current;
+    }
+
+    /**
+     * Caches the identifiers of the entities returned by a query
+     *
+     * @param key The key of the query
+     * @param generations The generations read before the query was executed
+     * @param entities The entities the query reads from
+     * @param identifiers The identifiers
+     */
+    public void cacheIdentifiers(Object key, long[] generations, Collection<PersistentEntity> entities, List<Serializable> identifiers) {
+        store(key, new CachedResult(true, new ArrayList<Object>(identifiers), entities, generations));
+    }
+
+    /**
+     * Caches the values returned by a query with projections
+     *
+     * @param key The key of the query
+     * @param generations The generations read before the query was executed
+     * @param entities The entities the query reads from
+     * @param values The values, which must be immutable
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void cacheValues(Object key, long[] generations, Collection<PersistentEntity> entities, List values) {
+        store(key, new CachedResult(false, new ArrayList<Object>(values), entities, generations));
+    }
+
+    /**
+     * @param key The key of the query
+     * @return The identifiers of the entities returned by the query or null if they are not cached
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<Serializable> getIdentifiers(Object key) {
+        return (List<Serializable>) (List) get(key, true);
+    }
+
+    /**
+     * @param key The key of the query
+     * @return The values returned by the query or null if they are not cached
+     */
+    public List<Object> getValues(Object key) {
+        return get(key, false);
+    }
+
+    /**
+     * Makes the cached results of all queries that read from the hierarchy of the given entity stale
+     *
+     * @param entity The entity that was written to
+     */
+    public void invalidate(PersistentEntity entity) {
+        getGeneration(entity).incrementAndGet();
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void invalidateAll() {
+        for (AtomicLong generation : generations.values()) {
+            generation.incrementAndGet();
+        }
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    /**
+     * @return The number of results currently held, including stale results that have not been read since
+     */
+    public int getSize() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    /**
+     * @return The maximum number of results
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of reads that found a result
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of reads that did not find a current result
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private void store(Object key, CachedResult result) {
+        if (!result.isCurrent()) {
+            return;
+        }
+        synchronized (results) {
+            results.put(key, result);
+        }
+    }
+
+    private List<Object> get(Object key, boolean identifiers) {
+        CachedResult result;
+        synchronized (results) {
+            result = results.get(key);
+            if (result != null && (result.identifiers != identifiers || !result.isCurrent())) {
+                results.remove(key);
+                result = null;
+            }
+        }
+        if (result == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return Collections.unmodifiableList(result.values);
+    }
+
+    private AtomicLong getGeneration(PersistentEntity entity) {
+        String name = entity.getRootEntity().getName();
+        AtomicLong generation = generations.get(name);
+        if (generation == null) {
+            generation = generations.computeIfAbsent(name, n -> new AtomicLong());
+        }
+        return generation;
+    }
+
+    private class CachedResult {
+        final boolean identifiers;
+        final List<Object> values;
+        final AtomicLong[] dependencies;
+        final long[] generations;
+
+        CachedResult(boolean identifiers, List<Object> values, Collection<PersistentEntity> entities, long[] generations) {
+            this.identifiers = identifiers;
+            this.values = values;
+            this.dependencies = new AtomicLong[entities.size()];
+            int i = 0;
+            for (PersistentEntity entity : entities) {
+                dependencies[i++] = getGeneration(entity);
+            }
+            this.generations = generations;
+        }
+
+        boolean isCurrent() {
+            for (int i = 0; i < dependencies.length; i++) {
+                if (dependencies[i].get() != generations[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import org.grails.datastore.mapping.core.Datastore;
+import org.grails.datastore.mapping.engine.event.AbstractPersistenceEvent;
+import org.grails.datastore.mapping.engine.event.AbstractPersistenceEventListener;
+import org.grails.datastore.mapping.engine.event.PostDeleteEvent;
+import org.grails.datastore.mapping.engine.event.PostInsertEvent;
+import org.grails.datastore.mapping.engine.event.PostUpdateEvent;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Invalidates the cached query results that depend on an entity whenever an instance of it is inserted, updated or
+ * deleted.
+ *
+ * @since 7.1
+ */
+public class QueryResultCacheInvalidatingListener extends AbstractPersistenceEventListener {
+
+    private final QueryResultCache queryResultCache;
+
+    public QueryResultCacheInvalidatingListener(Datastore datastore, QueryResultCache queryResultCache) {
+        super(datastore);
+        this.queryResultCache = queryResultCache;
+    }
+
+    @Override
+    protected void onPersistenceEvent(AbstractPersistenceEvent event) {
+        queryResultCache.invalidate(event.getEntity());
+    }
+
+    @Override
+    public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+        return PostInsertEvent.class.isAssignableFrom(eventType) ||
+                PostUpdateEvent.class.isAssignableFrom(eventType) ||
+                PostDeleteEvent.class.isAssignableFrom(eventType);
+    }
+}
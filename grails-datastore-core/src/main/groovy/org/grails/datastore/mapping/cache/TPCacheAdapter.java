@@ -49,4 +49,23 @@ public interface TPCacheAdapter<T> {
      * @throws CacheException runtime exception indicating any cache-related problems
      */
     T getCachedEntry(Serializable key) throws CacheException;
+
+    /**
+     * Removes the stored value for the specified key, so that it is read from the datastore the next time.
+     * The default implementation does nothing, for adapters whose cache keeps itself coherent.
+     * @param key the entry key
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    default void evictEntry(Serializable key) throws CacheException {
+        // do nothing
+    }
+
+    /**
+     * Removes all stored values.
+     * The default implementation does nothing, for adapters whose cache keeps itself coherent.
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    default void invalidate() throws CacheException {
+        // do nothing
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache.impl;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.grails.datastore.mapping.cache.TPCacheAdapter;
+import org.grails.datastore.mapping.cache.exception.CacheException;
+
+/**
+ * A local implementation of {@link TPCacheAdapter} that holds a bounded number of entries. Once the maximum size is
+ * reached the least recently used entry is evicted, and entries can optionally expire a fixed time after they were
+ * cached. Hits, misses and evictions are counted so the effectiveness of the cache can be monitored.
+ *
+ * @since 7.1
+ */
+public class BoundedTPCacheAdapter<T> implements TPCacheAdapter<T> {
+
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final Map<Object, CachedEntry<T>> cache;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * @param maxSize The maximum number of entries
+     */
+    public BoundedTPCacheAdapter(int maxSize) {
+        this(maxSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxSize The maximum number of entries
+     * @param timeToLive The time an entry is held for after it has been cached, or 0 to hold entries until they are evicted
+     * @param unit The unit of the time to live
+     */
+    public BoundedTPCacheAdapter(int maxSize, long timeToLive, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size of cache must be at least 1, but was [" + maxSize + "]");
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Time to live of cache entries cannot be negative, but was [" + timeToLive + "]");
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        this.cache = new LinkedHashMap<Object, CachedEntry<T>>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedEntry<T>> eldest) {
+                if (size() > BoundedTPCacheAdapter.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void cacheEntry(Serializable key, T entry) throws CacheException {
+        long expiresAt = timeToLiveMillis > 0 ? currentTimeMillis() + timeToLiveMillis : 0;
+        synchronized (cache) {
+            cache.put(key, new CachedEntry<T>(entry, expiresAt));
+        }
+    }
+
+    @Override
+    public T getCachedEntry(Serializable key) throws CacheException {
+        CachedEntry<T> cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+            if (cached != null && cached.expiresAt != 0 && cached.expiresAt <= currentTimeMillis()) {
+                cache.remove(key);
+                expirationCount.incrementAndGet();
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return cached.value;
+    }
+
+    @Override
+    public void evictEntry(Serializable key) throws CacheException {
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidate() throws CacheException {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return The number of entries currently held, including expired entries that have not been read since they expired
+     */
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return The maximum number of entries
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The time to live of entries in milliseconds, 0 if entries do not expire
+     */
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    /**
+     * @return The number of reads that found an entry
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of reads that did not find an entry
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of entries removed because the maximum size was reached
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return The number of entries removed because their time to live had passed
+     */
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
+    /**
+     * Resets the hit, miss, eviction and expiration counts
+     */
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+        expirationCount.set(0);
+    }
+
+    /**
+     * @return The current time in milliseconds, which entries expire against
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static class CachedEntry<T> {
+        final T value;
+        final long expiresAt;
+
+        CachedEntry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
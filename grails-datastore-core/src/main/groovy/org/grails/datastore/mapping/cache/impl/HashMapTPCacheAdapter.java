@@ -20,5 +20,15 @@ public class HashMapTPCacheAdapter<T> implements TPCacheAdapter<T> {
         return cache.get(key);
     }
 
+    @Override
+    public void evictEntry(Serializable key) throws CacheException {
+        cache.remove(key);
+    }
+
+    @Override
+    public void invalidate() throws CacheException {
+        cache.clear();
+    }
+
     private ConcurrentHashMap<Object, T> cache = new ConcurrentHashMap<Object, T>();
 }
@@ -2,13 +2,22 @@ package org.grails.datastore.mapping.cache.impl;
 
 import org.grails.datastore.mapping.cache.TPCacheAdapter;
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository;
+import org.grails.datastore.mapping.config.Entity;
+import org.grails.datastore.mapping.config.EntryCacheConfig;
+import org.grails.datastore.mapping.model.ClassMapping;
 import org.grails.datastore.mapping.model.PersistentEntity;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple implementation of {@link TPCacheAdapterRepository}
  *
+ * Besides the adapters that are set explicitly, an adapter is created on first use for every entity whose mapping
+ * configures an entry cache (or for every entity if a default configuration is set), bounded by the configured
+ * maximum size and time to live.
+ *
  * @author Roman Stepanenko
  */
 public class TPCacheAdapterRepositoryImpl<T> implements TPCacheAdapterRepository<T> {
@@ -17,7 +26,18 @@ public class TPCacheAdapterRepositoryImpl<T> implements TPCacheAdapterRepository
             return null;
         }
 
-        return adapters.get(entity.getJavaClass().getName());
+        String entityName = entity.getJavaClass().getName();
+        TPCacheAdapter<T> cacheAdapter = adapters.get(entityName);
+        if (cacheAdapter == null && !uncachedEntities.contains(entityName)) {
+            EntryCacheConfig cacheConfig = getEntryCacheConfig(entity);
+            if (cacheConfig == null || !cacheConfig.isEnabled()) {
+                uncachedEntities.add(entityName);
+                return null;
+            }
+            TPCacheAdapter<T> existing = adapters.putIfAbsent(entityName, createTPCacheAdapter(entity, cacheConfig));
+            cacheAdapter = existing != null ? existing : adapters.get(entityName);
+        }
+        return cacheAdapter;
     }
 
     public void setTPCacheAdapter(PersistentEntity entity, TPCacheAdapter<T> cacheAdapter) {
@@ -30,7 +50,47 @@ public class TPCacheAdapterRepositoryImpl<T> implements TPCacheAdapterRepository
 
     public void setTPCacheAdapter(String entityJavaClassFQN, TPCacheAdapter<T> cacheAdapter) {
         adapters.put(entityJavaClassFQN, cacheAdapter);
+        uncachedEntities.remove(entityJavaClassFQN);
+    }
+
+    /**
+     * Sets the entry cache configuration used for entities whose mapping does not configure one
+     *
+     * @param defaultCacheConfig The configuration or null to only cache the entries of entities that configure a cache
+     */
+    public void setDefaultCacheConfig(EntryCacheConfig defaultCacheConfig) {
+        this.defaultCacheConfig = defaultCacheConfig;
+        uncachedEntities.clear();
+    }
+
+    public EntryCacheConfig getDefaultCacheConfig() {
+        return defaultCacheConfig;
+    }
+
+    /**
+     * Creates the adapter of an entity whose entries are cached
+     *
+     * @param entity The entity
+     * @param cacheConfig The cache configuration of the entity
+     * @return The adapter
+     */
+    protected TPCacheAdapter<T> createTPCacheAdapter(PersistentEntity entity, EntryCacheConfig cacheConfig) {
+        return new BoundedTPCacheAdapter<T>(cacheConfig.getMaxSize(), cacheConfig.getTimeToLive(), TimeUnit.SECONDS);
+    }
+
+    protected EntryCacheConfig getEntryCacheConfig(PersistentEntity entity) {
+        ClassMapping mapping = entity.getMapping();
+        Object mappedForm = mapping != null ? mapping.getMappedForm() : null;
+        if (mappedForm instanceof Entity) {
+            EntryCacheConfig cacheConfig = ((Entity) mappedForm).getEntryCache();
+            if (cacheConfig != null) {
+                return cacheConfig;
+            }
+        }
+        return defaultCacheConfig;
     }
 
     private ConcurrentHashMap<String, TPCacheAdapter<T>> adapters = new ConcurrentHashMap<String, TPCacheAdapter<T>>();
+    private Set<String> uncachedEntities = ConcurrentHashMap.newKeySet();
+    private volatile EntryCacheConfig defaultCacheConfig;
 }
@@ -20,6 +20,8 @@ import groovy.transform.builder.Builder
 import groovy.transform.builder.SimpleStrategy
 import org.grails.datastore.mapping.core.connections.ConnectionSource
 import org.grails.datastore.mapping.model.config.GormProperties
+import org.springframework.beans.MutablePropertyValues
+import org.springframework.validation.DataBinder
 
 /**
  * Base class for classes returned from {@link org.grails.datastore.mapping.model.ClassMapping#getMappedForm()}
@@ -71,6 +73,11 @@ class Entity<P extends Property> {
      */
     boolean version = true
 
+    /**
+     * @return The configuration of the cache of native entries or null if the entries are not cached
+     */
+    EntryCacheConfig entryCache = null
+
     /**
      * @return The property configurations
      */
@@ -141,6 +148,50 @@ class Entity<P extends Property> {
         return this
     }
 
+    /**
+     * Configures the cache of native entries
+     *
+     * @param cacheConfig The cache config, for example [maxSize: 1000, timeToLive: 300]
+     * @return This mapping
+     */
+    Entity entryCache(Map cacheConfig) {
+        EntryCacheConfig config = getOrInitializeEntryCache()
+        DataBinder dataBinder = new DataBinder(config)
+        dataBinder.bind(new MutablePropertyValues(cacheConfig))
+        return this
+    }
+
+    /**
+     * Configures the cache of native entries
+     *
+     * @param cacheConfig The cache config
+     * @return This mapping
+     */
+    Entity entryCache(@DelegatesTo(EntryCacheConfig) Closure cacheConfig) {
+        cacheConfig.setDelegate(getOrInitializeEntryCache())
+        cacheConfig.setResolveStrategy(Closure.DELEGATE_ONLY)
+        cacheConfig.call()
+        return this
+    }
+
+    /**
+     * Enables or disables the cache of native entries with the default configuration
+     *
+     * @param enabled Whether entries are cached
+     * @return This mapping
+     */
+    Entity entryCache(boolean enabled) {
+        getOrInitializeEntryCache().enabled = enabled
+        return this
+    }
+
+    protected EntryCacheConfig getOrInitializeEntryCache() {
+        if (entryCache == null) {
+            entryCache = new EntryCacheConfig()
+        }
+        return entryCache
+    }
+
     /**
      * @return Whether this entity is versioned
      */
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.config
+
+import groovy.transform.CompileStatic
+import groovy.transform.builder.Builder
+import groovy.transform.builder.SimpleStrategy
+
+/**
+ * Configures the cache of the native entries of an entity, held by a {@link org.grails.datastore.mapping.cache.TPCacheAdapter}
+ *
+ * <code>
+ *     static mapping = {
+ *         entryCache maxSize: 1000, timeToLive: 300
+ *     }
+ * </code>
+ *
+ * @since 7.1
+ */
+@CompileStatic
+@Builder(builderStrategy = SimpleStrategy, prefix = '')
+class EntryCacheConfig {
+
+    /**
+     * @return Whether the entries are cached
+     */
+    boolean enabled = true
+
+    /**
+     * @return The maximum number of entries held, beyond which the least recently used entry is evicted
+     */
+    int maxSize = 10000
+
+    /**
+     * @return The number of seconds an entry is held for after it has been cached, or 0 to hold it until it is evicted
+     */
+    long timeToLive = 0
+}
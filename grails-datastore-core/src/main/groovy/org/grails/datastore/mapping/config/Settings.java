@@ -19,6 +19,26 @@ public interface Settings {
      * The default flush mode
      */
     String SETTING_FLUSH_MODE = PREFIX + '.' + "flushMode";
+    /**
+     * The number of pending operations after which a session is flushed automatically
+     */
+    String SETTING_FLUSH_THRESHOLD = PREFIX + '.' + "flush.threshold";
+    /**
+     * The estimated number of bytes held by pending operations after which a session is flushed automatically
+     */
+    String SETTING_FLUSH_SIZE_THRESHOLD = PREFIX + '.' + "flush.sizeThreshold";
+    /**
+     * Whether instances written by an automatic flush are evicted from the session
+     */
+    String SETTING_FLUSH_EVICT = PREFIX + '.' + "flush.evict";
+    /**
+     * Whether queries in the AUTO flush mode only flush when the entities they read have pending operations
+     */
+    String SETTING_FLUSH_SELECTIVE = PREFIX + '.' + "flush.selective";
+    /**
+     * Whether entities that track their own changes are dirty checked only through those changes
+     */
+    String SETTING_TRACKED_DIRTY_CHECKING = PREFIX + '.' + "trackedDirtyChecking";
     /**
      * Whether to throw an exception on a validation error
      */
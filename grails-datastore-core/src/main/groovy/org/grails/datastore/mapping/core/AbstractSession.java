@@ -14,8 +14,6 @@
  */
 package org.grails.datastore.mapping.core;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.RemovalListener;
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository;
 import org.grails.datastore.mapping.config.Entity;
 import org.grails.datastore.mapping.core.impl.*;
@@ -33,7 +31,6 @@ import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConversionService;
-import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.TransactionDefinition;
@@ -45,6 +42,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 
 /**
@@ -52,6 +50,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * a list of {@link org.grails.datastore.mapping.engine.Persister} instances
  * to save, update and delete instances
  *
+ * A session must only be used by one thread at a time. Its first level cache, a {@link SessionIdentityMap}, is not
+ * synchronized.
+ *
  * @param <N>
  * @author Graeme Rocher
  * @since 1.0
@@ -61,26 +62,6 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     public static final String ENTITY_ACCESS = "org.grails.gorm.ENTITY_ACCESS";
 
-    private static final RemovalListener<PersistentEntity, Collection<PendingInsert>> EXCEPTION_THROWING_INSERT_LISTENER =
-            (key, value, cause) -> {
-                if (cause.wasEvicted()) {
-                    throw new DataAccessResourceFailureException("Maximum number (5000) of insert operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-                }
-            };
-
-    private static final RemovalListener<PersistentEntity, Collection<PendingUpdate>> EXCEPTION_THROWING_UPDATE_LISTENER =
-            (key, value, cause) -> {
-                if (cause.wasEvicted()) {
-                    throw new DataAccessResourceFailureException("Maximum number (5000) of update operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-                }
-            };
-
-    private static final RemovalListener<PersistentEntity, Collection<PendingDelete>> EXCEPTION_THROWING_DELETE_LISTENER =
-            (key, value, cause) -> {
-                if (cause.wasEvicted()) {
-                    throw new DataAccessResourceFailureException("Maximum number (5000) of delete operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-                }
-            };
     private static final String NULL = "null";
 
     protected Map<Class, Persister> persisters = new ConcurrentHashMap<>();
@@ -90,31 +71,41 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     protected Transaction transaction;
     private Datastore datastore;
     private FlushModeType flushMode = FlushModeType.AUTO;
-    protected Map<Class, Map<Serializable, Object>> firstLevelCache = new ConcurrentHashMap<>();
-    protected Map<Class, Map<Serializable, Object>> firstLevelEntryCache = new ConcurrentHashMap<>();
-    protected Map<Class, Map<Serializable, Object>> firstLevelEntryCacheDirtyCheck = new ConcurrentHashMap<>();
+    protected SessionIdentityMap identityMap = new DefaultSessionIdentityMap();
+    /**
+     * @deprecated The instances are held by {@link #identityMap}, of which this is a view
+     */
+    @Deprecated
+    protected Map<Class, Map<Serializable, Object>> firstLevelCache = new IdentityMapView(IdentityMapView.INSTANCES);
+    /**
+     * @deprecated The native entries are held by {@link #identityMap}, of which this is a view
+     */
+    @Deprecated
+    protected Map<Class, Map<Serializable, Object>> firstLevelEntryCache = new IdentityMapView(IdentityMapView.ENTRIES);
+    /**
+     * @deprecated The native entries kept for dirty checking are held by {@link #identityMap}, of which this is a view
+     */
+    @Deprecated
+    protected Map<Class, Map<Serializable, Object>> firstLevelEntryCacheDirtyCheck = new IdentityMapView(IdentityMapView.DIRTY_CHECK_ENTRIES);
     protected Map<CollectionKey, Collection> firstLevelCollectionCache = new ConcurrentHashMap<>();
 
     protected TPCacheAdapterRepository cacheAdapterRepository;
 
     private Collection<Serializable> objectsPendingOperations = new ConcurrentLinkedQueue<>();
-    private Map<PersistentEntity, Collection<PendingInsert>> pendingInserts =
-            Caffeine.newBuilder()
-                    .removalListener(EXCEPTION_THROWING_INSERT_LISTENER)
-                    .executor(Runnable::run)
-                    .maximumSize(5000).build().asMap();
-
-    private Map<PersistentEntity, Collection<PendingUpdate>> pendingUpdates =
-            Caffeine.newBuilder()
-                    .removalListener(EXCEPTION_THROWING_UPDATE_LISTENER)
-                    .executor(Runnable::run)
-                    .maximumSize(5000).build().asMap();
-
-    private Map<PersistentEntity, Collection<PendingDelete>> pendingDeletes =
-            Caffeine.newBuilder()
-                    .removalListener(EXCEPTION_THROWING_DELETE_LISTENER)
-                    .executor(Runnable::run)
-                    .maximumSize(5000).build().asMap();
+    private Map<PersistentEntity, Collection<PendingInsert>> pendingInserts = new ConcurrentHashMap<>();
+    private Map<PersistentEntity, Collection<PendingUpdate>> pendingUpdates = new ConcurrentHashMap<>();
+    private Map<PersistentEntity, Collection<PendingDelete>> pendingDeletes = new ConcurrentHashMap<>();
+    private int pendingOperationCount;
+    private long pendingOperationSize;
+    private int operationDepth;
+
+    private int flushThreshold;
+    private long flushSizeThreshold;
+    private boolean evictOnAutoFlush;
+    private boolean selectiveAutoFlush;
+    private boolean readOnly;
+    private boolean trackedDirtyChecking;
+    private int readOnlyCacheSize = BoundedSessionIdentityMap.DEFAULT_MAX_SIZE;
 
     protected Collection<Runnable> postFlushOperations = new ConcurrentLinkedQueue<>();
     private boolean exceptionOccurred;
@@ -177,6 +168,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         inserts.add(insert);
+        registerPendingOperation(insert);
     }
 
     @Override
@@ -220,6 +212,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         inserts.add(update);
+        registerPendingOperation(update);
     }
 
     public void addPendingDelete(PendingDelete delete) {
@@ -235,6 +228,245 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         deletes.add(delete);
+        registerPendingOperation(delete);
+    }
+
+    private void registerPendingOperation(PendingOperation operation) {
+        pendingOperationCount++;
+        if (flushSizeThreshold > 0) {
+            pendingOperationSize += estimatePendingOperationSize(operation);
+        }
+    }
+
+    /**
+     * Estimates the number of bytes held by a pending operation, which is compared against the
+     * {@link #setFlushSizeThreshold(long) flush size threshold}. Subclasses can override this method to provide a
+     * more accurate estimate for their native entries.
+     *
+     * @param operation The pending operation
+     * @return The estimated number of bytes
+     */
+    protected long estimatePendingOperationSize(PendingOperation operation) {
+        Object nativeEntry = operation.getNativeEntry();
+        if (nativeEntry instanceof Map) {
+            // the entry itself, plus each map entry with a key and a boxed or short value
+            return 128 + 96L * ((Map) nativeEntry).size();
+        }
+        return 512;
+    }
+
+    /**
+     * Sets the number of pending operations after which the session is flushed automatically. The flush happens once
+     * the outermost call to persist, insert or delete that reached the threshold has completed, so cascades are never
+     * flushed half way through.
+     *
+     * @param flushThreshold The number of operations or 0 to only flush when requested
+     */
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    /**
+     * Sets the estimated number of bytes held by pending operations after which the session is flushed automatically
+     *
+     * @param flushSizeThreshold The number of bytes or 0 to only flush when requested
+     * @see #estimatePendingOperationSize(PendingOperation)
+     */
+    public void setFlushSizeThreshold(long flushSizeThreshold) {
+        this.flushSizeThreshold = flushSizeThreshold;
+    }
+
+    public long getFlushSizeThreshold() {
+        return flushSizeThreshold;
+    }
+
+    /**
+     * Sets whether the instances written by an automatic flush are evicted from the session afterwards, which keeps
+     * the memory used by the session constant during bulk operations. Evicted instances are no longer tracked, so they
+     * have to be attached again before they are modified.
+     *
+     * @param evictOnAutoFlush True if instances should be evicted
+     */
+    public void setEvictOnAutoFlush(boolean evictOnAutoFlush) {
+        this.evictOnAutoFlush = evictOnAutoFlush;
+    }
+
+    public boolean isEvictOnAutoFlush() {
+        return evictOnAutoFlush;
+    }
+
+    /**
+     * Sets whether a query in the AUTO flush mode only flushes the session when the entities it reads have pending
+     * operations. An entity is read by a query if it is the queried entity, the entity of an association the criteria
+     * join through, the entity of a subquery or of an association fetched eagerly, and pending operations of any
+     * entity in the same hierarchy count. Queries of unrelated entities then no longer interrupt the batching of
+     * writes.
+     *
+     * @param selectiveAutoFlush True if only queries of entities with pending operations should flush
+     */
+    public void setSelectiveAutoFlush(boolean selectiveAutoFlush) {
+        this.selectiveAutoFlush = selectiveAutoFlush;
+    }
+
+    public boolean isSelectiveAutoFlush() {
+        return selectiveAutoFlush;
+    }
+
+    @Override
+    public boolean isFlushRequiredBeforeQuery(Collection<PersistentEntity> entities) {
+        if (!selectiveAutoFlush || !postFlushOperations.isEmpty()) {
+            return true;
+        }
+        for (PersistentEntity entity : entities) {
+            PersistentEntity root = entity.getRootEntity();
+            if (hasPendingOperations(pendingInserts, root) || hasPendingOperations(pendingUpdates, root) || hasPendingOperations(pendingDeletes, root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPendingOperations(Map<PersistentEntity, ? extends Collection<?>> pending, PersistentEntity root) {
+        for (Map.Entry<PersistentEntity, ? extends Collection<?>> entry : pending.entrySet()) {
+            if (!entry.getValue().isEmpty() && entry.getKey().getRootEntity().equals(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets whether the session is read-only. A read-only session rejects writes and ignores flushes, does not keep
+     * native entries for dirty checking and holds a bounded number of weakly referenced instances, so long running
+     * reads stay within a fixed amount of memory. Pending operations are flushed before the session becomes read-only,
+     * and the first level cache is cleared whenever the mode changes.
+     *
+     * @param readOnly True if the session should be read-only
+     * @see #setReadOnlyCacheSize(int)
+     */
+    public void setReadOnly(boolean readOnly) {
+        if (readOnly == this.readOnly) {
+            return;
+        }
+        if (readOnly) {
+            flush();
+        }
+        this.readOnly = readOnly;
+        identityMap = readOnly ? new BoundedSessionIdentityMap(readOnlyCacheSize) : new DefaultSessionIdentityMap();
+        firstLevelCollectionCache.clear();
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Sets the maximum number of identifiers held by the first level cache while the session is read-only. If the
+     * session is read-only already its first level cache is replaced, and therefore cleared.
+     *
+     * @param readOnlyCacheSize The maximum number of identifiers
+     */
+    public void setReadOnlyCacheSize(int readOnlyCacheSize) {
+        if (readOnlyCacheSize < 1) {
+            throw new IllegalArgumentException("Maximum size of session cache must be at least 1, but was [" + readOnlyCacheSize + "]");
+        }
+        this.readOnlyCacheSize = readOnlyCacheSize;
+        if (readOnly) {
+            identityMap = new BoundedSessionIdentityMap(readOnlyCacheSize);
+        }
+    }
+
+    public int getReadOnlyCacheSize() {
+        return readOnlyCacheSize;
+    }
+
+    /**
+     * Sets whether instances that implement {@link DirtyCheckable} are dirty checked only through the changes they
+     * track themselves. No native entry is then cached for dirty checking them, and their updates only write the
+     * properties they report as changed. Changes that are not tracked, such as modifying a mutable property value in
+     * place without marking it dirty, are not written in this mode.
+     *
+     * @param trackedDirtyChecking True if only tracked changes should be used
+     */
+    public void setTrackedDirtyChecking(boolean trackedDirtyChecking) {
+        this.trackedDirtyChecking = trackedDirtyChecking;
+    }
+
+    public boolean isTrackedDirtyChecking() {
+        return trackedDirtyChecking;
+    }
+
+    @Override
+    public boolean isTrackedDirtyChecking(PersistentEntity entity) {
+        return trackedDirtyChecking && DirtyCheckable.class.isAssignableFrom(entity.getJavaClass());
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new InvalidDataAccessResourceUsageException("Cannot write using a read-only session");
+        }
+    }
+
+    /**
+     * @return The number of operations pending since the last flush
+     */
+    public int getPendingOperationCount() {
+        return pendingOperationCount;
+    }
+
+    /**
+     * @return The estimated number of bytes held by the operations pending since the last flush
+     */
+    public long getPendingOperationSize() {
+        return pendingOperationSize;
+    }
+
+    /**
+     * Flushes the session if a flush threshold has been reached
+     */
+    protected void flushIfThresholdReached() {
+        if (operationDepth > 0 || flushActive || exceptionOccurred) {
+            return;
+        }
+        boolean thresholdReached = (flushThreshold > 0 && pendingOperationCount >= flushThreshold) ||
+                (flushSizeThreshold > 0 && pendingOperationSize >= flushSizeThreshold);
+        if (!thresholdReached) {
+            return;
+        }
+
+        if (evictOnAutoFlush) {
+            List<PendingOperation> flushed = new ArrayList<>(pendingOperationCount);
+            for (Collection<PendingInsert> inserts : pendingInserts.values()) {
+                flushed.addAll(inserts);
+            }
+            for (Collection<PendingUpdate> updates : pendingUpdates.values()) {
+                flushed.addAll(updates);
+            }
+            flush();
+            for (PendingOperation operation : flushed) {
+                evict(operation.getEntity(), operation.getNativeKey(), operation.getObject());
+            }
+        }
+        else {
+            flush();
+        }
+    }
+
+    private void evict(PersistentEntity entity, Object key, Object instance) {
+        if (instance == null || !(key instanceof Serializable)) {
+            return;
+        }
+        Class type = instance.getClass();
+        Class entityType = entity.getJavaClass();
+        identityMap.remove(entityType, (Serializable) key);
+        if (type != entityType) {
+            identityMap.remove(type, (Serializable) key);
+        }
+        removeAttributesForEntity(instance);
     }
 
     public Object getCachedEntry(PersistentEntity entity, Serializable key) {
@@ -248,7 +480,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return null;
         }
 
-        return getEntryCache(entity.getJavaClass(), forDirtyCheck).get(key);
+        return identityMap.getEntry(entity.getJavaClass(), key, forDirtyCheck);
     }
 
     public void cacheEntry(PersistentEntity entity, Serializable key, Object entry) {
@@ -257,7 +489,9 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return;
         }
 
-        cacheEntry(key, entry, getEntryCache(entity.getJavaClass(), true), true);
+        if (!isTrackedDirtyChecking(entity)) {
+            cacheEntry(key, entry, getEntryCache(entity.getJavaClass(), true), true);
+        }
         cacheEntry(key, entry, getEntryCache(entity.getJavaClass(), false), false);
     }
 
@@ -272,7 +506,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     }
 
     public Collection getCachedCollection(PersistentEntity entity, Serializable key, String name) {
-        if (isStateless(entity)) return null;
+        if (readOnly || isStateless(entity)) return null;
         if (key == null || name == null) {
             return null;
         }
@@ -282,7 +516,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     }
 
     public void cacheCollection(PersistentEntity entity, Serializable key, Collection collection, String name) {
-        if (isStateless(entity)) return;
+        if (readOnly || isStateless(entity)) return;
         if (key == null || collection == null || name == null) {
             return;
         }
@@ -321,7 +555,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     }
 
     public void flush() {
-        if (flushActive) return;
+        if (flushActive || readOnly) return;
 
         boolean hasInserts;
         try {
@@ -359,7 +593,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     public boolean isDirty(Object instance) {
 
-        if (instance == null) {
+        if (instance == null || readOnly) {
             return false;
         }
 
@@ -399,28 +633,61 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
 
     /**
-     * The default implementation of flushPendingUpdates is to iterate over each update operation
-     * and execute them one by one. This may be suboptimal for stores that support batch update
-     * operations. Subclasses can override this method to implement batch update more efficiently.
+     * The default implementation of flushPendingUpdates hands the updates of each entity to its persister as a batch
+     * if it is a {@link BatchOperationPersister}, and otherwise executes them one by one. Subclasses can override
+     * this method to implement batch update more efficiently.
      *
      * @param updates
      */
     protected void flushPendingUpdates(Map<PersistentEntity, Collection<PendingUpdate>> updates) {
-        for (Collection<PendingUpdate> pending : updates.values()) {
-            flushPendingOperations(pending);
+        for (Map.Entry<PersistentEntity, Collection<PendingUpdate>> entry : updates.entrySet()) {
+            Persister persister = getPersister(entry.getKey());
+            if (persister instanceof BatchOperationPersister) {
+                flushPendingBatches(entry.getValue(), batch -> ((BatchOperationPersister) persister).executePendingUpdates(batch));
+            }
+            else {
+                flushPendingOperations(entry.getValue());
+            }
         }
     }
 
     /**
-     * The default implementation of flushPendingInserts is to iterate over each insert operations
-     * and execute them one by one. This may be suboptimal for stores that support batch insert
-     * operations. Subclasses can override this method to implement batch insert more efficiently.
+     * The default implementation of flushPendingInserts hands the inserts of each entity to its persister as a batch
+     * if it is a {@link BatchOperationPersister}, and otherwise executes them one by one. Subclasses can override
+     * this method to implement batch insert more efficiently.
      *
      * @param inserts The insert operations
      */
     protected void flushPendingInserts(Map<PersistentEntity, Collection<PendingInsert>> inserts) {
-        for (Collection<PendingInsert> pending : inserts.values()) {
-            flushPendingOperations(pending);
+        for (Map.Entry<PersistentEntity, Collection<PendingInsert>> entry : inserts.entrySet()) {
+            Persister persister = getPersister(entry.getKey());
+            if (persister instanceof BatchOperationPersister) {
+                flushPendingBatches(entry.getValue(), batch -> ((BatchOperationPersister) persister).executePendingInserts(batch));
+            }
+            else {
+                flushPendingOperations(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Hands the pending operations of an entity to its persister as a batch. Operations that are queued while the batch
+     * is executed, by cascades for example, are executed as a further batch.
+     */
+    private <O extends PendingOperation> void flushPendingBatches(Collection<O> operations, Consumer<List<O>> executor) {
+        Iterator<O> iterator = operations.iterator();
+        while (iterator.hasNext()) {
+            List<O> batch = new ArrayList<>();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+            }
+            try {
+                executor.accept(batch);
+            } catch (RuntimeException e) {
+                setFlushMode(FlushModeType.COMMIT);
+                exceptionOccurred = true;
+                throw e;
+            }
         }
     }
 
@@ -458,9 +725,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     }
 
     public void clear() {
-        clearMaps(firstLevelCache);
-        clearMaps(firstLevelEntryCache);
-        clearMaps(firstLevelEntryCacheDirtyCheck);
+        identityMap.clear();
         firstLevelCollectionCache.clear();
         clearPendingOperations();
         attributes.clear();
@@ -469,16 +734,27 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     protected void clearPendingOperations() {
         objectsPendingOperations.clear();
+        pendingOperationCount = 0;
+        pendingOperationSize = 0;
         pendingInserts.clear();
         pendingUpdates.clear();
         pendingDeletes.clear();
         postFlushOperations.clear();
     }
 
-    private void clearMaps(Map<Class, Map<Serializable, Object>> mapOfMaps) {
-        for (Map<Serializable, Object> cache : mapOfMaps.values()) {
-            cache.clear();
-        }
+    /**
+     * @return The number of identifiers that have an instance or native entry cached in this session
+     * @see SessionIdentityMap#getSizes()
+     */
+    public int getIdentityMapSize() {
+        return identityMap.size();
+    }
+
+    /**
+     * @return The number of identifiers that have an instance or native entry cached in this session, by type
+     */
+    public Map<Class, Integer> getIdentityMapSizes() {
+        return identityMap.getSizes();
     }
 
     public final Persister getPersister(Object o) {
@@ -495,9 +771,6 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         if (p == null) {
             p = createPersister(cls, getMappingContext());
             if (p != null) {
-                if (!isStateless(((EntityPersister) p).getPersistentEntity())) {
-                    firstLevelCache.put(cls, new ConcurrentHashMap<Serializable, Object>());
-                }
                 persisters.put(cls, p);
             }
         }
@@ -513,9 +786,9 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
         final Serializable identifier = getObjectIdentifier(o);
         if (identifier != null) {
-            return getInstanceCache(o.getClass()).containsKey(identifier);
+            return identityMap.containsInstance(o.getClass(), identifier);
         } else {
-            return getInstanceCache(o.getClass()).containsValue(o);
+            return identityMap.containsInstanceValue(o.getClass(), o);
         }
     }
 
@@ -525,7 +798,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return false;
         }
 
-        return getInstanceCache(type).containsKey(key);
+        return identityMap.containsInstance(type, key);
     }
 
     public void cacheInstance(Class type, Serializable key, Object instance) {
@@ -533,7 +806,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return;
         }
         if (isStateless(getMappingContext().getPersistentEntity(type.getName()))) return;
-        getInstanceCache(type).put(key, instance);
+        identityMap.putInstance(type, key, instance);
     }
 
     public Object getCachedInstance(Class type, Serializable key) {
@@ -542,7 +815,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return null;
         }
         if (isStateless(getMappingContext().getPersistentEntity(type.getName()))) return null;
-        return getInstanceCache(type).get(key);
+        return identityMap.getInstance(type, key);
     }
 
     public void clear(Object o) {
@@ -550,13 +823,10 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return;
         }
 
-        final Map<Serializable, Object> cache = firstLevelCache.get(o.getClass());
-        if (cache != null) {
-            Persister persister = getPersister(o);
-            Serializable key = persister.getObjectIdentifier(o);
-            if (key != null) {
-                cache.remove(key);
-            }
+        Persister persister = getPersister(o);
+        Serializable key = persister != null ? persister.getObjectIdentifier(o) : null;
+        if (key != null) {
+            identityMap.removeInstance(o.getClass(), key);
         }
         removeAttributesForEntity(o);
     }
@@ -586,28 +856,46 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     public Serializable persist(Object o) {
         Assert.notNull(o, "Cannot persist null object");
+        checkWritable();
         Persister persister = getPersister(o);
         if (persister == null) {
             throw new NonPersistentTypeException("Object [" + o +
                     "] cannot be persisted. It is not a known persistent type.");
         }
 
-        final Serializable key = persister.persist(o);
-        cacheObject(key, o);
+        final Serializable key;
+        operationDepth++;
+        try {
+            key = persister.persist(o);
+            cacheObject(key, o);
+        }
+        finally {
+            operationDepth--;
+        }
+        flushIfThresholdReached();
         return key;
     }
 
     @Override
     public Serializable insert(Object o) {
         Assert.notNull(o, "Cannot persist null object");
+        checkWritable();
         Persister persister = getPersister(o);
         if (persister == null) {
             throw new NonPersistentTypeException("Object [" + o +
                     "] cannot be persisted. It is not a known persistent type.");
         }
 
-        final Serializable key = persister.insert(o);
-        cacheObject(key, o);
+        final Serializable key;
+        operationDepth++;
+        try {
+            key = persister.insert(o);
+            cacheObject(key, o);
+        }
+        finally {
+            operationDepth--;
+        }
+        flushIfThresholdReached();
         return key;
     }
 
@@ -646,7 +934,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             return null;
         }
 
-        Object o = getInstanceCache(type).get(key);
+        Object o = identityMap.getInstance(type, key);
         if (o == null) {
             o = persister.retrieve(key);
             if (o != null) {
@@ -680,7 +968,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         // only return proxy if real instance is not available.
-        Object o = getInstanceCache(type).get(key);
+        Object o = identityMap.getInstance(type, key);
         if (o == null) {
             o = persister.proxy(key);
         }
@@ -710,6 +998,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
      * @param criteria The criteria
      */
     public long deleteAll(QueryableCriteria criteria) {
+        checkWritable();
         List list = criteria.list();
         delete(list);
         return list.size();
@@ -724,6 +1013,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
      * @param properties The properties
      */
     public long updateAll(QueryableCriteria criteria, Map<String, Object> properties) {
+        checkWritable();
         List list = criteria.list();
         for (Object o : list) {
             BeanWrapper bean = new BeanWrapperImpl(o);
@@ -739,6 +1029,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         if (obj == null) {
             return;
         }
+        checkWritable();
 
         final EntityPersister p = (EntityPersister) getPersister(obj);
         if (p == null) {
@@ -746,14 +1037,22 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
 
-        p.delete(obj);
-        clear(obj);
+        operationDepth++;
+        try {
+            p.delete(obj);
+            clear(obj);
+        }
+        finally {
+            operationDepth--;
+        }
+        flushIfThresholdReached();
     }
 
     public void delete(final Iterable objects) {
         if (objects == null) {
             return;
         }
+        checkWritable();
 
         // sort the objects into sets by Persister, in case the objects are of different types.
         Map<Persister, List> toDelete = new HashMap<Persister, List>();
@@ -772,16 +1071,24 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             listForPersister.add(object);
         }
         // for each type (usually only 1 type), set up a pendingDelete of that type
-        for (Map.Entry<Persister, List> entry : toDelete.entrySet()) {
-            final EntityPersister p = (EntityPersister) entry.getKey();
-            p.delete(entry.getValue());
+        operationDepth++;
+        try {
+            for (Map.Entry<Persister, List> entry : toDelete.entrySet()) {
+                final EntityPersister p = (EntityPersister) entry.getKey();
+                p.delete(entry.getValue());
+            }
         }
+        finally {
+            operationDepth--;
+        }
+        flushIfThresholdReached();
     }
 
     public List<Serializable> persist(Iterable objects) {
         if (objects == null) {
             return Collections.emptyList();
         }
+        checkWritable();
 
         final Iterator i = objects.iterator();
         if (!i.hasNext()) {
@@ -796,7 +1103,16 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
                     obj.getClass().getName() + "] is not a known persistent type.");
         }
 
-        return p.persist(objects);
+        final List<Serializable> keys;
+        operationDepth++;
+        try {
+            keys = p.persist(objects);
+        }
+        finally {
+            operationDepth--;
+        }
+        flushIfThresholdReached();
+        return keys;
     }
 
     public List retrieveAll(Class type, Iterable keys) {
@@ -806,18 +1122,39 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
                     "]. The class [" + type.getName() + "] is not a known persistent type.");
         }
 
+        final Class identityType = p.getPersistentEntity().getIdentity().getType();
+        final ConversionService conversionService = mappingContext.getConversionService();
         List list = new ArrayList();
         List<Serializable> toRetrieve = new ArrayList<Serializable>();
-        final Map<Serializable, Object> cache = getInstanceCache(type);
         for (Object key : keys) {
             Serializable serializable = (Serializable) key;
-            Object cached = cache.get(serializable);
+            if (serializable != null && !identityType.isInstance(serializable)) {
+                serializable = (Serializable) conversionService.convert(serializable, identityType);
+            }
+            Object cached = serializable != null ? identityMap.getInstance(type, serializable) : null;
             list.add(cached);
             if (cached == null) {
                 toRetrieve.add(serializable);
             }
         }
+        if (toRetrieve.isEmpty()) {
+            return list;
+        }
+
         List<Object> retrieved = p.retrieveAll(toRetrieve);
+        if (p instanceof KeyOrderedRetrieval && retrieved.size() == toRetrieve.size()) {
+            Iterator<Object> retrievedIterator = retrieved.iterator();
+            Iterator<Serializable> keyIterator = toRetrieve.iterator();
+            for (int i = 0; i < list.size() && retrievedIterator.hasNext(); i++) {
+                if (list.get(i) == null) {
+                    Object next = retrievedIterator.next();
+                    list.set(i, next);
+                    cacheInstance(type, keyIterator.next(), next);
+                }
+            }
+            return list;
+        }
+
         Iterator<Serializable> keyIterator = toRetrieve.iterator();
         Map<Serializable, Object> retrievedMap = new HashMap<Serializable, Object>();
         for (Object o : retrieved) {
@@ -832,7 +1169,6 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
             if (o == null) {
                 if (keyIterator.hasNext()) {
                     Serializable key = keyIterator.next();
-                    key = (Serializable) mappingContext.getConversionService().convert(key, p.getPersistentEntity().getIdentity().getType());
                     final Object next = retrievedMap.get(key);
                     list.set(i, next);
                     cacheInstance(type, key, next);
@@ -885,23 +1221,8 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         return transaction != null;
     }
 
-    private Map<Serializable, Object> getInstanceCache(Class c) {
-        Map<Serializable, Object> cache = firstLevelCache.get(c);
-        if (cache == null) {
-            cache = new ConcurrentHashMap<>();
-            firstLevelCache.put(c, cache);
-        }
-        return cache;
-    }
-
     private Map<Serializable, Object> getEntryCache(Class c, boolean forDirtyCheck) {
-        Map<Class, Map<Serializable, Object>> caches = forDirtyCheck ? firstLevelEntryCacheDirtyCheck : firstLevelEntryCache;
-        Map<Serializable, Object> cache = caches.get(c);
-        if (cache == null) {
-            cache = new ConcurrentHashMap<>();
-            caches.put(c, cache);
-        }
-        return cache;
+        return (forDirtyCheck ? firstLevelEntryCacheDirtyCheck : firstLevelEntryCache).get(c);
     }
 
     @Override
@@ -918,6 +1239,115 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         this.isSynchronizedWithTransaction = isSynchronizedWithTransaction;
     }
 
+    /**
+     * Adapts one kind of value held by the identity map to the map of caches by type that held it before
+     */
+    private class IdentityMapView extends AbstractMap<Class, Map<Serializable, Object>> {
+        static final int INSTANCES = 0;
+        static final int ENTRIES = 1;
+        static final int DIRTY_CHECK_ENTRIES = 2;
+
+        final int kind;
+
+        IdentityMapView(int kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public Map<Serializable, Object> get(Object type) {
+            return type instanceof Class ? new TypeView((Class) type, kind) : null;
+        }
+
+        @Override
+        public Set<Entry<Class, Map<Serializable, Object>>> entrySet() {
+            Map<Class, Map<Serializable, Object>> caches = new LinkedHashMap<>();
+            for (Class type : identityMap.getSizes().keySet()) {
+                caches.put(type, get(type));
+            }
+            return caches.entrySet();
+        }
+
+        @Override
+        public void clear() {
+            for (Class type : identityMap.getSizes().keySet()) {
+                get(type).clear();
+            }
+        }
+    }
+
+    /**
+     * Adapts one kind of value held by the identity map for a single type to a map by identifier. Iteration works on
+     * a copy of the identifiers.
+     */
+    private class TypeView extends AbstractMap<Serializable, Object> {
+        final Class type;
+        final int kind;
+
+        TypeView(Class type, int kind) {
+            this.type = type;
+            this.kind = kind;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof Serializable)) {
+                return null;
+            }
+            if (kind == IdentityMapView.INSTANCES) {
+                return identityMap.getInstance(type, (Serializable) key);
+            }
+            return identityMap.getEntry(type, (Serializable) key, kind == IdentityMapView.DIRTY_CHECK_ENTRIES);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(Serializable key, Object value) {
+            Object previous = get(key);
+            if (kind == IdentityMapView.INSTANCES) {
+                identityMap.putInstance(type, key, value);
+            }
+            else {
+                identityMap.putEntry(type, key, value, kind == IdentityMapView.DIRTY_CHECK_ENTRIES);
+            }
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Object previous = get(key);
+            if (previous != null && kind == IdentityMapView.INSTANCES) {
+                identityMap.removeInstance(type, (Serializable) key);
+            }
+            else if (previous != null) {
+                identityMap.removeEntry(type, (Serializable) key, kind == IdentityMapView.DIRTY_CHECK_ENTRIES);
+            }
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<Serializable, Object>> entrySet() {
+            Map<Serializable, Object> values = new LinkedHashMap<>();
+            for (Serializable key : identityMap.getKeys(type)) {
+                Object value = get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values.entrySet();
+        }
+
+        @Override
+        public void clear() {
+            for (Serializable key : identityMap.getKeys(type)) {
+                remove(key);
+            }
+        }
+    }
+
     private static class CollectionKey {
         final Class clazz;
         final Serializable key;
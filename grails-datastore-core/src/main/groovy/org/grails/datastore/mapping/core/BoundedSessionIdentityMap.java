@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>The first level cache of a read-only session. At most a fixed number of identifiers are held, beyond which the
+ * least recently used one is evicted, and instances are only weakly referenced, so they can be garbage collected once
+ * the application no longer uses them.</p>
+ *
+ * <p>Native entries kept for dirty checking are never stored, since a read-only session does not write.</p>
+ *
+ * @since 7.1
+ */
+public class BoundedSessionIdentityMap implements SessionIdentityMap {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final Map<SlotKey, Slot> slots;
+
+    public BoundedSessionIdentityMap() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of identifiers, beyond which the least recently used one is evicted
+     */
+    public BoundedSessionIdentityMap(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size of session cache must be at least 1, but was [" + maxSize + "]");
+        }
+        this.maxSize = maxSize;
+        this.slots = new LinkedHashMap<SlotKey, Slot>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SlotKey, Slot> eldest) {
+                return size() > BoundedSessionIdentityMap.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public Object getInstance(Class type, Serializable key) {
+        Slot slot = slots.get(new SlotKey(type, key));
+        return slot != null ? slot.getInstance() : null;
+    }
+
+    @Override
+    public boolean containsInstance(Class type, Serializable key) {
+        return getInstance(type, key) != null;
+    }
+
+    @Override
+    public boolean containsInstanceValue(Class type, Object instance) {
+        for (Map.Entry<SlotKey, Slot> entry : slots.entrySet()) {
+            if (entry.getKey().type == type) {
+                Object cached = entry.getValue().getInstance();
+                if (cached != null && cached.equals(instance)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void putInstance(Class type, Serializable key, Object instance) {
+        getOrCreate(type, key).instance = new WeakReference<>(instance);
+    }
+
+    @Override
+    public void removeInstance(Class type, Serializable key) {
+        SlotKey slotKey = new SlotKey(type, key);
+        Slot slot = slots.get(slotKey);
+        if (slot != null) {
+            slot.instance = null;
+            if (slot.entry == null) {
+                slots.remove(slotKey);
+            }
+        }
+    }
+
+    @Override
+    public Object getEntry(Class type, Serializable key, boolean forDirtyCheck) {
+        if (forDirtyCheck) {
+            return null;
+        }
+        Slot slot = slots.get(new SlotKey(type, key));
+        return slot != null ? slot.entry : null;
+    }
+
+    @Override
+    public void putEntry(Class type, Serializable key, Object entry, boolean forDirtyCheck) {
+        if (!forDirtyCheck) {
+            getOrCreate(type, key).entry = entry;
+        }
+    }
+
+    @Override
+    public void removeEntry(Class type, Serializable key, boolean forDirtyCheck) {
+        if (forDirtyCheck) {
+            return;
+        }
+        SlotKey slotKey = new SlotKey(type, key);
+        Slot slot = slots.get(slotKey);
+        if (slot != null) {
+            slot.entry = null;
+            if (slot.instance == null) {
+                slots.remove(slotKey);
+            }
+        }
+    }
+
+    @Override
+    public void remove(Class type, Serializable key) {
+        slots.remove(new SlotKey(type, key));
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public int size(Class type) {
+        int size = 0;
+        for (SlotKey key : slots.keySet()) {
+            if (key.type == type) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Serializable> getKeys(Class type) {
+        Set<Serializable> keys = new LinkedHashSet<>();
+        for (SlotKey key : slots.keySet()) {
+            if (key.type == type) {
+                keys.add(key.key);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public Map<Class, Integer> getSizes() {
+        Map<Class, Integer> sizes = new LinkedHashMap<>();
+        for (SlotKey key : slots.keySet()) {
+            sizes.merge(key.type, 1, Integer::sum);
+        }
+        return sizes;
+    }
+
+    /**
+     * @return The maximum number of identifiers
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes the identifiers whose instance has been garbage collected and that have no native entry
+     */
+    public void expungeCollectedInstances() {
+        Iterator<Slot> iterator = slots.values().iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (slot.entry == null && slot.getInstance() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private Slot getOrCreate(Class type, Serializable key) {
+        SlotKey slotKey = new SlotKey(type, key);
+        Slot slot = slots.get(slotKey);
+        if (slot == null) {
+            slot = new Slot();
+            slots.put(slotKey, slot);
+        }
+        return slot;
+    }
+
+    private static final class Slot {
+        WeakReference<Object> instance;
+        Object entry;
+
+        Object getInstance() {
+            return instance != null ? instance.get() : null;
+        }
+    }
+
+    private static final class SlotKey {
+        final Class type;
+        final Serializable key;
+
+        SlotKey(Class type, Serializable key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SlotKey)) {
+                return false;
+            }
+            SlotKey other = (SlotKey) o;
+            return type == other.type && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + key.hashCode();
+        }
+    }
+}
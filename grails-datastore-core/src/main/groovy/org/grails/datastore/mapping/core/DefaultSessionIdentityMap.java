@@ -0,0 +1,390 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>The default first level cache of a session. Every identifier of a type has a single slot holding the instance, the
+ * native entry and the native entry kept for dirty checking, so a lookup is one hop to the table of the type and one to
+ * the slot.</p>
+ *
+ * <p>The slots of {@link Long} identifiers are held in an open addressing table of primitive keys, which allocates
+ * nothing per identifier besides the slot itself. Other identifiers are held in a hash map.</p>
+ *
+ * <p>Like the session holding it, the map must only be used by one thread at a time.</p>
+ *
+ * @since 7.1
+ */
+public class DefaultSessionIdentityMap implements SessionIdentityMap {
+
+    private final Map<Class, TypeTable> tables = new ConcurrentHashMap<>();
+
+    @Override
+    public Object getInstance(Class type, Serializable key) {
+        Slot slot = getSlot(type, key);
+        return slot != null ? slot.instance : null;
+    }
+
+    @Override
+    public boolean containsInstance(Class type, Serializable key) {
+        return getInstance(type, key) != null;
+    }
+
+    @Override
+    public boolean containsInstanceValue(Class type, Object instance) {
+        TypeTable table = tables.get(type);
+        if (table == null) {
+            return false;
+        }
+        Iterator<Slot> slots = table.iterator();
+        while (slots.hasNext()) {
+            Object cached = slots.next().instance;
+            if (cached != null && cached.equals(instance)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void putInstance(Class type, Serializable key, Object instance) {
+        getTable(type).getOrCreate(key).instance = instance;
+    }
+
+    @Override
+    public void removeInstance(Class type, Serializable key) {
+        TypeTable table = tables.get(type);
+        if (table != null) {
+            Slot slot = table.get(key);
+            if (slot != null) {
+                slot.instance = null;
+                if (slot.isEmpty()) {
+                    table.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object getEntry(Class type, Serializable key, boolean forDirtyCheck) {
+        Slot slot = getSlot(type, key);
+        if (slot == null) {
+            return null;
+        }
+        return forDirtyCheck ? slot.dirtyCheckEntry : slot.entry;
+    }
+
+    @Override
+    public void putEntry(Class type, Serializable key, Object entry, boolean forDirtyCheck) {
+        Slot slot = getTable(type).getOrCreate(key);
+        if (forDirtyCheck) {
+            slot.dirtyCheckEntry = entry;
+        }
+        else {
+            slot.entry = entry;
+        }
+    }
+
+    @Override
+    public void removeEntry(Class type, Serializable key, boolean forDirtyCheck) {
+        TypeTable table = tables.get(type);
+        if (table != null) {
+            Slot slot = table.get(key);
+            if (slot != null) {
+                if (forDirtyCheck) {
+                    slot.dirtyCheckEntry = null;
+                }
+                else {
+                    slot.entry = null;
+                }
+                if (slot.isEmpty()) {
+                    table.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void remove(Class type, Serializable key) {
+        TypeTable table = tables.get(type);
+        if (table != null) {
+            table.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (TypeTable table : tables.values()) {
+            table.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (TypeTable table : tables.values()) {
+            size += table.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int size(Class type) {
+        TypeTable table = tables.get(type);
+        return table != null ? table.size() : 0;
+    }
+
+    @Override
+    public Set<Serializable> getKeys(Class type) {
+        TypeTable table = tables.get(type);
+        return table != null ? table.keys() : new LinkedHashSet<Serializable>();
+    }
+
+    @Override
+    public Map<Class, Integer> getSizes() {
+        Map<Class, Integer> sizes = new LinkedHashMap<>();
+        for (Map.Entry<Class, TypeTable> entry : tables.entrySet()) {
+            int size = entry.getValue().size();
+            if (size > 0) {
+                sizes.put(entry.getKey(), size);
+            }
+        }
+        return sizes;
+    }
+
+    private Slot getSlot(Class type, Serializable key) {
+        TypeTable table = tables.get(type);
+        return table != null ? table.get(key) : null;
+    }
+
+    private TypeTable getTable(Class type) {
+        TypeTable table = tables.get(type);
+        if (table == null) {
+            table = tables.computeIfAbsent(type, t -> new TypeTable());
+        }
+        return table;
+    }
+
+    private static final class Slot {
+        Object instance;
+        Object entry;
+        Object dirtyCheckEntry;
+
+        boolean isEmpty() {
+            return instance == null && entry == null && dirtyCheckEntry == null;
+        }
+    }
+
+    private static final class TypeTable {
+        private final LongSlotTable longSlots = new LongSlotTable();
+        private Map<Serializable, Slot> slots;
+
+        Slot get(Serializable key) {
+            if (key instanceof Long) {
+                return longSlots.get((Long) key);
+            }
+            return slots != null ? slots.get(key) : null;
+        }
+
+        Slot getOrCreate(Serializable key) {
+            if (key instanceof Long) {
+                return longSlots.getOrCreate((Long) key);
+            }
+            if (slots == null) {
+                slots = new HashMap<>();
+            }
+            Slot slot = slots.get(key);
+            if (slot == null) {
+                slot = new Slot();
+                slots.put(key, slot);
+            }
+            return slot;
+        }
+
+        void remove(Serializable key) {
+            if (key instanceof Long) {
+                longSlots.remove((Long) key);
+            }
+            else if (slots != null) {
+                slots.remove(key);
+            }
+        }
+
+        void clear() {
+            longSlots.clear();
+            slots = null;
+        }
+
+        int size() {
+            return longSlots.size + (slots != null ? slots.size() : 0);
+        }
+
+        Set<Serializable> keys() {
+            Set<Serializable> keys = new LinkedHashSet<>(size() * 2);
+            for (int i = longSlots.nextIndex(0); i < longSlots.slots.length; i = longSlots.nextIndex(i + 1)) {
+                keys.add(longSlots.keys[i]);
+            }
+            if (slots != null) {
+                keys.addAll(slots.keySet());
+            }
+            return keys;
+        }
+
+        Iterator<Slot> iterator() {
+            Iterator<Slot> others = slots != null ? slots.values().iterator() : null;
+            return new Iterator<Slot>() {
+                int index = longSlots.nextIndex(0);
+
+                @Override
+                public boolean hasNext() {
+                    return index < longSlots.slots.length || (others != null && others.hasNext());
+                }
+
+                @Override
+                public Slot next() {
+                    if (index < longSlots.slots.length) {
+                        Slot slot = longSlots.slots[index];
+                        index = longSlots.nextIndex(index + 1);
+                        return slot;
+                    }
+                    return others.next();
+                }
+            };
+        }
+    }
+
+    /**
+     * Open addressing table with linear probing, keyed by primitive longs
+     */
+    private static final class LongSlotTable {
+        private static final int INITIAL_CAPACITY = 16;
+
+        long[] keys = new long[INITIAL_CAPACITY];
+        Slot[] slots = new Slot[INITIAL_CAPACITY];
+        int size;
+
+        Slot get(long key) {
+            int mask = keys.length - 1;
+            for (int i = index(key, mask); slots[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return slots[i];
+                }
+            }
+            return null;
+        }
+
+        Slot getOrCreate(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            for (; slots[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return slots[i];
+                }
+            }
+            Slot slot = new Slot();
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+                insert(key, slot);
+            }
+            else {
+                keys[i] = key;
+                slots[i] = slot;
+            }
+            size++;
+            return slot;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (slots[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == null) {
+                return;
+            }
+            slots[i] = null;
+            size--;
+
+            // shift back the following slots of the run that can no longer be reached through the freed slot
+            for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+                int home = index(keys[j], mask);
+                boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!reachable) {
+                    keys[i] = keys[j];
+                    slots[i] = slots[j];
+                    slots[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        void clear() {
+            if (keys.length > INITIAL_CAPACITY) {
+                keys = new long[INITIAL_CAPACITY];
+                slots = new Slot[INITIAL_CAPACITY];
+            }
+            else {
+                Arrays.fill(slots, null);
+            }
+            size = 0;
+        }
+
+        int nextIndex(int from) {
+            int i = from;
+            while (i < slots.length && slots[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Slot[] oldSlots = slots;
+            keys = new long[capacity];
+            slots = new Slot[capacity];
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != null) {
+                    insert(oldKeys[i], oldSlots[i]);
+                }
+            }
+        }
+
+        private void insert(long key, Slot slot) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (slots[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            slots[i] = slot;
+        }
+
+        private static int index(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>The first level cache of a session, holding the instance, the native entry and the native entry kept for dirty
+ * checking of every cached identifier of a type.</p>
+ *
+ * <p>Like the session holding it, an identity map must only be used by one thread at a time.</p>
+ *
+ * @see DefaultSessionIdentityMap
+ * @see BoundedSessionIdentityMap
+ * @since 7.1
+ */
+public interface SessionIdentityMap {
+
+    Object getInstance(Class type, Serializable key);
+
+    boolean containsInstance(Class type, Serializable key);
+
+    /**
+     * @param type The type
+     * @param instance The instance
+     * @return Whether an instance equal to the given one is cached, regardless of its identifier
+     */
+    boolean containsInstanceValue(Class type, Object instance);
+
+    void putInstance(Class type, Serializable key, Object instance);
+
+    /**
+     * Removes the instance, but keeps the native entries of the identifier
+     */
+    void removeInstance(Class type, Serializable key);
+
+    Object getEntry(Class type, Serializable key, boolean forDirtyCheck);
+
+    void putEntry(Class type, Serializable key, Object entry, boolean forDirtyCheck);
+
+    /**
+     * Removes the native entry, but keeps the instance and the other native entry of the identifier
+     */
+    void removeEntry(Class type, Serializable key, boolean forDirtyCheck);
+
+    /**
+     * Removes the instance and the native entries of the identifier
+     */
+    void remove(Class type, Serializable key);
+
+    void clear();
+
+    /**
+     * @return The number of identifiers that have an instance or native entry cached
+     */
+    int size();
+
+    /**
+     * @param type The type
+     * @return The number of identifiers of the given type that have an instance or native entry cached
+     */
+    int size(Class type);
+
+    /**
+     * @param type The type
+     * @return A copy of the identifiers of the given type that have an instance or native entry cached
+     */
+    Set<Serializable> getKeys(Class type);
+
+    /**
+     * @return The number of identifiers that have an instance or native entry cached, by type
+     */
+    Map<Class, Integer> getSizes();
+}
@@ -95,6 +95,27 @@ public interface SessionImplementor<T> {
      */
     T getCachedEntry(PersistentEntity entity, Serializable key, boolean forDirtyCheck);
 
+    /**
+     * Whether the instances of the given entity are dirty checked only through the changes they track themselves, in
+     * which case no entry is cached for dirty checking and updates only write the changed properties
+     *
+     * @param entity The entity
+     * @return True if only tracked changes are used
+     */
+    default boolean isTrackedDirtyChecking(PersistentEntity entity) {
+        return false;
+    }
+
+    /**
+     * Whether the session has to be flushed before a query in the AUTO flush mode that reads the given entities
+     *
+     * @param entities The entities read by the query
+     * @return True if the session should be flushed
+     */
+    default boolean isFlushRequiredBeforeQuery(Collection<PersistentEntity> entities) {
+        return true;
+    }
+
     /**
      * Caches an instance
      * @param type The type
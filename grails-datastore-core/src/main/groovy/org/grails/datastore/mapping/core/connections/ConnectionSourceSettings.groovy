@@ -54,6 +54,12 @@ class ConnectionSourceSettings implements Settings {
      */
     Boolean markDirty
 
+    /**
+     * Whether entities that track their own changes are dirty checked only through those changes, without keeping a
+     * copy of their native entry
+     */
+    boolean trackedDirtyChecking = false
+
     /**
      * Package names that should fail on error
      */
@@ -74,6 +80,11 @@ class ConnectionSourceSettings implements Settings {
      */
     MultiTenancySettings multiTenancy = new MultiTenancySettings()
 
+    /**
+     * The settings for flushing sessions
+     */
+    FlushSettings flush = new FlushSettings()
+
     /**
      * @return Any defaults
      */
@@ -102,6 +113,32 @@ class ConnectionSourceSettings implements Settings {
         Closure constraints
     }
 
+    /**
+     * Settings for flushing sessions, automatically during bulk operations or before queries
+     */
+    @Builder(builderStrategy = SimpleStrategy, prefix = '')
+    static class FlushSettings {
+        /**
+         * The number of pending operations after which a session is flushed, 0 to only flush when requested
+         */
+        int threshold = 0
+
+        /**
+         * The estimated number of bytes held by pending operations after which a session is flushed, 0 to only flush when requested
+         */
+        long sizeThreshold = 0
+
+        /**
+         * Whether the instances written by an automatic flush are evicted from the session
+         */
+        boolean evict = false
+
+        /**
+         * Whether queries in the AUTO flush mode only flush when the entities they read have pending operations
+         */
+        boolean selective = false
+    }
+
     /**
      * Any custom settings
      */
@@ -132,4 +132,12 @@ trait DirtyCheckable {
             return null
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The original values of the changed properties, or null if changes are not tracked
+     * @since 7.1
+     */
+    Map<String, Object> $getChangedProperties() {
+        return $changedProperties
+    }
+}
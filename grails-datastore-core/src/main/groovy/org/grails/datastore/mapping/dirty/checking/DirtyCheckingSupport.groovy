@@ -70,11 +70,15 @@ class DirtyCheckingSupport {
         final EntityReflector entityReflector = mappingContext.getEntityReflector(entity)
 
         final associations = entity.associations
+        if(associations.isEmpty()) return false
+
+        // unwrapped once, so that the associations can be read by their ordinal
+        final Object target = mappingContext.proxyHandler.unwrap(instance)
         for(Association a in associations) {
             final isOwner = a.isOwningSide() || (a.bidirectional && !a.inverseSide?.owningSide)
             if(isOwner) {
                 if(a instanceof ToOne) {
-                    final value = entityReflector.getProperty(instance, a.name)
+                    final value = entityReflector.getProperty(target, a)
                     if(proxyFactory.isInitialized(value)) {
                         if(value instanceof DirtyCheckable) {
                             DirtyCheckable dirtyCheckable = (DirtyCheckable) value
@@ -85,7 +89,7 @@ class DirtyCheckingSupport {
                     }
                 }
                 else {
-                    final value = entityReflector.getProperty(instance, a.name)
+                    final value = entityReflector.getProperty(target, a)
                     if(value instanceof PersistentCollection) {
                         PersistentCollection coll = (PersistentCollection)value
                         if(coll.isInitialized()) {
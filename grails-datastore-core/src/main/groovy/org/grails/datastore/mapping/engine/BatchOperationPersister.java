@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.engine;
+
+import java.util.List;
+
+import org.grails.datastore.mapping.core.impl.PendingInsert;
+import org.grails.datastore.mapping.core.impl.PendingUpdate;
+
+/**
+ * Implemented by {@link Persister} instances that can write the pending operations of an entity as a batch.
+ *
+ * When a session is flushed the pending inserts and updates of each entity are handed to its persister together, so
+ * that a datastore supporting multi-row writes can write them in a single round trip. Implementations must run the
+ * pre-operations, events and cascades of each operation in the order they were queued.
+ *
+ * @since 7.1
+ */
+public interface BatchOperationPersister {
+
+    /**
+     * Executes the given pending inserts of a single entity
+     *
+     * @param inserts The inserts in the order they were queued
+     */
+    void executePendingInserts(List<PendingInsert> inserts);
+
+    /**
+     * Executes the given pending updates of a single entity
+     *
+     * @param updates The updates in the order they were queued
+     */
+    void executePendingUpdates(List<PendingUpdate> updates);
+}
@@ -1,6 +1,7 @@
 package org.grails.datastore.mapping.engine;
 
 import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.model.PersistentProperty;
 
 /**
  * @author Graeme Rocher
@@ -42,6 +43,28 @@ public interface EntityAccess {
      */
     void setProperty(String name, Object value);
 
+    /**
+     * Obtains the value of a persistent property, without resolving the property by name where possible
+     *
+     * @param property The property
+     * @return The value of the property
+     * @since 7.1
+     */
+    default Object getProperty(PersistentProperty property) {
+        return getProperty(property.getName());
+    }
+
+    /**
+     * Sets the value of a persistent property, without resolving the property by name where possible
+     *
+     * @param property The property
+     * @param value The value of the property
+     * @since 7.1
+     */
+    default void setProperty(PersistentProperty property, Object value) {
+        setProperty(property.getName(), value);
+    }
+
     /**
      * @return Obtains the value of the entity identifier
      */
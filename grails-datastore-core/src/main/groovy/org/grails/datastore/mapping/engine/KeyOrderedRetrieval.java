@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.engine;
+
+/**
+ * Marks {@link Persister} instances whose {@link Persister#retrieveAll(Iterable)} returns exactly one result for each
+ * key, in the order of the keys and with null for every key that does not exist.
+ *
+ * The session matches the results of such persisters to their keys by position instead of by their identifiers.
+ * Persisters that override the retrieval, and may return the entities in another order or leave missing keys out,
+ * must not implement this interface.
+ *
+ * @since 7.1
+ */
+public interface KeyOrderedRetrieval {
+}
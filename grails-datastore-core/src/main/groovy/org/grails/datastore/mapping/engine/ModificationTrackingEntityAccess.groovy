@@ -1,6 +1,7 @@
 package org.grails.datastore.mapping.engine
 
 import groovy.transform.CompileStatic
+import org.grails.datastore.mapping.model.PersistentProperty
 
 /**
  * Tracks modifications to the entity access, this allows synchronization of state for Hibernate for example
@@ -41,6 +42,12 @@ class ModificationTrackingEntityAccess implements EntityAccess {
         target.setProperty(name, value)
     }
 
+    @Override
+    void setProperty(PersistentProperty property, Object value) {
+        modifiedProperties.put(property.name, value)
+        target.setProperty(property, value)
+    }
+
     @Override
     Object getProperty(String name) {
         target.getProperty(name)
@@ -72,7 +72,7 @@ import org.springframework.dao.CannotAcquireLockException;
  * @since  1.0
  */
 @SuppressWarnings({"unused", "rawtypes", "unchecked"})
-public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEntityPersister<T> {
+public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEntityPersister<T> implements BatchOperationPersister {
     public static final String EMBEDDED_PREFIX = "embedded:";
     protected ClassMapping classMapping;
 
@@ -122,6 +122,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             session.setFlushMode(FlushModeType.COMMIT);
             cascadeBeforeDelete(persistentEntity, entityAccess, key, obj);
             deleteEntry(getEntityFamily(), key, obj);
+            evictFromTPCache(persistentEntity, (Serializable) key);
             cascadeAfterDelete(persistentEntity, entityAccess, key, obj);
         }
         finally {
@@ -200,7 +201,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         for (PersistentProperty prop : props) {
             String propertyKey = getPropertyKey(prop);
             if (prop instanceof Basic) {
-                Object propValue = entityAccess.getProperty(prop.getName());
+                Object propValue = entityAccess.getProperty(prop);
             }
             else if (prop instanceof OneToMany) {
                 OneToMany oneToMany = (OneToMany)prop;
@@ -215,7 +216,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                 if (!(prop instanceof Embedded) && !(prop instanceof EmbeddedCollection) &&
                         association.doesCascade(CascadeType.REMOVE)) {
                     if (association.isOwningSide()) {
-                        Object value = entityAccess.getProperty(association.getName());
+                        Object value = entityAccess.getProperty(association);
                         if (value != null) {
                             Persister persister = session.getPersister(value);
                             if (persister != null) {
@@ -248,6 +249,9 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
 
             if (!keys.isEmpty()) {
                 deleteEntries(getEntityFamily(), new ArrayList<K>(keys));
+                for (K key : keys) {
+                    evictFromTPCache(persistentEntity, (Serializable) key);
+                }
                 for (Object object : deleteList) {
                     firePostDeleteEvent(persistentEntity, createEntityAccess(persistentEntity, object));
                 }
@@ -408,7 +412,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             String propKey = getNativePropertyKey(prop);
             if (prop instanceof Simple) {
                 // this magically converts most types to the correct property type, using bean converters.
-                ea.setProperty(prop.getName(), getEntryValue(nativeEntry, propKey));
+                ea.setProperty(prop, getEntryValue(nativeEntry, propKey));
             }
             else if (prop instanceof Basic) {
                 Basic basic = (Basic) prop;
@@ -419,12 +423,12 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                     }
 
                     Object value = customTypeMarshaller.read(prop, nativeEntry);
-                    ea.setProperty(prop.getName(), value);
+                    ea.setProperty(prop, value);
                 }
                 else {
                     Object entryValue = getEntryValue(nativeEntry, propKey);
                     entryValue = convertBasicEntryValue(persistentEntity, (Basic)prop, entryValue);
-                    ea.setProperty(prop.getName(), entryValue);
+                    ea.setProperty(prop, entryValue);
                 }
             }
             else if (prop instanceof Custom) {
@@ -480,7 +484,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                         associatedEntity = discriminatePersistentEntity(associatedEntity, (T) tmp);
                         Object instance = newEntityInstance(associatedEntity);
                         refreshObjectStateFromNativeEntry(associatedEntity,instance, null, (T) tmp, false);
-                        ea.setProperty(prop.getName(), instance);
+                        ea.setProperty(prop, instance);
                     }
                     else if (tmp != null && !prop.getType().isInstance(tmp)) {
                         PersistentEntity associatedEntity = association.getAssociatedEntity();
@@ -495,7 +499,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                                 Object value = isLazy ?
                                         session.proxy(propType, associationKey) :
                                         session.retrieve(propType, associationKey);
-                                ea.setProperty(prop.getName(), value);
+                                ea.setProperty(prop, value);
                             }
                         }
                     }
@@ -558,7 +562,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                         else {
                             if (indexer != null) {
                                 List keys = indexer.query(nativeKey);
-                                ea.setProperty(association.getName(),
+                                ea.setProperty(association,
                                         session.retrieveAll(association.getAssociatedEntity().getJavaClass(), keys));
                             }
                         }
@@ -610,14 +614,14 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                             else {
                                 List keys = indexer.query(nativeKey);
                                 collection = session.retrieveAll(childType, keys);
-                                ea.setProperty(manyToMany.getName(), collection);
+                                ea.setProperty(manyToMany, collection);
                             }
                         }
                         ((SessionImplementor)session).cacheCollection(
                                 persistentEntity, nativeKey, collection, manyToMany.getName());
                     }
                     else {
-                        ea.setProperty(manyToMany.getName(), cached);
+                        ea.setProperty(manyToMany, cached);
                     }
                 }
             }
@@ -750,7 +754,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         }
 
         Object value = customTypeMarshaller.read(prop, nativeEntry);
-        ea.setProperty(prop.getName(), value);
+        ea.setProperty(prop, value);
     }
 
     protected Collection getManyToManyKeys(PersistentEntity persistentEntity, Object obj,
@@ -820,6 +824,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             isUpdate = false;
         }
         String family = getEntityFamily();
+        boolean changedPropertiesOnly = false;
 
         if (!isUpdate) {
             tmp = createNewEntry(family, obj);
@@ -830,14 +835,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
 
             cacheNativeEntry(persistentEntity, (Serializable) k, tmp);
 
-            pendingOperation = new PendingInsertAdapter<T, K>(persistentEntity, k, tmp, entityAccess) {
-                public void run() {
-                    K insertResult = executeInsert(persistentEntity, entityAccess, getNativeKey(), getNativeEntry());
-                    if(insertResult == null) {
-                        setVetoed(true);
-                    }
-                }
-            };
+            pendingOperation = new NativeEntryPendingInsert(persistentEntity, k, tmp, entityAccess);
 
             entityAccess.setProperty(entityAccess.getIdentifierName(), k);
         }
@@ -845,27 +843,27 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             tmp = (T) si.getCachedEntry(persistentEntity, (Serializable) k);
             if (tmp == null) {
                 tmp = getFromTPCache(persistentEntity, (Serializable) k);
-                if (tmp == null) {
-                    tmp = retrieveEntry(persistentEntity, family, (Serializable) k);
-                }
+            }
+            if (tmp == null) {
+                tmp = retrieveEntry(persistentEntity, family, (Serializable) k);
+            }
+            else {
+                // an entry cached by the session may have been loaded from the third party cache as well, it is the
+                // same instance and is modified in place below, so it must not be served until the update is written
+                evictFromTPCache(persistentEntity, (Serializable) k);
             }
             if (tmp == null) {
                 tmp = createNewEntry(family);
             }
-
-            final T finalTmp = tmp;
-            final K finalK = k;
-            pendingOperation = new PendingUpdateAdapter<T, K>(persistentEntity, finalK, finalTmp, entityAccess) {
-                public void run() {
-                    if (cancelUpdate(persistentEntity, entityAccess)) {
-                        setVetoed(true);
-                        return;
-                    }
-                    updateEntry(persistentEntity, entityAccess, getNativeKey(), getNativeEntry());
-                    updateTPCache(persistentEntity, finalTmp, (Serializable) finalK);
-                    firePostUpdateEvent(persistentEntity, entityAccess);
+            else {
+                // the existing entry already holds the values of the properties that have not changed
+                changedPropertiesOnly = obj instanceof DirtyCheckable && si.isTrackedDirtyChecking(persistentEntity);
+                if (changedPropertiesOnly) {
+                    entityAccess.setChangedKeys(new LinkedHashSet<String>());
                 }
-            };
+            }
+
+            pendingOperation = new NativeEntryPendingUpdate(persistentEntity, k, tmp, entityAccess);
         }
 
         final T e = tmp;
@@ -878,6 +876,10 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         final Map<PersistentProperty, Object> toUnindex = new HashMap<PersistentProperty, Object>();
         entityAccess.setToIndex(toIndex);
         for (PersistentProperty prop : props) {
+            if (changedPropertiesOnly && (prop instanceof Simple || prop instanceof Basic || prop instanceof Custom) &&
+                    !((DirtyCheckable) obj).hasChanged(prop.getName())) {
+                continue;
+            }
             PropertyMapping<Property> pm = prop.getMapping();
             final Property mappedProperty = pm.getMappedForm();
             String key = null;
@@ -885,10 +887,14 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                 key = mappedProperty.getTargetName();
             }
             if (key == null) key = prop.getName();
+            if (changedPropertiesOnly && !(prop instanceof OneToMany) &&
+                    !(prop instanceof ToOne && ((ToOne) prop).isForeignKeyInChild())) {
+                entityAccess.getChangedKeys().add(key);
+            }
             final boolean indexed = isPropertyIndexed(mappedProperty);
             if ((prop instanceof Simple) ) {
 
-                Object propValue = entityAccess.getProperty(prop.getName());
+                Object propValue = entityAccess.getProperty(prop);
                 if(propValue == null && !isUpdate) {
                     continue;
                 }
@@ -901,12 +907,12 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                 Basic basic = (Basic) prop;
                 CustomTypeMarshaller customTypeMarshaller = basic.getCustomTypeMarshaller();
                 if (customTypeMarshaller != null && customTypeMarshaller.supports(getMappingContext())) {
-                    Object propValue = entityAccess.getProperty(prop.getName());
+                    Object propValue = entityAccess.getProperty(prop);
                     Object customValue = customTypeMarshaller.write(prop, propValue, e);
                     handleIndexing(isUpdate, e, toIndex, toUnindex, prop, key, indexed, customValue);
                 }
                 else {
-                    Object propValue = entityAccess.getProperty(prop.getName());
+                    Object propValue = entityAccess.getProperty(prop);
                     if(propValue == null && !isUpdate) {
                         continue;
                     }
@@ -919,7 +925,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             else if ((prop instanceof Custom)) {
                 CustomTypeMarshaller customTypeMarshaller = ((Custom) prop).getCustomTypeMarshaller();
                 if (customTypeMarshaller.supports(getMappingContext())) {
-                    Object propValue = entityAccess.getProperty(prop.getName());
+                    Object propValue = entityAccess.getProperty(prop);
                     if(propValue == null && !isUpdate) {
                         continue;
                     }
@@ -934,7 +940,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             else if (prop instanceof OneToMany) {
                 final OneToMany oneToMany = (OneToMany) prop;
 
-                final Object propValue = entityAccess.getProperty(oneToMany.getName());
+                final Object propValue = entityAccess.getProperty(oneToMany);
                 if (propValue instanceof Collection) {
                     Collection associatedObjects = (Collection) propValue;
                     if (isInitializedCollection(associatedObjects)) {
@@ -959,7 +965,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                                     List<Serializable> keys = associationPersister.persist(associatedObjects);
                                     toManyKeys.put(oneToMany, keys);
                                     if (newCollection ) {
-                                        entityAccess.setProperty(oneToMany.getName(), associatedObjects);
+                                        entityAccess.setProperty(oneToMany, associatedObjects);
                                     }
                                 }
                             }
@@ -970,7 +976,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             else if (prop instanceof ManyToMany) {
                 final ManyToMany manyToMany = (ManyToMany) prop;
 
-                final Object propValue = entityAccess.getProperty(manyToMany.getName());
+                final Object propValue = entityAccess.getProperty(manyToMany);
                 if (propValue instanceof Collection) {
                     Collection associatedObjects = (Collection) propValue;
                     if (isInitializedCollection(associatedObjects)) {
@@ -987,7 +993,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                 }
 
                 else if (association.getAssociatedEntity() !=  null) {
-                    final Object associatedObject = entityAccess.getProperty(prop.getName());
+                    final Object associatedObject = entityAccess.getProperty(prop);
                     if (associatedObject != null) {
                         Serializable associationId;
                         NativeEntryEntityPersister associationPersister = (NativeEntryEntityPersister) session.getPersister(associatedObject);
@@ -1494,37 +1500,58 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
     }
 
     /**
-     * Simplistic default implementation of retrieveAllEntities that iterates over each key and retrieves the entities
-     * one-by-one. Data stores that support batch retrieval can optimize this to retrieve all entities in one go.
+     * Retrieves the entities for the given keys in a single pass. Entries held by the third party cache are used
+     * directly, all remaining entries are read with one call to {@link #retrieveEntries(PersistentEntity, String, List)}
+     * and the entities are then created in the order of the keys. Subclasses that keep this order when overriding
+     * the retrieval can implement {@link KeyOrderedRetrieval}, so that the session matches the results by position.
      *
      * @param persistentEntity The persist entity
      * @param keys The keys
-     * @return A list of entities
+     * @return A list of entities, in the order of the keys, containing null for every key that does not exist
      */
     @Override
     protected List<Object> retrieveAllEntities(PersistentEntity persistentEntity, Iterable<Serializable> keys) {
-        List<Object> results = new ArrayList<Object>();
+        List<Serializable> nativeKeys = new ArrayList<Serializable>();
+        List<T> entries = new ArrayList<T>();
+        List<Serializable> keysToRetrieve = new ArrayList<Serializable>();
         for (Serializable key : keys) {
-            results.add(retrieveEntity(persistentEntity, key));
+            Serializable nativeKey = convertToNativeKey(key);
+            T nativeEntry = getFromTPCache(persistentEntity, key);
+            nativeKeys.add(nativeKey);
+            entries.add(nativeEntry);
+            if (nativeEntry == null) {
+                keysToRetrieve.add(nativeKey);
+            }
+        }
+
+        if (!keysToRetrieve.isEmpty()) {
+            Iterator<T> retrieved = retrieveEntries(persistentEntity, getEntityFamily(), keysToRetrieve).iterator();
+            for (int i = 0; i < entries.size() && retrieved.hasNext(); i++) {
+                if (entries.get(i) == null) {
+                    entries.set(i, retrieved.next());
+                }
+            }
+        }
+
+        List<Object> results = new ArrayList<Object>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            T nativeEntry = entries.get(i);
+            results.add(nativeEntry == null ? null : createObjectFromNativeEntry(persistentEntity, nativeKeys.get(i), nativeEntry));
         }
         return results;
     }
 
     /**
-     * Simplistic default implementation of retrieveAllEntities that iterates over each key and retrieves the entities
-     * one-by-one. Data stores that support batch retrieval can optimize this to retrieve all entities in one go.
+     * Retrieves the entities for the given keys in a single pass.
      *
      * @param persistentEntity The persist entity
      * @param keys The keys
-     * @return A list of entities
+     * @return A list of entities, in the order of the keys, containing null for every key that does not exist
+     * @see #retrieveAllEntities(PersistentEntity, Iterable)
      */
     @Override
     protected List<Object> retrieveAllEntities(PersistentEntity persistentEntity, Serializable[] keys) {
-        List<Object> results = new ArrayList<Object>();
-        for (Serializable key : keys) {
-            results.add(retrieveEntity(persistentEntity, key));
-        }
-        return results;
+        return retrieveAllEntities(persistentEntity, Arrays.asList(keys));
     }
 
     /**
@@ -1583,6 +1610,23 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
      */
     protected abstract T retrieveEntry(PersistentEntity persistentEntity, String family, Serializable key);
 
+    /**
+     * Reads the native entries for the given keys. This simplistic default implementation retrieves the entries
+     * one-by-one. Data stores that support batch retrieval should override it to read all entries in one go.
+     *
+     * @param persistentEntity The persistent entity
+     * @param family The family
+     * @param keys The native keys
+     * @return The native entries in the order of the keys, containing null for every key that does not exist
+     */
+    protected List<T> retrieveEntries(PersistentEntity persistentEntity, String family, List<Serializable> keys) {
+        List<T> entries = new ArrayList<T>(keys.size());
+        for (Serializable key : keys) {
+            entries.add(retrieveEntry(persistentEntity, family, key));
+        }
+        return entries;
+    }
+
     /**
      * Stores the native form of a Key/value datastore to the actual data store
      *
@@ -1606,6 +1650,76 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
     protected abstract void updateEntry(PersistentEntity persistentEntity,
             EntityAccess entityAccess, K key, T entry);
 
+    /**
+     * Writes the changed values of an existing entry to the actual datastore. This is used instead of
+     * {@link #updateEntry(PersistentEntity, EntityAccess, Object, Object)} for entities that are dirty checked only
+     * through the changes they track, see {@link SessionImplementor#isTrackedDirtyChecking(PersistentEntity)}. The
+     * default implementation writes the whole entry, subclasses should override this method if the datastore can
+     * update individual values.
+     *
+     * @param persistentEntity The PersistentEntity
+     * @param entityAccess The EntityAccess
+     * @param key The key of the object to update
+     * @param entry The entry, which holds all values including the changed ones
+     * @param delta The changed values, keyed by the entry key they are stored under
+     */
+    protected void updateEntryDelta(PersistentEntity persistentEntity, EntityAccess entityAccess, K key, T entry,
+                                    Map<String, Object> delta) {
+        updateEntry(persistentEntity, entityAccess, key, entry);
+    }
+
+    /**
+     * Whether the pending inserts and updates of the given entity are written together once the pre-events of the
+     * whole batch have fired. By default each entry is written, and its post-events and cascades run, before the
+     * pre-events of the next entry fire, so that listeners querying the datastore, such as unique constraints, see the
+     * entries before them. Subclasses may return true when no such listener needs to see the earlier entries of a flush.
+     *
+     * @param persistentEntity The persistent entity
+     * @return True if the entries are written with a single call to storeEntries or updateEntries
+     */
+    protected boolean isBatchWriteDeferred(PersistentEntity persistentEntity) {
+        return false;
+    }
+
+    /**
+     * Stores the native forms of several entities of the same type. The default implementation stores each entry
+     * with {@link #storeEntry(PersistentEntity, EntityAccess, Object, Object)}, subclasses should override this method
+     * if the datastore can write several entries at once. Whole batches are only passed if
+     * {@link #isBatchWriteDeferred(PersistentEntity)} returns true.
+     *
+     * @param persistentEntity The persistent entity
+     * @param entityAccesses The EntityAccess of each entity
+     * @param storeIds The identifiers to store the entries under
+     * @param nativeEntries The native forms
+     * @return The native keys, in the order of the entries
+     */
+    protected List<K> storeEntries(PersistentEntity persistentEntity, List<EntityAccess> entityAccesses,
+                                   List<K> storeIds, List<T> nativeEntries) {
+        List<K> keys = new ArrayList<K>(nativeEntries.size());
+        for (int i = 0; i < nativeEntries.size(); i++) {
+            keys.add(storeEntry(persistentEntity, entityAccesses.get(i), storeIds.get(i), nativeEntries.get(i)));
+        }
+        return keys;
+    }
+
+    /**
+     * Updates several existing entries of the same type. The default implementation updates each entry with
+     * {@link #updateEntry(PersistentEntity, EntityAccess, Object, Object)}, subclasses should override this method if
+     * the datastore can write several entries at once. Whole batches are only passed if
+     * {@link #isBatchWriteDeferred(PersistentEntity)} returns true.
+     *
+     * @param persistentEntity The PersistentEntity
+     * @param entityAccesses The EntityAccess of each entity
+     * @param keys The keys of the objects to update
+     * @param entries The entries
+     */
+    protected void updateEntries(PersistentEntity persistentEntity, List<EntityAccess> entityAccesses,
+                                 List<K> keys, List<T> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            updateEntry(persistentEntity, entityAccesses.get(i), keys.get(i), entries.get(i));
+        }
+    }
+
     /**
      * Deletes one or many entries for the given list of Keys
      *
@@ -1636,10 +1750,223 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         return newId;
     }
 
+    @Override
+    public void executePendingInserts(List<PendingInsert> inserts) {
+        List<NativeEntryPendingInsert> batch = new ArrayList<NativeEntryPendingInsert>(inserts.size());
+        for (PendingInsert insert : inserts) {
+            if (insert instanceof NativeEntryEntityPersister.NativeEntryPendingInsert && ((NativeEntryPendingInsert) insert).getPersister() == this) {
+                batch.add((NativeEntryPendingInsert) insert);
+            }
+            else {
+                // operations queued by others are executed where they were queued, after the batch before them
+                executeInsertBatch(batch);
+                batch.clear();
+                PendingOperationExecution.executePendingOperation(insert);
+            }
+        }
+        executeInsertBatch(batch);
+    }
+
+    @Override
+    public void executePendingUpdates(List<PendingUpdate> updates) {
+        List<NativeEntryPendingUpdate> batch = new ArrayList<NativeEntryPendingUpdate>(updates.size());
+        for (PendingUpdate update : updates) {
+            if (update instanceof NativeEntryEntityPersister.NativeEntryPendingUpdate && ((NativeEntryPendingUpdate) update).getPersister() == this) {
+                batch.add((NativeEntryPendingUpdate) update);
+            }
+            else {
+                executeUpdateBatch(batch);
+                batch.clear();
+                PendingOperationExecution.executePendingOperation(update);
+            }
+        }
+        executeUpdateBatch(batch);
+    }
+
+    private void executeInsertBatch(List<NativeEntryPendingInsert> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean deferred = isBatchWriteDeferred(batch.get(0).getEntity());
+        List<NativeEntryPendingInsert> toStore = new ArrayList<NativeEntryPendingInsert>(batch.size());
+        List<EntityAccess> entityAccesses = new ArrayList<EntityAccess>(batch.size());
+        List<K> storeIds = new ArrayList<K>(batch.size());
+        List<T> entries = new ArrayList<T>(batch.size());
+        for (NativeEntryPendingInsert insert : batch) {
+            runPendingOperations(insert.getPreOperations());
+            if (cancelInsert(insert.getEntity(), insert.getEntityAccess())) {
+                insert.setVetoed(true);
+                continue;
+            }
+            if (!deferred) {
+                // stored before the pre-events of the next entry fire, which may query for it
+                List<K> keys = storeEntries(insert.getEntity(),
+                        Collections.<EntityAccess>singletonList(insert.getEntityAccess()),
+                        Collections.singletonList(insert.getNativeKey()),
+                        Collections.singletonList(insert.getNativeEntry()));
+                completeInsert(insert, keys.get(0));
+                continue;
+            }
+            toStore.add(insert);
+            entityAccesses.add(insert.getEntityAccess());
+            storeIds.add(insert.getNativeKey());
+            entries.add(insert.getNativeEntry());
+        }
+        if (toStore.isEmpty()) {
+            return;
+        }
+
+        List<K> keys = storeEntries(toStore.get(0).getEntity(), entityAccesses, storeIds, entries);
+        for (int i = 0; i < toStore.size(); i++) {
+            completeInsert(toStore.get(i), keys.get(i));
+        }
+    }
+
+    private void completeInsert(NativeEntryPendingInsert insert, K key) {
+        NativeEntryModifyingEntityAccess entityAccess = (NativeEntryModifyingEntityAccess) insert.getEntityAccess();
+        entityAccess.setIdentifier(key);
+        updateTPCache(insert.getEntity(), insert.getNativeEntry(), (Serializable) key);
+        firePostInsertEvent(insert.getEntity(), entityAccess);
+        runPendingOperations(insert.getCascadeOperations());
+    }
+
+    private void executeUpdateBatch(List<NativeEntryPendingUpdate> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean deferred = isBatchWriteDeferred(batch.get(0).getEntity());
+        List<NativeEntryPendingUpdate> toUpdate = new ArrayList<NativeEntryPendingUpdate>(batch.size());
+        List<EntityAccess> entityAccesses = new ArrayList<EntityAccess>(batch.size());
+        List<K> keys = new ArrayList<K>(batch.size());
+        List<T> entries = new ArrayList<T>(batch.size());
+        for (NativeEntryPendingUpdate update : batch) {
+            runPendingOperations(update.getPreOperations());
+            if (cancelUpdate(update.getEntity(), update.getEntityAccess())) {
+                update.setVetoed(true);
+                continue;
+            }
+            if (getChangedKeys(update.getEntityAccess()) != null) {
+                executeEntryUpdate(update.getEntity(), update.getEntityAccess(), update.getNativeKey(), update.getNativeEntry());
+            }
+            else if (!deferred) {
+                updateEntries(update.getEntity(),
+                        Collections.<EntityAccess>singletonList(update.getEntityAccess()),
+                        Collections.singletonList(update.getNativeKey()),
+                        Collections.singletonList(update.getNativeEntry()));
+            }
+            else {
+                entityAccesses.add(update.getEntityAccess());
+                keys.add(update.getNativeKey());
+                entries.add(update.getNativeEntry());
+            }
+
+            if (deferred) {
+                toUpdate.add(update);
+            }
+            else {
+                completeUpdate(update);
+            }
+        }
+        if (toUpdate.isEmpty()) {
+            return;
+        }
+
+        if (!entries.isEmpty()) {
+            updateEntries(toUpdate.get(0).getEntity(), entityAccesses, keys, entries);
+        }
+        for (NativeEntryPendingUpdate update : toUpdate) {
+            completeUpdate(update);
+        }
+    }
+
+    private void completeUpdate(NativeEntryPendingUpdate update) {
+        updateTPCache(update.getEntity(), update.getNativeEntry(), (Serializable) update.getNativeKey());
+        firePostUpdateEvent(update.getEntity(), update.getEntityAccess());
+        runPendingOperations(update.getCascadeOperations());
+    }
+
+    /**
+     * Updates a single entry, writing only its changed values if they are known
+     */
+    private void executeEntryUpdate(PersistentEntity entity, EntityAccess entityAccess, K key, T entry) {
+        Set<String> changedKeys = getChangedKeys(entityAccess);
+        if (changedKeys == null) {
+            updateEntry(entity, entityAccess, key, entry);
+            return;
+        }
+
+        Map<String, Object> delta = new LinkedHashMap<String, Object>();
+        for (String changedKey : changedKeys) {
+            delta.put(changedKey, getEntryValue(entry, changedKey));
+        }
+        updateEntryDelta(entity, entityAccess, key, entry, delta);
+    }
+
+    private Set<String> getChangedKeys(EntityAccess entityAccess) {
+        if (entityAccess instanceof NativeEntryEntityPersister.NativeEntryModifyingEntityAccess) {
+            return ((NativeEntryModifyingEntityAccess) entityAccess).getChangedKeys();
+        }
+        return null;
+    }
+
+    private static void runPendingOperations(List<? extends PendingOperation> operations) {
+        for (PendingOperation operation : operations) {
+            operation.run();
+        }
+    }
+
+    /**
+     * An insert queued by this persister, which can be executed individually or as part of a batch
+     */
+    protected class NativeEntryPendingInsert extends PendingInsertAdapter<T, K> {
+
+        public NativeEntryPendingInsert(PersistentEntity entity, K nativeKey, T nativeEntry, NativeEntryModifyingEntityAccess entityAccess) {
+            super(entity, nativeKey, nativeEntry, entityAccess);
+        }
+
+        public NativeEntryEntityPersister<T, K> getPersister() {
+            return NativeEntryEntityPersister.this;
+        }
+
+        public void run() {
+            K insertResult = executeInsert(getEntity(), (NativeEntryModifyingEntityAccess) getEntityAccess(), getNativeKey(), getNativeEntry());
+            if (insertResult == null) {
+                setVetoed(true);
+            }
+        }
+    }
+
+    /**
+     * An update queued by this persister, which can be executed individually or as part of a batch
+     */
+    protected class NativeEntryPendingUpdate extends PendingUpdateAdapter<T, K> {
+
+        public NativeEntryPendingUpdate(PersistentEntity entity, K nativeKey, T nativeEntry, NativeEntryModifyingEntityAccess entityAccess) {
+            super(entity, nativeKey, nativeEntry, entityAccess);
+        }
+
+        public NativeEntryEntityPersister<T, K> getPersister() {
+            return NativeEntryEntityPersister.this;
+        }
+
+        public void run() {
+            if (cancelUpdate(getEntity(), getEntityAccess())) {
+                setVetoed(true);
+                return;
+            }
+            executeEntryUpdate(getEntity(), getEntityAccess(), getNativeKey(), getNativeEntry());
+            updateTPCache(getEntity(), getNativeEntry(), (Serializable) getNativeKey());
+            firePostUpdateEvent(getEntity(), getEntityAccess());
+        }
+    }
+
     protected class NativeEntryModifyingEntityAccess extends BeanEntityAccess {
 
         T nativeEntry;
         private Map<PersistentProperty, Object> toIndex;
+        private Set<String> changedKeys;
 
         public NativeEntryModifyingEntityAccess(PersistentEntity persistentEntity, Object entity) {
             super(persistentEntity, entity);
@@ -1652,6 +1979,9 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
                 PersistentProperty property = persistentEntity.getPropertyByName(name);
                 if (property != null && (property instanceof Simple || property instanceof Basic)) {
                     setEntryValue(nativeEntry, name, value);
+                    if (changedKeys != null) {
+                        changedKeys.add(name);
+                    }
                 }
 
                 if (toIndex != null && property != null) {
@@ -1686,6 +2016,17 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         public void setToIndex(Map<PersistentProperty, Object> toIndex) {
             this.toIndex = toIndex;
         }
+
+        /**
+         * @return The keys of the entry values written by an update that only writes changed values, otherwise null
+         */
+        public Set<String> getChangedKeys() {
+            return changedKeys;
+        }
+
+        public void setChangedKeys(Set<String> changedKeys) {
+            this.changedKeys = changedKeys;
+        }
     }
 
     public boolean isDirty(Object instance, Object entry) {
@@ -1719,7 +2060,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
         for (PersistentProperty prop : props) {
             String key = getPropertyKey(prop);
 
-            Object currentValue = entityAccess.getProperty(prop.getName());
+            Object currentValue = entityAccess.getProperty(prop);
             Object oldValue = getEntryValue(nativeEntry, key);
             if (prop instanceof Simple || prop instanceof Basic || prop instanceof ToOne) {
                 if (!areEqual(oldValue, currentValue, key)) {
@@ -64,4 +64,15 @@ public abstract class ThirdPartyCacheEntityPersister<T> extends LockableEntityPe
         }
         return null;
     }
+
+    protected void evictFromTPCache(PersistentEntity persistentEntity, Serializable id) {
+        if (cacheAdapterRepository == null) {
+            return;
+        }
+
+        TPCacheAdapter<T> cacheAdapter = cacheAdapterRepository.getTPCacheAdapter(persistentEntity);
+        if (cacheAdapter != null) {
+            cacheAdapter.evictEntry(id);
+        }
+    }
 }
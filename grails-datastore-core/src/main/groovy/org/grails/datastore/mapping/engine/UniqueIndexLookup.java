@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.engine;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implemented by {@link EntityPersister} instances whose datastore maintains a native index over a group of
+ * properties, so that the entities holding a combination of values can be looked up without executing a query.
+ *
+ * Uniqueness validation uses the lookup in place of a query for every property group the persister declares an
+ * index for, and falls back to querying otherwise.
+ *
+ * @since 7.1
+ */
+public interface UniqueIndexLookup {
+
+    /**
+     * Whether the combination of the given properties of the persisted entity can be looked up in a native index
+     *
+     * @param propertyNames The names of the properties
+     * @return True if {@link #lookupUnique(Map)} can be used for the properties
+     */
+    boolean hasUniqueIndex(List<String> propertyNames);
+
+    /**
+     * Looks up the identifiers of the entities of the persisted entity, including its subclasses, that hold all of
+     * the given values. The lookup sees the same state a query executed in the current session would, so pending
+     * changes are flushed first if the session flushes before queries.
+     *
+     * @param propertyValues The values keyed by property name. Values of to-one associations may be entities, proxies
+     *                       or identifiers and null values are not restricted on.
+     * @return The identifiers, empty if no entity holds the values
+     */
+    List<Serializable> lookupUnique(Map<String, Object> propertyValues);
+}
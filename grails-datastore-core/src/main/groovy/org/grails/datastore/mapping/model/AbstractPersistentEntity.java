@@ -246,10 +246,33 @@ public abstract class AbstractPersistentEntity<T extends Entity> implements Pers
 
 
 
+        assignOrdinals();
         propertiesInitialized = true;
         this.entityReflector = getMappingContext().getEntityReflector(this);
     }
 
+    private void assignOrdinals() {
+        if(persistentProperties == null) {
+            return;
+        }
+        // identifiers are not among the persistent properties, so they are never accessed by ordinal
+        assignOrdinal(identity, -1);
+        if(compositeIdentity != null) {
+            for (PersistentProperty property : compositeIdentity) {
+                assignOrdinal(property, -1);
+            }
+        }
+        for (int i = 0; i < persistentProperties.size(); i++) {
+            assignOrdinal(persistentProperties.get(i), i);
+        }
+    }
+
+    private void assignOrdinal(PersistentProperty property, int ordinal) {
+        if(property instanceof AbstractPersistentProperty && property.getOwner() == this) {
+            ((AbstractPersistentProperty) property).setOrdinal(ordinal);
+        }
+    }
+
     private void disableDefaultId() {
         PersistentProperty otherId = getPropertyByName(GormProperties.IDENTITY);
         if(otherId != null) {
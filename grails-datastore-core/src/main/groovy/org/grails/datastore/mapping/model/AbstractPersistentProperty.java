@@ -29,6 +29,8 @@ import org.grails.datastore.mapping.reflect.NameUtils;
  */
 @SuppressWarnings("rawtypes")
 public abstract class AbstractPersistentProperty<T extends Property> implements PersistentProperty<T> {
+    private static final int UNASSIGNED = -2;
+
     protected final PersistentEntity owner;
     protected final MappingContext context;
     protected final String name;
@@ -36,6 +38,7 @@ public abstract class AbstractPersistentProperty<T extends Property> implements
     protected Boolean inherited;
     private EntityReflector.PropertyReader reader;
     private EntityReflector.PropertyWriter writer;
+    private int ordinal = UNASSIGNED;
 
     public AbstractPersistentProperty(PersistentEntity owner, MappingContext context, PropertyDescriptor descriptor) {
         this(owner, context, descriptor.getName(), descriptor.getPropertyType());
@@ -64,6 +67,20 @@ public abstract class AbstractPersistentProperty<T extends Property> implements
         return owner;
     }
 
+    @Override
+    public int getOrdinal() {
+        return ordinal != UNASSIGNED ? ordinal : PersistentProperty.super.getOrdinal();
+    }
+
+    /**
+     * Assigned by the owner once its persistent properties are initialized
+     *
+     * @param ordinal The index of the property in the persistent properties of the owner or -1
+     */
+    void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     @Override
     public String toString() {
         String mappingType = getClass().getName();
@@ -63,4 +63,15 @@ public interface PersistentProperty<T extends Property> {
      * @return The writer for this property
      */
     EntityReflector.PropertyWriter getWriter();
+
+    /**
+     * The ordinal of the property is its index in the persistent properties of the owner, by which the
+     * {@link EntityReflector} of the owner reads and writes it without resolving the property by name
+     *
+     * @return The ordinal or -1 if the property is not one of the persistent properties of the owner
+     * @since 7.1
+     */
+    default int getOrdinal() {
+        return getOwner().getPersistentProperties().indexOf(this);
+    }
 }
@@ -14,7 +14,11 @@
  */
 package org.grails.datastore.mapping.query;
 
+import org.grails.datastore.mapping.cache.QueryCacheCapableDatastore;
+import org.grails.datastore.mapping.cache.QueryResultCache;
+import org.grails.datastore.mapping.core.Datastore;
 import org.grails.datastore.mapping.core.Session;
+import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.model.MappingContext;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.model.PersistentProperty;
@@ -586,7 +590,28 @@ public abstract class Query implements Cloneable{
             publisher.publishEvent(new PreQueryEvent(this));
         }
 
-        List results = executeQuery(entity, criteria);
+        List results = null;
+        QueryResultCache queryResultCache = getQueryResultCache();
+        Object cacheKey = null;
+        Set<PersistentEntity> cacheDependencies = null;
+        long[] generations = null;
+        if (queryResultCache != null) {
+            cacheDependencies = new LinkedHashSet<>();
+            cacheKey = createCacheKey(cacheDependencies);
+            if (cacheKey != null) {
+                results = getCachedResults(queryResultCache, cacheKey);
+                if (results == null) {
+                    generations = queryResultCache.getGenerations(cacheDependencies);
+                }
+            }
+        }
+
+        if (results == null) {
+            results = executeQuery(entity, criteria);
+            if (generations != null) {
+                cacheResults(queryResultCache, cacheKey, generations, cacheDependencies, results);
+            }
+        }
 
         if(publisher != null) {
             PostQueryEvent postQueryEvent = new PostQueryEvent(this, results);
@@ -598,6 +623,243 @@ public abstract class Query implements Cloneable{
         return results;
     }
 
+    /**
+     * @return The cache to use for the results of this query or null if they should not be cached
+     */
+    protected QueryResultCache getQueryResultCache() {
+        if (!Boolean.TRUE.equals(queryCache) || lockResult != null || session == null) {
+            return null;
+        }
+        Datastore datastore = session.getDatastore();
+        if (datastore instanceof QueryCacheCapableDatastore) {
+            return ((QueryCacheCapableDatastore) datastore).getQueryResultCache();
+        }
+        return null;
+    }
+
+    /**
+     * Creates the key that the results of this query are cached under from its criteria, projections, order and
+     * pagination. Two queries have the same key only if they are certain to return the same results.
+     *
+     * @param dependencies The set to add the entities that the results of the query depend on to
+     * @return The key or null if the results of the query cannot be cached
+     */
+    protected Object createCacheKey(Set<PersistentEntity> dependencies) {
+        dependencies.add(entity);
+        List<Object> key = new ArrayList<>();
+        key.add(entity.getName());
+        key.add(uniqueResult);
+        key.add(max);
+        key.add(offset);
+
+        List<Object> criteriaKey = new ArrayList<>();
+        for (Criterion criterion : criteria.getCriteria()) {
+            if (!appendCacheKey(entity, criterion, criteriaKey, dependencies)) {
+                return null;
+            }
+        }
+        key.add(criteriaKey);
+
+        List<Object> projectionsKey = new ArrayList<>();
+        for (Projection projection : projections.getProjectionList()) {
+            if (projection.getClass().getDeclaringClass() != Query.class) {
+                return null;
+            }
+            projectionsKey.add(projection.getClass());
+            if (projection instanceof PropertyProjection) {
+                String propertyName = ((PropertyProjection) projection).getPropertyName();
+                addCacheDependencies(entity, propertyName, dependencies);
+                projectionsKey.add(propertyName);
+            }
+        }
+        key.add(projectionsKey);
+
+        List<Object> orderKey = new ArrayList<>();
+        for (Order order : orderBy) {
+            addCacheDependencies(entity, order.getProperty(), dependencies);
+            orderKey.add(order.getProperty());
+            orderKey.add(order.getDirection());
+            orderKey.add(order.isIgnoreCase());
+        }
+        key.add(orderKey);
+        return key;
+    }
+
+    /**
+     * Adds a criterion to the key of the query. Subclasses that support criteria of their own can override this method
+     * to add them to the key.
+     *
+     * @param queriedEntity The entity the criterion applies to
+     * @param criterion The criterion
+     * @param key The key to add the criterion to
+     * @param dependencies The set to add the entities the criterion depends on to
+     * @return False if the criterion cannot be part of a key, in which case the results of the query are not cached
+     */
+    protected boolean appendCacheKey(PersistentEntity queriedEntity, Criterion criterion, List<Object> key, Set<PersistentEntity> dependencies) {
+        if (criterion instanceof AssociationQuery) {
+            AssociationQuery associationQuery = (AssociationQuery) criterion;
+            PersistentEntity associatedEntity = associationQuery.getEntity();
+            if (associatedEntity != null) {
+                dependencies.add(associatedEntity);
+            }
+            List<Object> associationKey = new ArrayList<>();
+            associationKey.add(AssociationQuery.class);
+            associationKey.add(associationQuery.getAssociation().getName());
+            for (Criterion associationCriterion : associationQuery.getCriteria().getCriteria()) {
+                if (!appendCacheKey(associatedEntity, associationCriterion, associationKey, dependencies)) {
+                    return false;
+                }
+            }
+            key.add(associationKey);
+            return true;
+        }
+        if (criterion.getClass().getDeclaringClass() != Query.class) {
+            return false;
+        }
+        if (criterion instanceof Junction) {
+            List<Object> junctionKey = new ArrayList<>();
+            junctionKey.add(criterion.getClass());
+            for (Criterion junctionCriterion : ((Junction) criterion).getCriteria()) {
+                if (!appendCacheKey(queriedEntity, junctionCriterion, junctionKey, dependencies)) {
+                    return false;
+                }
+            }
+            key.add(junctionKey);
+            return true;
+        }
+        if (!(criterion instanceof PropertyNameCriterion) || criterion instanceof SubqueryCriterion) {
+            return false;
+        }
+
+        PropertyNameCriterion propertyCriterion = (PropertyNameCriterion) criterion;
+        addCacheDependencies(queriedEntity, propertyCriterion.getProperty(), dependencies);
+        key.add(criterion.getClass());
+        key.add(propertyCriterion.getProperty());
+        if (criterion instanceof PropertyComparisonCriterion) {
+            key.add(((PropertyComparisonCriterion) criterion).getOtherProperty());
+            return true;
+        }
+        if (criterion instanceof In) {
+            In in = (In) criterion;
+            return in.getSubquery() == null && appendCacheKeyValue(new ArrayList<Object>(in.getValues()), key);
+        }
+        if (criterion instanceof Between) {
+            Between between = (Between) criterion;
+            return appendCacheKeyValue(between.getFrom(), key) && appendCacheKeyValue(between.getTo(), key);
+        }
+        if (criterion instanceof PropertyCriterion) {
+            return appendCacheKeyValue(((PropertyCriterion) criterion).getValue(), key);
+        }
+        return true;
+    }
+
+    private boolean appendCacheKeyValue(Object value, List<Object> key) {
+        if (value instanceof Collection) {
+            List<Object> valuesKey = new ArrayList<>();
+            for (Object element : (Collection) value) {
+                if (!appendCacheKeyValue(element, valuesKey)) {
+                    return false;
+                }
+            }
+            key.add(valuesKey);
+            return true;
+        }
+        value = resolveIdIfEntity(value);
+        if (value instanceof Date) {
+            key.add(value.getClass());
+            key.add(((Date) value).getTime());
+            return true;
+        }
+        if (value instanceof CharSequence) {
+            key.add(value.toString());
+            return true;
+        }
+        if (isImmutableValue(value) || value instanceof Class ||
+                (value instanceof java.time.temporal.TemporalAccessor && value.getClass().getName().startsWith("java.time."))) {
+            key.add(value);
+            return true;
+        }
+        return false;
+    }
+
+    private void addCacheDependencies(PersistentEntity queriedEntity, String propertyPath, Set<PersistentEntity> dependencies) {
+        PersistentEntity current = queriedEntity;
+        for (String propertyName : propertyPath.split("\\.")) {
+            PersistentProperty property = current != null ? current.getPropertyByName(propertyName) : null;
+            if (!(property instanceof Association)) {
+                return;
+            }
+            current = ((Association) property).getAssociatedEntity();
+            if (current != null) {
+                dependencies.add(current);
+            }
+        }
+    }
+
+    private List getCachedResults(QueryResultCache queryResultCache, Object cacheKey) {
+        if (projections.isEmpty()) {
+            List<Serializable> identifiers = queryResultCache.getIdentifiers(cacheKey);
+            if (identifiers == null) {
+                return null;
+            }
+            List results = session.retrieveAll(entity.getJavaClass(), identifiers);
+            // an entity may have been removed without an event, in which case the query is executed again
+            return results.contains(null) ? null : results;
+        }
+
+        List<Object> values = queryResultCache.getValues(cacheKey);
+        if (values == null) {
+            return null;
+        }
+        List results = new ArrayList(values.size());
+        for (Object value : values) {
+            results.add(value instanceof Object[] ? ((Object[]) value).clone() : value);
+        }
+        return results;
+    }
+
+    private void cacheResults(QueryResultCache queryResultCache, Object cacheKey, long[] generations, Set<PersistentEntity> dependencies, List results) {
+        if (projections.isEmpty()) {
+            List<Serializable> identifiers = new ArrayList<>(results.size());
+            for (Object result : results) {
+                Serializable identifier = result != null ? session.getObjectIdentifier(result) : null;
+                if (identifier == null) {
+                    return;
+                }
+                identifiers.add(identifier);
+            }
+            queryResultCache.cacheIdentifiers(cacheKey, generations, dependencies, identifiers);
+            return;
+        }
+
+        List<Object> values = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (result instanceof Object[]) {
+                Object[] row = (Object[]) result;
+                for (Object value : row) {
+                    if (!isImmutableValue(value)) {
+                        return;
+                    }
+                }
+                values.add(row.clone());
+            }
+            else if (isImmutableValue(result)) {
+                values.add(result);
+            }
+            else {
+                return;
+            }
+        }
+        queryResultCache.cacheValues(cacheKey, generations, dependencies, values);
+    }
+
+    private static boolean isImmutableValue(Object value) {
+        return value == null || value instanceof String || value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte || value instanceof Double || value instanceof Float ||
+                value instanceof java.math.BigDecimal || value instanceof java.math.BigInteger ||
+                value instanceof Boolean || value instanceof Character || value instanceof Enum || value instanceof UUID;
+    }
+
     /**
      * Here purely for compatibility
      *
@@ -696,10 +958,69 @@ public abstract class Query implements Cloneable{
     protected void flushBeforeQuery() {
         // flush before query execution in FlushModeType.AUTO
         if (session != null && session.getFlushMode() == FlushModeType.AUTO) {
+            if (session instanceof SessionImplementor && !((SessionImplementor) session).isFlushRequiredBeforeQuery(getQueriedEntities())) {
+                return;
+            }
             session.flush();
         }
     }
 
+    /**
+     * @return The queried entity, the entities of the associations the criteria join through and of the subqueries,
+     * and the entities of the associations fetched eagerly
+     */
+    protected Collection<PersistentEntity> getQueriedEntities() {
+        Set<PersistentEntity> entities = new LinkedHashSet<>();
+        entities.add(entity);
+        collectQueriedEntities(criteria.getCriteria(), entities);
+        for (Map.Entry<String, FetchType> entry : fetchStrategies.entrySet()) {
+            if (entry.getValue() == FetchType.EAGER) {
+                PersistentProperty property = entity.getPropertyByName(entry.getKey());
+                if (property instanceof Association) {
+                    PersistentEntity associatedEntity = ((Association) property).getAssociatedEntity();
+                    if (associatedEntity != null) {
+                        entities.add(associatedEntity);
+                    }
+                }
+            }
+        }
+        return entities;
+    }
+
+    private static void collectQueriedEntities(List<Criterion> criteria, Set<PersistentEntity> entities) {
+        for (Criterion criterion : criteria) {
+            if (criterion instanceof AssociationQuery) {
+                AssociationQuery associationQuery = (AssociationQuery) criterion;
+                entities.add(associationQuery.getEntity());
+                collectQueriedEntities(associationQuery.getCriteria().getCriteria(), entities);
+            }
+            else if (criterion instanceof Junction) {
+                collectQueriedEntities(((Junction) criterion).getCriteria(), entities);
+            }
+            else if (criterion instanceof In) {
+                addSubqueryEntity(((In) criterion).getSubquery(), entities);
+            }
+            else if (criterion instanceof NotIn) {
+                addSubqueryEntity(((NotIn) criterion).getSubquery(), entities);
+            }
+            else if (criterion instanceof Exists) {
+                addSubqueryEntity(((Exists) criterion).getSubquery(), entities);
+            }
+            else if (criterion instanceof NotExists) {
+                addSubqueryEntity(((NotExists) criterion).getSubquery(), entities);
+            }
+            else if (criterion instanceof PropertyCriterion && ((PropertyCriterion) criterion).getValue() instanceof QueryableCriteria) {
+                addSubqueryEntity((QueryableCriteria) ((PropertyCriterion) criterion).getValue(), entities);
+            }
+        }
+    }
+
+    private static void addSubqueryEntity(QueryableCriteria subquery, Set<PersistentEntity> entities) {
+        if (subquery != null && subquery.getPersistentEntity() != null) {
+            entities.add(subquery.getPersistentEntity());
+        }
+    }
+
     /**
      * A criterion is used to restrict the results of a query
      */
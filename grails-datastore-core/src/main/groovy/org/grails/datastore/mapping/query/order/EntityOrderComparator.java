@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.query.order;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.model.PersistentProperty;
+import org.grails.datastore.mapping.query.Query;
+import org.grails.datastore.mapping.reflect.EntityReflector;
+import org.grails.datastore.mapping.reflect.FieldEntityAccess;
+
+/**
+ * Compares instances of an entity by several {@link Query.Order} definitions at once. The first order is the primary
+ * sort key and later orders only break ties.
+ *
+ * Null values sort before non-null values. Orders on properties that are not persistent properties of the entity and
+ * values that are not {@link Comparable} do not take part in the comparison.
+ *
+ * @since 7.1
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class EntityOrderComparator implements Comparator<Object> {
+
+    private final PersistentEntity entity;
+    private final EntityReflector.PropertyReader[] readers;
+    private final boolean[] descending;
+    private final boolean[] ignoreCase;
+
+    public EntityOrderComparator(PersistentEntity entity, List<Query.Order> orders) {
+        this.entity = entity;
+        EntityReflector reflector = FieldEntityAccess.getOrIntializeReflector(entity);
+        List<Query.Order> resolvedOrders = new ArrayList<>(orders.size());
+        List<EntityReflector.PropertyReader> resolvedReaders = new ArrayList<>(orders.size());
+        for (Query.Order order : orders) {
+            PersistentProperty property = getOrderProperty(entity, order.getProperty());
+            if (property != null) {
+                resolvedOrders.add(order);
+                resolvedReaders.add(reflector.getPropertyReader(property.getName()));
+            }
+        }
+
+        int size = resolvedOrders.size();
+        this.readers = resolvedReaders.toArray(new EntityReflector.PropertyReader[size]);
+        this.descending = new boolean[size];
+        this.ignoreCase = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Query.Order order = resolvedOrders.get(i);
+            descending[i] = order.getDirection() == Query.Order.Direction.DESC;
+            ignoreCase[i] = order.isIgnoreCase();
+        }
+    }
+
+    /**
+     * @return Whether any of the orders applies to the entity
+     */
+    public boolean isOrdering() {
+        return readers.length > 0;
+    }
+
+    @Override
+    public int compare(Object o1, Object o2) {
+        if (!entity.isInstance(o1) || !entity.isInstance(o2)) {
+            return 0;
+        }
+        for (int i = 0; i < readers.length; i++) {
+            EntityReflector.PropertyReader reader = readers[i];
+            int cmp = compareValues(reader.read(o1), reader.read(o2), ignoreCase[i]);
+            if (cmp != 0) {
+                return descending[i] ? -cmp : cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareValues(Object left, Object right, boolean ignoreCase) {
+        if (left == null && right == null) return 0;
+        if (right == null) return 1;
+        if (left == null) return -1;
+        if (ignoreCase && (left instanceof String) && (right instanceof String)) {
+            return ((String) left).compareToIgnoreCase((String) right);
+        }
+        if ((left instanceof Comparable) && (right instanceof Comparable)) {
+            return ((Comparable) left).compareTo(right);
+        }
+        return 0;
+    }
+
+    private static PersistentProperty getOrderProperty(PersistentEntity entity, String name) {
+        PersistentProperty property = entity.getPropertyByName(name);
+        if (property == null) {
+            PersistentProperty identity = entity.getIdentity();
+            if (identity != null && name.equals(identity.getName())) {
+                property = identity;
+            }
+        }
+        return property;
+    }
+}
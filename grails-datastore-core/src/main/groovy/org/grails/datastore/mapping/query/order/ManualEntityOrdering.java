@@ -14,22 +14,15 @@
  */
 package org.grails.datastore.mapping.query.order;
 
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.PriorityQueue;
 
 import org.grails.datastore.mapping.model.PersistentEntity;
-import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.query.Query;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
-import org.springframework.util.ReflectionUtils;
 
 /**
  * Manual implementation of query ordering for datastores that don't support native ordering. Not all
@@ -43,7 +36,6 @@ import org.springframework.util.ReflectionUtils;
 public class ManualEntityOrdering {
 
     PersistentEntity entity;
-    private static Map<String, Method> cachedReadMethods = new ConcurrentHashMap<String, Method>();
 
     public ManualEntityOrdering(PersistentEntity entity) {
         this.entity = entity;
@@ -53,89 +45,110 @@ public class ManualEntityOrdering {
         return entity;
     }
 
+    /**
+     * Orders the results by the given orders. The first order is the primary sort key and later orders break ties.
+     *
+     * @param results The results
+     * @param orderDefinition The orders
+     * @return The ordered results
+     */
     public List applyOrder(List results, List<Query.Order> orderDefinition) {
         if (results == null) return null;
-        if (orderDefinition == null) return results;
-        for (Query.Order order : orderDefinition) {
-            results = applyOrder(results, order);
+        if (orderDefinition == null || orderDefinition.isEmpty()) return results;
+
+        EntityOrderComparator comparator = new EntityOrderComparator(getEntity(), orderDefinition);
+        if (comparator.isOrdering()) {
+            Collections.sort(results, comparator);
         }
         return results;
     }
 
+    public List applyOrder(List results, Query.Order order) {
+        return applyOrder(results, Collections.singletonList(order));
+    }
+
     /**
-     * Reverses the list.  The result is a new List with the identical contents
-     * in reverse order.
+     * Selects a page of the given items in the order of the given comparator. The result is the same as sorting all
+     * of the items with a stable sort and taking the page, but when the page is small compared to the number of
+     * items only offset + max items are held in a bounded heap.
      *
-     * @param list a List
-     * @return a reversed List
+     * @param items The items
+     * @param comparator The comparator
+     * @param offset The offset of the page
+     * @param max The maximum size of the page or -1 for no limit
+     * @param <T> The item type
+     * @return The ordered page
+     * @since 7.1
      */
-    private static List reverse(List list) {
-        int size = list.size();
-        List answer = new ArrayList(size);
-        ListIterator iter = list.listIterator(size);
-        while (iter.hasPrevious()) {
-            answer.add(iter.previous());
+    public static <T> List<T> selectOrdered(Collection<T> items, final Comparator<? super T> comparator, int offset, int max) {
+        int size = items.size();
+        int from = Math.max(offset, 0);
+        if (max == 0 || from >= size) {
+            return new ArrayList<>();
+        }
+        long limit = max < 0 ? size : (long) from + max;
+        if (limit > size / 2) {
+            List<T> sorted = new ArrayList<>(items);
+            Collections.sort(sorted, comparator);
+            return page(sorted, from, max);
         }
-        return answer;
-    }
 
-    public List applyOrder(List results, Query.Order order) {
-       final String name = order.getProperty();
-
-        final PersistentEntity entity = getEntity();
-        PersistentProperty property = entity.getPropertyByName(name);
-        if (property == null) {
-            final PersistentProperty identity = entity.getIdentity();
-            if (name.equals(identity.getName())) {
-                property = identity;
+        int bound = (int) limit;
+        // the head of the heap is the greatest item held, ties are broken by position to keep the selection stable
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(bound + 1, new Comparator<Ranked<T>>() {
+            @Override
+            public int compare(Ranked<T> r1, Ranked<T> r2) {
+                return r2.compareTo(r1, comparator);
+            }
+        });
+        int position = 0;
+        for (T item : items) {
+            Ranked<T> ranked = new Ranked<>(item, position++);
+            if (heap.size() < bound) {
+                heap.add(ranked);
+            }
+            else if (ranked.compareTo(heap.peek(), comparator) < 0) {
+                heap.poll();
+                heap.add(ranked);
             }
         }
 
-        if (property != null) {
-            final PersistentProperty finalProperty = property;
-            Collections.sort(results, new Comparator() {
-
-                public int compare(Object o1, Object o2) {
-
-                    if (entity.isInstance(o1) && entity.isInstance(o2)) {
-                        final String propertyName = finalProperty.getName();
-                        Method readMethod = cachedReadMethods.get(propertyName);
-                        if (readMethod == null) {
-                            BeanWrapper b = PropertyAccessorFactory.forBeanPropertyAccess(o1);
-                            final PropertyDescriptor pd = b.getPropertyDescriptor(propertyName);
-                            if (pd != null) {
-                                readMethod = pd.getReadMethod();
-                                if (readMethod != null) {
-                                    ReflectionUtils.makeAccessible(readMethod);
-                                    cachedReadMethods.put(propertyName, readMethod);
-                                }
-                            }
-                        }
-
-                        if (readMethod != null) {
-                            final Class<?> declaringClass = readMethod.getDeclaringClass();
-                            if (declaringClass.isInstance(o1) && declaringClass.isInstance(o2)) {
-                                Object left = ReflectionUtils.invokeMethod(readMethod, o1);
-                                Object right = ReflectionUtils.invokeMethod(readMethod, o2);
-
-                                if (left == null && right == null) return 0;
-                                if (left != null && right == null) return 1;
-                                if (left == null) return -1;
-                                if ((left instanceof Comparable) && (right instanceof Comparable)) {
-                                    return ((Comparable)left).compareTo(right);
-                                }
-                            }
-                        }
-                    }
-                    return 0;
-                }
-            });
+        Object[] selected = new Object[heap.size()];
+        for (int i = selected.length - 1; i >= 0; i--) {
+            selected[i] = heap.poll().item;
+        }
+        List<T> results = new ArrayList<>(selected.length - from);
+        for (int i = from; i < selected.length; i++) {
+            results.add((T) selected[i]);
         }
+        return results;
+    }
 
-        if (order.getDirection() == Query.Order.Direction.DESC) {
-            results = reverse(results);
+    private static <T> List<T> page(List<T> results, int offset, int max) {
+        int size = results.size();
+        int from = Math.max(offset, 0);
+        if (from == 0 && (max < 0 || max >= size)) {
+            return results;
+        }
+        if (from >= size || max == 0) {
+            return new ArrayList<>();
         }
+        int to = max < 0 ? size : (int) Math.min((long) from + max, size);
+        return new ArrayList<>(results.subList(from, to));
+    }
 
-        return results;
+    private static class Ranked<T> {
+        final T item;
+        final int position;
+
+        Ranked(T item, int position) {
+            this.item = item;
+            this.position = position;
+        }
+
+        int compareTo(Ranked<T> other, Comparator<? super T> comparator) {
+            int cmp = comparator.compare(item, other.item);
+            return cmp != 0 ? cmp : Integer.compare(position, other.position);
+        }
     }
 }
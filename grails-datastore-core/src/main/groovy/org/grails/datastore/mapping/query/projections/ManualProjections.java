@@ -18,11 +18,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import org.codehaus.groovy.runtime.DefaultGroovyMethods;
-import org.grails.datastore.mapping.engine.EntityAccess;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.query.Query;
-import org.grails.datastore.mapping.query.order.ManualEntityOrdering;
 import org.grails.datastore.mapping.reflect.EntityReflector;
 import org.grails.datastore.mapping.reflect.FieldEntityAccess;
 
@@ -35,11 +32,9 @@ import org.grails.datastore.mapping.reflect.FieldEntityAccess;
 public class ManualProjections {
 
     PersistentEntity entity;
-    private ManualEntityOrdering order;
 
     public ManualProjections(PersistentEntity entity) {
         this.entity = entity;
-        this.order = new ManualEntityOrdering(entity);
     }
 
     /**
@@ -50,16 +45,7 @@ public class ManualProjections {
      * @return The minimum value or null if there are no results
      */
     public Object min(Collection results, String property) {
-        if (results == null || results.isEmpty()) {
-            return null;
-        }
-
-        final List sorted = order.applyOrder(new ArrayList(results), Query.Order.asc(property));
-        final Object o = sorted.get(0);
-        if (entity.isInstance(o)) {
-            return FieldEntityAccess.getOrIntializeReflector(entity).getProperty(o, property);
-        }
-        return o;
+        return accumulate(results, property, new ProjectionAccumulator.Min());
     }
 
     /**
@@ -70,14 +56,11 @@ public class ManualProjections {
      * @return A count of the distinct values
      */
     public int countDistinct(Collection results, String property) {
-        Collection propertyValues = distinct(results, property);
-        return propertyValues.size();
+        return (Integer) accumulate(results, property, new ProjectionAccumulator.CountDistinct());
     }
 
     public Collection distinct(Collection results, String property) {
-        List propertyValues = property(results, property);
-
-        return DefaultGroovyMethods.unique(propertyValues);
+        return (Collection) accumulate(results, property, new ProjectionAccumulator.Values(true));
     }
 
     /**
@@ -88,16 +71,31 @@ public class ManualProjections {
      * @return The maximum value or null if there are no results
      */
     public Object max(Collection results, String property) {
-        if (results == null || results.isEmpty()) {
-            return null;
-        }
+        return accumulate(results, property, new ProjectionAccumulator.Max());
+    }
 
-        final List sorted = order.applyOrder(new ArrayList(results), Query.Order.asc(property));
-        final Object o = sorted.get(results.size()-1);
-        if (entity.isInstance(o)) {
-            return FieldEntityAccess.getOrIntializeReflector(entity).getProperty(o, property);
-        }
-        return o;
+    /**
+     * Calculates the sum of the values of a property
+     *
+     * @param results The results
+     * @param property The property to calculate
+     * @return The sum or null if there are no values
+     * @since 7.1
+     */
+    public Object sum(Collection results, String property) {
+        return accumulate(results, property, new ProjectionAccumulator.Sum());
+    }
+
+    /**
+     * Calculates the average of the values of a property
+     *
+     * @param results The results
+     * @param property The property to calculate
+     * @return The average or null if there are no values
+     * @since 7.1
+     */
+    public Object avg(Collection results, String property) {
+        return accumulate(results, property, new ProjectionAccumulator.Avg());
     }
 
     /**
@@ -108,22 +106,65 @@ public class ManualProjections {
      * @return A list of results
      */
     public List property(Collection results, String property) {
-        List projectedResults = new ArrayList();
-        if (results == null || results.isEmpty()) {
-            return projectedResults;
-        }
+        return (List) accumulate(results, property, new ProjectionAccumulator.Values(false));
+    }
 
-        for (Object o : results) {
+    /**
+     * Calculates several projections in a single pass over the results
+     *
+     * @param results The results
+     * @param projections The projections
+     * @return The result of each projection, in the order of the projections. Projections that cannot be calculated
+     * in memory have a null result
+     * @since 7.1
+     */
+    public List project(Collection results, List<Query.Projection> projections) {
+        int size = projections.size();
+        ProjectionAccumulator[] accumulators = new ProjectionAccumulator[size];
+        EntityReflector.PropertyReader[] readers = new EntityReflector.PropertyReader[size];
+        for (int i = 0; i < size; i++) {
+            Query.Projection projection = projections.get(i);
+            accumulators[i] = ProjectionAccumulator.forProjection(projection);
+            if (projection instanceof Query.PropertyProjection) {
+                readers[i] = getReader(((Query.PropertyProjection) projection).getPropertyName());
+            }
+            else if (projection instanceof Query.IdProjection && entity.getIdentity() != null) {
+                readers[i] = getReader(entity.getIdentity().getName());
+            }
+        }
 
-            EntityReflector ea = FieldEntityAccess.getOrIntializeReflector(entity);
-            if (entity.isInstance(o)) {
-                projectedResults.add(ea.getProperty(o, property));
+        if (results != null) {
+            for (Object o : results) {
+                boolean instance = entity.isInstance(o);
+                for (int i = 0; i < size; i++) {
+                    ProjectionAccumulator accumulator = accumulators[i];
+                    if (accumulator == null) {
+                        continue;
+                    }
+                    EntityReflector.PropertyReader reader = readers[i];
+                    accumulator.accumulate(reader != null && instance ? reader.read(o) : (reader != null ? null : o));
+                }
             }
-            else {
-                projectedResults.add(null);
+        }
+
+        List projected = new ArrayList(size);
+        for (ProjectionAccumulator accumulator : accumulators) {
+            projected.add(accumulator != null ? accumulator.getResult() : null);
+        }
+        return projected;
+    }
+
+    private Object accumulate(Collection results, String property, ProjectionAccumulator accumulator) {
+        if (results != null && !results.isEmpty()) {
+            EntityReflector.PropertyReader reader = getReader(property);
+            for (Object o : results) {
+                accumulator.accumulate(entity.isInstance(o) ? reader.read(o) : null);
             }
         }
+        return accumulator.getResult();
+    }
 
-        return projectedResults;
+    private EntityReflector.PropertyReader getReader(String property) {
+        return FieldEntityAccess.getOrIntializeReflector(entity).getPropertyReader(property);
     }
 }
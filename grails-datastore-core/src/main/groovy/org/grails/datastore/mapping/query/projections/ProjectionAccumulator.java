@@ -0,0 +1,355 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.query.projections;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.NumberAwareComparator;
+import org.codehaus.groovy.runtime.typehandling.NumberMath;
+import org.grails.datastore.mapping.query.Query;
+import org.grails.datastore.mapping.reflect.ValueKeys;
+
+/**
+ * Accumulates the result of a single projection while the results of a query are visited once. Sums are kept in
+ * primitive form for as long as the values allow it, and values are compared and added with Groovy semantics.
+ *
+ * Null values do not take part in aggregates, except for the row count.
+ *
+ * @since 7.1
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public abstract class ProjectionAccumulator {
+
+    /**
+     * Accumulates a value
+     *
+     * @param value The value of the projected property for a result, or the key of the result for an id projection
+     */
+    public abstract void accumulate(Object value);
+
+    /**
+     * @return The result of the projection
+     */
+    public abstract Object getResult();
+
+    /**
+     * @return A new, empty accumulator for the same projection
+     */
+    public abstract ProjectionAccumulator newInstance();
+
+    /**
+     * @return Whether the projection aggregates all values into a single result rather than producing a value per result
+     */
+    public boolean isAggregate() {
+        return true;
+    }
+
+    /**
+     * Creates an accumulator for the given projection
+     *
+     * @param projection The projection
+     * @return The accumulator or null if the projection is not supported
+     */
+    public static ProjectionAccumulator forProjection(Query.Projection projection) {
+        if (projection instanceof Query.CountProjection) {
+            return new Count();
+        }
+        if (projection instanceof Query.CountDistinctProjection) {
+            return new CountDistinct();
+        }
+        if (projection instanceof Query.MaxProjection) {
+            return new Max();
+        }
+        if (projection instanceof Query.MinProjection) {
+            return new Min();
+        }
+        if (projection instanceof Query.SumProjection) {
+            return new Sum();
+        }
+        if (projection instanceof Query.AvgProjection) {
+            return new Avg();
+        }
+        if (projection instanceof Query.DistinctPropertyProjection) {
+            return new Values(true);
+        }
+        if (projection instanceof Query.PropertyProjection || projection instanceof Query.IdProjection) {
+            return new Values(false);
+        }
+        return null;
+    }
+
+    /**
+     * Counts the results
+     */
+    public static class Count extends ProjectionAccumulator {
+        private int count;
+
+        @Override
+        public void accumulate(Object value) {
+            count++;
+        }
+
+        @Override
+        public Object getResult() {
+            return count;
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Count();
+        }
+    }
+
+    /**
+     * Counts the distinct non-null values
+     */
+    public static class CountDistinct extends ProjectionAccumulator {
+        private final Set<Object> values = new HashSet<>();
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null) {
+                values.add(ValueKeys.equalityKey(value));
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return values.size();
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new CountDistinct();
+        }
+    }
+
+    /**
+     * Sums the values. Integral and floating point values are summed as primitives, other numbers with Groovy
+     * number math.
+     */
+    public static class Sum extends ProjectionAccumulator {
+        private static final int EMPTY = 0;
+        private static final int INTEGRAL = 1;
+        private static final int FLOATING = 2;
+        private static final int NUMBER = 3;
+        private static final int OBJECT = 4;
+
+        private int mode = EMPTY;
+        private boolean onlyInts = true;
+        private long longSum;
+        private double doubleSum;
+        private Object sum;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value == null) {
+                return;
+            }
+            boolean integral = value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+            boolean floating = value instanceof Double || value instanceof Float;
+            switch (mode) {
+                case EMPTY:
+                    if (integral) {
+                        mode = INTEGRAL;
+                        longSum = ((Number) value).longValue();
+                        onlyInts = !(value instanceof Long);
+                    }
+                    else if (floating) {
+                        mode = FLOATING;
+                        doubleSum = ((Number) value).doubleValue();
+                    }
+                    else {
+                        mode = value instanceof Number ? NUMBER : OBJECT;
+                        sum = value;
+                    }
+                    return;
+                case INTEGRAL:
+                    if (integral) {
+                        longSum += ((Number) value).longValue();
+                        onlyInts &= !(value instanceof Long);
+                        return;
+                    }
+                    if (floating) {
+                        mode = FLOATING;
+                        doubleSum = longSum + ((Number) value).doubleValue();
+                        return;
+                    }
+                    break;
+                case FLOATING:
+                    if (integral || floating) {
+                        doubleSum += ((Number) value).doubleValue();
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object current = getResult();
+            if (current instanceof Number && value instanceof Number) {
+                mode = NUMBER;
+                sum = NumberMath.add((Number) current, (Number) value);
+            }
+            else {
+                mode = OBJECT;
+                sum = InvokerHelper.invokeMethod(current, "plus", value);
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            switch (mode) {
+                case EMPTY:
+                    return null;
+                case INTEGRAL:
+                    if (onlyInts && longSum >= Integer.MIN_VALUE && longSum <= Integer.MAX_VALUE) {
+                        return (int) longSum;
+                    }
+                    return longSum;
+                case FLOATING:
+                    return doubleSum;
+                default:
+                    return sum;
+            }
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Sum();
+        }
+    }
+
+    /**
+     * Averages the numeric values, dividing with Groovy number math
+     */
+    public static class Avg extends ProjectionAccumulator {
+        private final Sum sum = new Sum();
+        private int count;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null) {
+                sum.accumulate(value);
+                count++;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            Object total = sum.getResult();
+            if (count == 0 || !(total instanceof Number)) {
+                return null;
+            }
+            return NumberMath.divide((Number) total, count);
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Avg();
+        }
+    }
+
+    /**
+     * Keeps the greatest value
+     */
+    public static class Max extends ProjectionAccumulator {
+        private final NumberAwareComparator<Object> comparator = new NumberAwareComparator<>();
+        private Object max;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null && (max == null || comparator.compare(value, max) > 0)) {
+                max = value;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return max;
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Max();
+        }
+    }
+
+    /**
+     * Keeps the smallest value
+     */
+    public static class Min extends ProjectionAccumulator {
+        private final NumberAwareComparator<Object> comparator = new NumberAwareComparator<>();
+        private Object min;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null && (min == null || comparator.compare(value, min) < 0)) {
+                min = value;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return min;
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Min();
+        }
+    }
+
+    /**
+     * Collects a value per result, optionally only the distinct ones
+     */
+    public static class Values extends ProjectionAccumulator {
+        private final boolean distinct;
+        private final List<Object> values = new ArrayList<>();
+        private final Set<Object> seen;
+
+        public Values(boolean distinct) {
+            this.distinct = distinct;
+            this.seen = distinct ? new HashSet<>() : null;
+        }
+
+        @Override
+        public void accumulate(Object value) {
+            if (distinct && !seen.add(ValueKeys.equalityKey(value))) {
+                return;
+            }
+            values.add(value);
+        }
+
+        @Override
+        public Object getResult() {
+            return values;
+        }
+
+        @Override
+        public ProjectionAccumulator newInstance() {
+            return new Values(distinct);
+        }
+
+        @Override
+        public boolean isAggregate() {
+            return false;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.grails.datastore.mapping.reflect;
 
 
 import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.model.PersistentProperty;
 import org.springframework.cglib.reflect.FastClass;
 
 import java.io.Serializable;
@@ -77,6 +78,94 @@ public interface EntityReflector {
      */
     void setProperty(Object object, int index, Object value);
 
+    /**
+     * Get a property of type int for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @return The value
+     */
+    default int getIntProperty(Object object, int index) {
+        return ((Number) getProperty(object, index)).intValue();
+    }
+
+    /**
+     * Set a property of type int for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @param value  The value
+     */
+    default void setIntProperty(Object object, int index, int value) {
+        setProperty(object, index, value);
+    }
+
+    /**
+     * Get a property of type long for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @return The value
+     */
+    default long getLongProperty(Object object, int index) {
+        return ((Number) getProperty(object, index)).longValue();
+    }
+
+    /**
+     * Set a property of type long for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @param value  The value
+     */
+    default void setLongProperty(Object object, int index, long value) {
+        setProperty(object, index, value);
+    }
+
+    /**
+     * Get a property of type double for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @return The value
+     */
+    default double getDoubleProperty(Object object, int index) {
+        return ((Number) getProperty(object, index)).doubleValue();
+    }
+
+    /**
+     * Set a property of type double for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @param value  The value
+     */
+    default void setDoubleProperty(Object object, int index, double value) {
+        setProperty(object, index, value);
+    }
+
+    /**
+     * Get a property of type boolean for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @return The value
+     */
+    default boolean getBooleanProperty(Object object, int index) {
+        return (Boolean) getProperty(object, index);
+    }
+
+    /**
+     * Set a property of type boolean for the specified index, without boxing where possible
+     *
+     * @param object The object
+     * @param index The index
+     * @param value  The value
+     */
+    default void setBooleanProperty(Object object, int index, boolean value) {
+        setProperty(object, index, value);
+    }
+
     /**
      * Get a property for the specified index
      *
@@ -95,6 +184,40 @@ public interface EntityReflector {
      */
     void setProperty(Object object, String name, Object value);
 
+    /**
+     * Get a persistent property of the entity, by its ordinal if it is a property of this entity
+     *
+     * @param object The object, which has to be unwrapped from any proxy
+     * @param property The property
+     * @return The value
+     * @since 7.1
+     */
+    default Object getProperty(Object object, PersistentProperty property) {
+        int ordinal = property.getOrdinal();
+        if(ordinal > -1 && property.getOwner() == getPersitentEntity()) {
+            return getProperty(object, ordinal);
+        }
+        return getProperty(object, property.getName());
+    }
+
+    /**
+     * Set a persistent property of the entity, by its ordinal if it is a property of this entity
+     *
+     * @param object The object, which has to be unwrapped from any proxy
+     * @param property The property
+     * @param value  The value
+     * @since 7.1
+     */
+    default void setProperty(Object object, PersistentProperty property, Object value) {
+        int ordinal = property.getOrdinal();
+        if(ordinal > -1 && property.getOwner() == getPersitentEntity()) {
+            setProperty(object, ordinal, value);
+        }
+        else {
+            setProperty(object, property.getName(), value);
+        }
+    }
+
     /**
      * @param name Obtains the property reader for the given property
      *
@@ -15,6 +15,7 @@ import java.beans.PropertyDescriptor;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +72,12 @@ public class FieldEntityAccess implements EntityAccess {
         return reflector.getProperty(object, name);
     }
 
+    @Override
+    public Object getProperty(PersistentProperty property) {
+        Object object = unwrapIfProxy(persistentEntity, entity);
+        return reflector.getProperty(object, property);
+    }
+
     @Override
     public Object getPropertyValue(String name) {
         return getProperty(name);
@@ -99,6 +106,24 @@ public class FieldEntityAccess implements EntityAccess {
         writer.write(entity, converted);
     }
 
+    @Override
+    public void setProperty(PersistentProperty property, Object value) {
+        if(property.getOwner() != persistentEntity) {
+            setProperty(property.getName(), value);
+            return;
+        }
+        Class propertyType = property.getWriter().propertyType();
+        Object converted;
+        try {
+            converted = conversionService.convert(value, propertyType);
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("Cannot assign value ["+value+"] to property ["+property.getName()+"] of type ["+propertyType.getName()+"] of class ["+persistentEntity.getName()+"]. The value could not be converted to the appropriate type: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot assign value ["+value+"] to property ["+property.getName()+"] of type ["+propertyType.getName()+"] of class ["+persistentEntity.getName()+"]. The value is not an acceptable type: " + e.getMessage(), e);
+        }
+        reflector.setProperty(entity, property, converted);
+    }
+
     @Override
     public Object getIdentifier() {
         return reflector.getIdentifier(entity);
@@ -159,13 +184,15 @@ public class FieldEntityAccess implements EntityAccess {
         final PersistentEntity entity;
         final PropertyReader[] readers;
         final PropertyWriter[] writers;
-        final PropertyReader identifierReader;
-        final PropertyWriter identifierWriter;
+        PropertyReader identifierReader;
+        PropertyWriter identifierWriter;
         final String identifierName;
         final Class identifierType;
         final Map<String, PropertyReader> readerMap = new HashMap<>();
         final Map<String, PropertyWriter> writerMap = new HashMap<>();
         final Field dirtyCheckingStateField;
+        final IndexedPropertyAccessors accessors;
+        final boolean generatedPropertyAccess;
         FastClass fastClass;
 
         public FieldEntityReflector(PersistentEntity entity) {
@@ -222,6 +249,53 @@ public class FieldEntityAccess implements EntityAccess {
                 writers[i] = writer;
                 writerMap.put(propertyName, writer);
             }
+
+            Map<String, Integer> ordinals = getGeneratedPropertyOrdinals(entity.getJavaClass());
+            generatedPropertyAccess = ordinals != null;
+            // the generated accessors fall back to the reflective readers and writers for properties they cannot access
+            IndexedPropertyAccessors generated = generatedPropertyAccess ? null : PropertyAccessorsGenerator.generate(entity.getJavaClass(), readers.clone(), writers.clone());
+            if(generatedPropertyAccess) {
+                // the entity was compiled with property access, so neither reflection nor runtime generation is needed
+                for (Map.Entry<String, PropertyReader> entry : readerMap.entrySet()) {
+                    Integer ordinal = ordinals.get(entry.getKey());
+                    if(ordinal != null) {
+                        entry.setValue(new GeneratedReader(entry.getValue(), ordinal));
+                    }
+                }
+                for (Map.Entry<String, PropertyWriter> entry : writerMap.entrySet()) {
+                    Integer ordinal = ordinals.get(entry.getKey());
+                    if(ordinal != null && entry.getValue() != null) {
+                        entry.setValue(new GeneratedWriter(entry.getValue(), ordinal));
+                    }
+                }
+                if(identifierName != null) {
+                    identifierReader = readerMap.get(identifierName);
+                    identifierWriter = writerMap.get(identifierName);
+                }
+                for (int i = 0; i < properties.size(); i++) {
+                    String propertyName = properties.get(i).getName();
+                    readers[i] = readerMap.get(propertyName);
+                    if(writers[i] != null) {
+                        writers[i] = writerMap.get(propertyName);
+                    }
+                }
+                accessors = new IndexedPropertyAccessors(readers, writers);
+            }
+            else if(generated != null) {
+                accessors = generated;
+                for (int i = 0; i < properties.size(); i++) {
+                    String propertyName = properties.get(i).getName();
+                    readers[i] = new IndexedReader(readers[i], generated, i);
+                    readerMap.put(propertyName, readers[i]);
+                    if(writers[i] != null) {
+                        writers[i] = new IndexedWriter(writers[i], generated, i);
+                        writerMap.put(propertyName, writers[i]);
+                    }
+                }
+            }
+            else {
+                accessors = new IndexedPropertyAccessors(readers, writers);
+            }
         }
 
         protected String getTraitFieldName(Traits.TraitBridge traitBridge, String fieldName) {
@@ -239,8 +313,40 @@ public class FieldEntityAccess implements EntityAccess {
             return this.entity;
         }
 
+        /**
+         * Computes the ordinals of the properties the AST transformation has generated access for in the given class
+         * and its superclasses
+         *
+         * @param type The entity class
+         * @return The ordinals by property name, or null if the class was not compiled with generated property access
+         */
+        static Map<String, Integer> getGeneratedPropertyOrdinals(Class type) {
+            if(!GeneratedPropertyAccess.class.isAssignableFrom(type)) {
+                return null;
+            }
+            List<String[]> declared = new ArrayList<>();
+            for (Class current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                GeneratedPropertyAccess.Properties properties = (GeneratedPropertyAccess.Properties) current.getDeclaredAnnotation(GeneratedPropertyAccess.Properties.class);
+                if(properties != null) {
+                    declared.add(0, properties.value());
+                }
+            }
+            // the ordinals of the fields of a class follow those of its superclasses, and a field hides the field of the same name of a superclass
+            Map<String, Integer> ordinals = new HashMap<>();
+            int ordinal = 0;
+            for (String[] names : declared) {
+                for (String name : names) {
+                    ordinals.put(name, ordinal++);
+                }
+            }
+            return ordinals;
+        }
+
         @Override
         public Map<String, Object> getDirtyCheckingState(Object entity) {
+            if(generatedPropertyAccess && entity instanceof DirtyCheckable) {
+                return ((DirtyCheckable) entity).$getChangedProperties();
+            }
             if(dirtyCheckingStateField != null) {
                 try {
                     return (Map<String, Object>) dirtyCheckingStateField.get(entity);
@@ -323,12 +429,214 @@ public class FieldEntityAccess implements EntityAccess {
 
         @Override
         public Object getProperty(Object object, int index) {
-            return readers[index].read(object);
+            return accessors.get(object, index);
         }
 
         @Override
         public void setProperty(Object object, int index, Object value) {
-            writers[index].write(object,value);
+            writers[index].write(object, value);
+        }
+
+        @Override
+        public int getIntProperty(Object object, int index) {
+            return accessors.getInt(object, index);
+        }
+
+        @Override
+        public void setIntProperty(Object object, int index, int value) {
+            accessors.setInt(object, index, value);
+        }
+
+        @Override
+        public long getLongProperty(Object object, int index) {
+            return accessors.getLong(object, index);
+        }
+
+        @Override
+        public void setLongProperty(Object object, int index, long value) {
+            accessors.setLong(object, index, value);
+        }
+
+        @Override
+        public double getDoubleProperty(Object object, int index) {
+            return accessors.getDouble(object, index);
+        }
+
+        @Override
+        public void setDoubleProperty(Object object, int index, double value) {
+            accessors.setDouble(object, index, value);
+        }
+
+        @Override
+        public boolean getBooleanProperty(Object object, int index) {
+            return accessors.getBoolean(object, index);
+        }
+
+        @Override
+        public void setBooleanProperty(Object object, int index, boolean value) {
+            accessors.setBoolean(object, index, value);
+        }
+
+        /**
+         * Reads a property through the generated accessors, keeping the field and getter of the reflective reader
+         */
+        static class IndexedReader implements PropertyReader {
+            final PropertyReader reader;
+            final IndexedPropertyAccessors accessors;
+            final int index;
+
+            IndexedReader(PropertyReader reader, IndexedPropertyAccessors accessors, int index) {
+                this.reader = reader;
+                this.accessors = accessors;
+                this.index = index;
+            }
+
+            @Override
+            public Field field() {
+                return reader.field();
+            }
+
+            @Override
+            public Method getter() {
+                return reader.getter();
+            }
+
+            @Override
+            public Class propertyType() {
+                return reader.propertyType();
+            }
+
+            @Override
+            public Object read(Object object) {
+                return accessors.get(object, index);
+            }
+        }
+
+        /**
+         * Writes a property through the generated accessors, keeping the field and setter of the reflective writer
+         */
+        static class IndexedWriter implements PropertyWriter {
+            final PropertyWriter writer;
+            final IndexedPropertyAccessors accessors;
+            final int index;
+
+            IndexedWriter(PropertyWriter writer, IndexedPropertyAccessors accessors, int index) {
+                this.writer = writer;
+                this.accessors = accessors;
+                this.index = index;
+            }
+
+            @Override
+            public Field field() {
+                return writer.field();
+            }
+
+            @Override
+            public Method setter() {
+                return writer.setter();
+            }
+
+            @Override
+            public Class propertyType() {
+                return writer.propertyType();
+            }
+
+            @Override
+            public void write(Object object, Object value) {
+                try {
+                    accessors.set(object, index, value);
+                } catch (ClassCastException | NullPointerException e) {
+                    throw writeFailure(e, propertyType(), object, value);
+                }
+            }
+        }
+
+        /**
+         * Reads a property through the methods the AST transformation generated for the entity, keeping the field and
+         * getter of the reflective reader
+         */
+        static class GeneratedReader implements PropertyReader {
+            final PropertyReader reader;
+            final int ordinal;
+
+            GeneratedReader(PropertyReader reader, int ordinal) {
+                this.reader = reader;
+                this.ordinal = ordinal;
+            }
+
+            @Override
+            public Field field() {
+                return reader.field();
+            }
+
+            @Override
+            public Method getter() {
+                return reader.getter();
+            }
+
+            @Override
+            public Class propertyType() {
+                return reader.propertyType();
+            }
+
+            @Override
+            public Object read(Object object) {
+                return ((GeneratedPropertyAccess) object).$getPropertyValue(ordinal);
+            }
+        }
+
+        /**
+         * Writes a property through the methods the AST transformation generated for the entity, keeping the field and
+         * setter of the reflective writer
+         */
+        static class GeneratedWriter implements PropertyWriter {
+            final PropertyWriter writer;
+            final int ordinal;
+
+            GeneratedWriter(PropertyWriter writer, int ordinal) {
+                this.writer = writer;
+                this.ordinal = ordinal;
+            }
+
+            @Override
+            public Field field() {
+                return writer.field();
+            }
+
+            @Override
+            public Method setter() {
+                return writer.setter();
+            }
+
+            @Override
+            public Class propertyType() {
+                return writer.propertyType();
+            }
+
+            @Override
+            public void write(Object object, Object value) {
+                try {
+                    ((GeneratedPropertyAccess) object).$setPropertyValue(ordinal, value);
+                } catch (ClassCastException | NullPointerException e) {
+                    throw writeFailure(e, propertyType(), object, value);
+                }
+            }
+        }
+
+        /**
+         * Converts the exception of a write that did not go through reflection to the one a field write would throw
+         */
+        private static RuntimeException writeFailure(RuntimeException e, Class propertyType, Object object, Object value) {
+            if(value == null) {
+                if(!propertyType.isPrimitive()) {
+                    return e;
+                }
+                return new IllegalArgumentException("Cannot set property of primitive type ["+propertyType.getName()+"] of object ["+object+"] to null", e);
+            }
+            if(e instanceof ClassCastException) {
+                return new IllegalArgumentException("Cannot set property of type ["+propertyType.getName()+"] of object ["+object+"] for value ["+value+"] of type ["+value.getClass().getName()+"]", e);
+            }
+            return e;
         }
 
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Implemented by entities the GORM AST transformation has generated property access for at compile time. The
+ * generated methods read and write the fields of the entity by an ordinal, so the {@link EntityReflector} of the entity
+ * needs neither reflection nor runtime class generation to access them.</p>
+ *
+ * <p>Every class of the hierarchy the transformation has been applied to is annotated with {@link Properties}, listing
+ * the names of the fields it declares in the order of their ordinals. The ordinals of a class follow those of its
+ * superclasses, which the generated methods delegate the lower ordinals to, so an ordinal refers to the same field in
+ * instances of subclasses.</p>
+ *
+ * @since 7.1
+ */
+public interface GeneratedPropertyAccess {
+
+    /**
+     * @param ordinal The ordinal of the property
+     * @return The value of the field of the property
+     */
+    Object $getPropertyValue(int ordinal);
+
+    /**
+     * @param ordinal The ordinal of the property
+     * @param value The value to assign to the field of the property
+     */
+    void $setPropertyValue(int ordinal, Object value);
+
+    /**
+     * The names of the properties a class declares, in the order of their ordinals
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @interface Properties {
+        String[] value();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Reads and writes the properties of an entity by their index through the readers and writers of its reflector.
+ * The subclass generated for an entity by {@link PropertyAccessorsGenerator} overrides these methods with a switch on
+ * the index, where every case invokes a constant method handle of the field or accessor method, so the JIT compiles an
+ * access to a direct field access or call. The primitive variants then read and write properties of primitive types
+ * without boxing.</p>
+ *
+ * <p>Properties the generated class has no case for are still accessed through the readers and writers.</p>
+ *
+ * @since 7.1
+ */
+public class IndexedPropertyAccessors {
+
+    private static final Map<String, MethodHandle[]> HANDLES = new ConcurrentHashMap<>();
+
+    private final EntityReflector.PropertyReader[] readers;
+    private final EntityReflector.PropertyWriter[] writers;
+
+    public IndexedPropertyAccessors(EntityReflector.PropertyReader[] readers, EntityReflector.PropertyWriter[] writers) {
+        this.readers = readers;
+        this.writers = writers;
+    }
+
+    public Object get(Object object, int index) {
+        return readers[index].read(object);
+    }
+
+    public void set(Object object, int index, Object value) {
+        writers[index].write(object, value);
+    }
+
+    public int getInt(Object object, int index) {
+        return ((Number) get(object, index)).intValue();
+    }
+
+    public void setInt(Object object, int index, int value) {
+        set(object, index, value);
+    }
+
+    public long getLong(Object object, int index) {
+        return ((Number) get(object, index)).longValue();
+    }
+
+    public void setLong(Object object, int index, long value) {
+        set(object, index, value);
+    }
+
+    public double getDouble(Object object, int index) {
+        return ((Number) get(object, index)).doubleValue();
+    }
+
+    public void setDouble(Object object, int index, double value) {
+        set(object, index, value);
+    }
+
+    public boolean getBoolean(Object object, int index) {
+        return (Boolean) get(object, index);
+    }
+
+    public void setBoolean(Object object, int index, boolean value) {
+        set(object, index, value);
+    }
+
+    /**
+     * Registers the method handles a generated class assigns to its constants once it is initialized
+     */
+    static void registerHandles(String className, MethodHandle[] handles) {
+        HANDLES.put(className, handles);
+    }
+
+    static void discardHandles(String className) {
+        HANDLES.remove(className);
+    }
+
+    /**
+     * Called by the static initializer of a generated class to obtain the method handles of its constants
+     *
+     * @param className The name of the generated class
+     * @return The method handles
+     */
+    public static MethodHandle[] takeHandles(String className) {
+        MethodHandle[] handles = HANDLES.remove(className);
+        if (handles == null) {
+            throw new IllegalStateException("No method handles registered for generated class [" + className + "]");
+        }
+        return handles;
+    }
+}
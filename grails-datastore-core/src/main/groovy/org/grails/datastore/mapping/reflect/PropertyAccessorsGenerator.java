@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * Generates the {@link IndexedPropertyAccessors} of an entity. Every property is read and written through a method
+ * handle of the field or accessor method that the reflective reader or writer uses, held in a static final field of
+ * the generated class, so that the handle is a constant the JIT can inline.
+ *
+ * @since 7.1
+ */
+final class PropertyAccessorsGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PropertyAccessorsGenerator.class);
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final String BASE_NAME = Type.getInternalName(IndexedPropertyAccessors.class);
+    private static final String HANDLE_NAME = Type.getInternalName(MethodHandle.class);
+    private static final String HANDLE_DESCRIPTOR = Type.getDescriptor(MethodHandle.class);
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final Class[] PRIMITIVE_TYPES = { int.class, long.class, double.class, boolean.class };
+    private static final String[] PRIMITIVE_NAMES = { "Int", "Long", "Double", "Boolean" };
+
+    private PropertyAccessorsGenerator() {
+    }
+
+    /**
+     * @param entityClass The class of the entity
+     * @param readers The readers of the properties, by index
+     * @param writers The writers of the properties, by index
+     * @return The generated accessors, or null if they could not be generated
+     */
+    static IndexedPropertyAccessors generate(Class entityClass, EntityReflector.PropertyReader[] readers, EntityReflector.PropertyWriter[] writers) {
+        String className = entityClass.getName() + "$$PropertyAccessors" + COUNTER.incrementAndGet();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            List<MethodHandle> handles = new ArrayList<>();
+            int count = readers.length;
+            int[] getters = new int[count];
+            int[] setters = new int[count];
+            int[][] primitiveGetters = new int[PRIMITIVE_TYPES.length][count];
+            int[][] primitiveSetters = new int[PRIMITIVE_TYPES.length][count];
+            Arrays.fill(getters, -1);
+            Arrays.fill(setters, -1);
+            for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+                Arrays.fill(primitiveGetters[i], -1);
+                Arrays.fill(primitiveSetters[i], -1);
+            }
+
+            for (int index = 0; index < count; index++) {
+                MethodHandle getter = readHandle(lookup, readers[index]);
+                if (getter != null) {
+                    getters[index] = add(handles, getter.asType(MethodType.methodType(Object.class, Object.class)));
+                    int primitive = primitiveIndex(getter.type().returnType());
+                    if (primitive > -1) {
+                        primitiveGetters[primitive][index] = add(handles, getter.asType(MethodType.methodType(PRIMITIVE_TYPES[primitive], Object.class)));
+                    }
+                }
+                MethodHandle setter = writeHandle(lookup, writers[index]);
+                if (setter != null) {
+                    setters[index] = add(handles, setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                    int primitive = primitiveIndex(setter.type().parameterType(1));
+                    if (primitive > -1) {
+                        primitiveSetters[primitive][index] = add(handles, setter.asType(MethodType.methodType(void.class, Object.class, PRIMITIVE_TYPES[primitive])));
+                    }
+                }
+            }
+            if (handles.isEmpty()) {
+                return null;
+            }
+
+            String internalName = className.replace('.', '/');
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, internalName, null, BASE_NAME, null);
+            for (int i = 0; i < handles.size(); i++) {
+                cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, handleName(i), HANDLE_DESCRIPTOR, null, null).visitEnd();
+            }
+            writeStaticInitializer(cw, internalName, className, handles.size());
+            writeConstructor(cw);
+            writeGetter(cw, internalName, "get", OBJECT_TYPE, getters);
+            writeSetter(cw, internalName, "set", OBJECT_TYPE, setters);
+            for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+                Type type = Type.getType(PRIMITIVE_TYPES[i]);
+                writeGetter(cw, internalName, "get" + PRIMITIVE_NAMES[i], type, primitiveGetters[i]);
+                writeSetter(cw, internalName, "set" + PRIMITIVE_NAMES[i], type, primitiveSetters[i]);
+            }
+            cw.visitEnd();
+
+            IndexedPropertyAccessors.registerHandles(className, handles.toArray(new MethodHandle[0]));
+            Class<?> generated = new AccessorsClassLoader(IndexedPropertyAccessors.class.getClassLoader()).define(className, cw.toByteArray());
+            return (IndexedPropertyAccessors) generated
+                    .getConstructor(EntityReflector.PropertyReader[].class, EntityReflector.PropertyWriter[].class)
+                    .newInstance(readers, writers);
+        } catch (Throwable e) {
+            IndexedPropertyAccessors.discardHandles(className);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Could not generate property accessors of [" + entityClass.getName() + "], reflection is used instead: " + e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    private static MethodHandle readHandle(MethodHandles.Lookup lookup, EntityReflector.PropertyReader reader) {
+        if (reader == null) {
+            return null;
+        }
+        try {
+            Field field = reader.field();
+            if (field != null) {
+                return isInstanceMember(field) ? lookup.unreflectGetter(field) : null;
+            }
+            Method getter = reader.getter();
+            return getter != null && isInstanceMember(getter) && getter.getParameterCount() == 0 ? lookup.unreflect(getter) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle writeHandle(MethodHandles.Lookup lookup, EntityReflector.PropertyWriter writer) {
+        if (writer == null) {
+            return null;
+        }
+        try {
+            Field field = writer.field();
+            if (field != null) {
+                return isInstanceMember(field) ? lookup.unreflectSetter(field) : null;
+            }
+            Method setter = writer.setter();
+            return setter != null && isInstanceMember(setter) && setter.getParameterCount() == 1 ? lookup.unreflect(setter) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static boolean isInstanceMember(Member member) {
+        return !Modifier.isStatic(member.getModifiers());
+    }
+
+    private static int primitiveIndex(Class type) {
+        for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+            if (PRIMITIVE_TYPES[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int add(List<MethodHandle> handles, MethodHandle handle) {
+        handles.add(handle);
+        return handles.size() - 1;
+    }
+
+    private static String handleName(int index) {
+        return "handle" + index;
+    }
+
+    private static void writeStaticInitializer(ClassWriter cw, String internalName, String className, int handleCount) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(className);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, BASE_NAME, "takeHandles", "(Ljava/lang/String;)[" + HANDLE_DESCRIPTOR, false);
+        mv.visitVarInsn(Opcodes.ASTORE, 0);
+        for (int i = 0; i < handleCount; i++) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitLdcInsn(i);
+            mv.visitInsn(Opcodes.AALOAD);
+            mv.visitFieldInsn(Opcodes.PUTSTATIC, internalName, handleName(i), HANDLE_DESCRIPTOR);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeConstructor(ClassWriter cw) {
+        String descriptor = Type.getMethodDescriptor(Type.VOID_TYPE,
+                Type.getType(EntityReflector.PropertyReader[].class), Type.getType(EntityReflector.PropertyWriter[].class));
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", descriptor, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, BASE_NAME, "<init>", descriptor, false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Writes {@code T name(Object object, int index)}, which invokes the handle of the index or the method of the
+     * base class for indexes without a handle
+     */
+    private static void writeGetter(ClassWriter cw, String internalName, String name, Type valueType, int[] handles) {
+        if (!hasHandle(handles)) {
+            return;
+        }
+        String descriptor = Type.getMethodDescriptor(valueType, OBJECT_TYPE, Type.INT_TYPE);
+        String invokeDescriptor = Type.getMethodDescriptor(valueType, OBJECT_TYPE);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null);
+        mv.visitCode();
+        Label fallback = new Label();
+        Label[] cases = visitSwitch(mv, handles, fallback);
+        for (int index = 0; index < handles.length; index++) {
+            if (handles[index] > -1) {
+                mv.visitLabel(cases[index]);
+                mv.visitFieldInsn(Opcodes.GETSTATIC, internalName, handleName(handles[index]), HANDLE_DESCRIPTOR);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLE_NAME, "invokeExact", invokeDescriptor, false);
+                mv.visitInsn(valueType.getOpcode(Opcodes.IRETURN));
+            }
+        }
+        mv.visitLabel(fallback);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, BASE_NAME, name, descriptor, false);
+        mv.visitInsn(valueType.getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Writes {@code void name(Object object, int index, T value)}, which invokes the handle of the index or the method
+     * of the base class for indexes without a handle
+     */
+    private static void writeSetter(ClassWriter cw, String internalName, String name, Type valueType, int[] handles) {
+        if (!hasHandle(handles)) {
+            return;
+        }
+        String descriptor = Type.getMethodDescriptor(Type.VOID_TYPE, OBJECT_TYPE, Type.INT_TYPE, valueType);
+        String invokeDescriptor = Type.getMethodDescriptor(Type.VOID_TYPE, OBJECT_TYPE, valueType);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null);
+        mv.visitCode();
+        Label fallback = new Label();
+        Label[] cases = visitSwitch(mv, handles, fallback);
+        for (int index = 0; index < handles.length; index++) {
+            if (handles[index] > -1) {
+                mv.visitLabel(cases[index]);
+                mv.visitFieldInsn(Opcodes.GETSTATIC, internalName, handleName(handles[index]), HANDLE_DESCRIPTOR);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitVarInsn(valueType.getOpcode(Opcodes.ILOAD), 3);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLE_NAME, "invokeExact", invokeDescriptor, false);
+                mv.visitInsn(Opcodes.RETURN);
+            }
+        }
+        mv.visitLabel(fallback);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitVarInsn(valueType.getOpcode(Opcodes.ILOAD), 3);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, BASE_NAME, name, descriptor, false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static Label[] visitSwitch(MethodVisitor mv, int[] handles, Label fallback) {
+        Label[] cases = new Label[handles.length];
+        for (int index = 0; index < handles.length; index++) {
+            cases[index] = handles[index] > -1 ? new Label() : fallback;
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitTableSwitchInsn(0, handles.length - 1, fallback, cases);
+        return cases;
+    }
+
+    private static boolean hasHandle(int[] handles) {
+        for (int handle : handles) {
+            if (handle > -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Defines a single generated class. The class only refers to the classes of this library, so the class loader of
+     * the library is its parent.
+     */
+    private static final class AccessorsClassLoader extends ClassLoader {
+
+        AccessorsClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
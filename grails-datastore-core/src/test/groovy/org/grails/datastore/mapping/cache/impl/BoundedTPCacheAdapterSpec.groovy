@@ -0,0 +1,83 @@
+package org.grails.datastore.mapping.cache.impl
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class BoundedTPCacheAdapterSpec extends Specification {
+
+    void "the least recently used entry is evicted once the maximum size is reached"() {
+        given:
+        def cache = new BoundedTPCacheAdapter<String>(2)
+
+        when:
+        cache.cacheEntry(1L, 'one')
+        cache.cacheEntry(2L, 'two')
+        cache.getCachedEntry(1L)
+        cache.cacheEntry(3L, 'three')
+
+        then:
+        cache.size == 2
+        cache.evictionCount == 1
+        cache.getCachedEntry(1L) == 'one'
+        cache.getCachedEntry(2L) == null
+        cache.getCachedEntry(3L) == 'three'
+        cache.hitCount == 3
+        cache.missCount == 1
+    }
+
+    void "entries expire once their time to live has passed"() {
+        given:
+        def clock = [now: 1000L]
+        def cache = new BoundedTPCacheAdapter<String>(10, 5, TimeUnit.SECONDS) {
+            @Override
+            protected long currentTimeMillis() {
+                clock.now
+            }
+        }
+        cache.cacheEntry(1L, 'one')
+
+        expect:
+        cache.getCachedEntry(1L) == 'one'
+
+        when:
+        clock.now += 5000
+
+        then:
+        cache.getCachedEntry(1L) == null
+        cache.expirationCount == 1
+        cache.size == 0
+    }
+
+    void "entries can be evicted individually or all at once"() {
+        given:
+        def cache = new BoundedTPCacheAdapter<String>(10)
+        cache.cacheEntry(1L, 'one')
+        cache.cacheEntry(2L, 'two')
+
+        when:
+        cache.evictEntry(1L)
+
+        then:
+        cache.getCachedEntry(1L) == null
+        cache.getCachedEntry(2L) == 'two'
+
+        when:
+        cache.invalidate()
+        cache.resetStatistics()
+
+        then:
+        cache.getCachedEntry(2L) == null
+        cache.size == 0
+        cache.missCount == 1
+        cache.hitCount == 0
+    }
+
+    void "an invalid maximum size is rejected"() {
+        when:
+        new BoundedTPCacheAdapter<String>(0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,91 @@
+package org.grails.datastore.mapping.core
+
+import spock.lang.Specification
+
+class DefaultSessionIdentityMapSpec extends Specification {
+
+    void "the instance and native entries of an identifier share a slot"() {
+        given:
+        def map = new DefaultSessionIdentityMap()
+
+        when:
+        map.putInstance(String, 1L, 'one')
+        map.putEntry(String, 1L, [name: 'one'], false)
+        map.putEntry(String, 1L, [name: 'snapshot'], true)
+        map.putInstance(String, 'a', 'a')
+
+        then:
+        map.size() == 2
+        map.size(String) == 2
+        map.sizes == [(String): 2]
+        map.getInstance(String, 1L) == 'one'
+        map.getEntry(String, 1L, false) == [name: 'one']
+        map.getEntry(String, 1L, true) == [name: 'snapshot']
+        map.getInstance(String, 'a') == 'a'
+        map.getInstance(String, 1) == null
+        map.getInstance(Integer, 1L) == null
+    }
+
+    void "removing the instance keeps the native entries"() {
+        given:
+        def map = new DefaultSessionIdentityMap()
+        map.putInstance(String, 1L, 'one')
+        map.putEntry(String, 1L, [name: 'one'], false)
+
+        when:
+        map.removeInstance(String, 1L)
+
+        then:
+        !map.containsInstance(String, 1L)
+        map.getEntry(String, 1L, false) == [name: 'one']
+        map.size() == 1
+
+        when:
+        map.remove(String, 1L)
+
+        then:
+        map.getEntry(String, 1L, false) == null
+        map.size() == 0
+    }
+
+    void "removing a native entry keeps the instance and the other entry"() {
+        given:
+        def map = new DefaultSessionIdentityMap()
+        map.putInstance(String, 1L, 'one')
+        map.putEntry(String, 1L, [name: 'one'], false)
+        map.putEntry(String, 'a', [name: 'a'], true)
+
+        when:
+        map.removeEntry(String, 1L, false)
+        map.removeEntry(String, 'a', true)
+
+        then:
+        map.getInstance(String, 1L) == 'one'
+        map.getEntry(String, 1L, false) == null
+        map.getKeys(String) == [1L] as Set
+        map.getKeys(Integer).isEmpty()
+    }
+
+    void "long identifiers remain reachable as the table grows and shrinks"() {
+        given:
+        def map = new DefaultSessionIdentityMap()
+        def ids = (1L..1000L).collect { it * 16 }
+
+        when:
+        ids.each { map.putInstance(String, it, it.toString()) }
+        ids.findAll { it % 3 == 0 }.each { map.remove(String, it) }
+
+        then:
+        ids.every { id -> map.getInstance(String, id) == (id % 3 == 0 ? null : id.toString()) }
+        map.size() == ids.count { it % 3 != 0 }
+        map.containsInstanceValue(String, '32')
+        !map.containsInstanceValue(String, '48')
+
+        when:
+        map.clear()
+
+        then:
+        map.size() == 0
+        map.getInstance(String, 32L) == null
+    }
+}
@@ -0,0 +1,45 @@
+package org.grails.datastore.mapping.query.order
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ManualEntityOrderingSpec extends Specification {
+
+    @Unroll
+    void "selectOrdered with offset #offset and max #max matches sorting and paging"(int offset, int max) {
+        given:
+        def random = new Random(42)
+        List<Integer> items = (1..200).collect { random.nextInt(50) }
+        Comparator<Integer> comparator = { Integer a, Integer b -> a <=> b } as Comparator<Integer>
+
+        when:
+        List<Integer> expected = items.sort(false)
+        expected = offset >= expected.size() ? [] : expected.subList(offset, max < 0 ? expected.size() : Math.min(offset + max, expected.size()))
+
+        then:
+        ManualEntityOrdering.selectOrdered(items, comparator, offset, max) == expected
+
+        where:
+        offset | max
+        0      | 10
+        5      | 10
+        0      | 1
+        90     | 10
+        0      | 150
+        0      | -1
+        195    | 10
+        300    | 10
+        0      | 0
+    }
+
+    void "selectOrdered keeps equal items in their original order"() {
+        given:
+        def items = [[k: 2, n: 'a'], [k: 1, n: 'b'], [k: 2, n: 'c'], [k: 1, n: 'd'], [k: 3, n: 'e'], [k: 1, n: 'f'],
+                     [k: 2, n: 'g'], [k: 3, n: 'h'], [k: 1, n: 'i'], [k: 2, n: 'j']]
+        Comparator comparator = { a, b -> a.k <=> b.k } as Comparator
+
+        expect:
+        ManualEntityOrdering.selectOrdered(items, comparator, 0, 3)*.n == ['b', 'd', 'f']
+        ManualEntityOrdering.selectOrdered(items, comparator, 2, 3)*.n == ['f', 'i', 'a']
+    }
+}
@@ -0,0 +1,49 @@
+package org.grails.datastore.mapping.query.projections
+
+import org.grails.datastore.mapping.query.Projections
+import org.grails.datastore.mapping.query.Query
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ProjectionAccumulatorSpec extends Specification {
+
+    @Unroll
+    void "#projection.class.simpleName of #values is #expected"(Query.Projection projection, List values, Object expected) {
+        given:
+        def accumulator = ProjectionAccumulator.forProjection(projection)
+
+        when:
+        values.each { accumulator.accumulate(it) }
+
+        then:
+        accumulator.result == expected
+        accumulator.result?.getClass() == expected?.getClass()
+
+        where:
+        projection                      | values                 | expected
+        Projections.count()             | [1, null, 3]           | 3
+        Projections.countDistinct('p')  | [1, 1L, null, 2]       | 2
+        Projections.sum('p')            | [1, 2, null, 3]        | 6
+        Projections.sum('p')            | [1, 2L]                | 3L
+        Projections.sum('p')            | [Integer.MAX_VALUE, 1] | Integer.MAX_VALUE + 1L
+        Projections.sum('p')            | [1, 2.5d]              | 3.5d
+        Projections.sum('p')            | [1, 2.5G]              | 3.5G
+        Projections.sum('p')            | []                     | null
+        Projections.avg('p')            | [1, 2]                 | 1.5G
+        Projections.avg('p')            | [null]                 | null
+        Projections.max('p')            | [3, null, 7L, 5]       | 7L
+        Projections.min('p')            | ['b', 'a', null, 'c']  | 'a'
+        Projections.distinct('p')       | [1, 1L, 2, null, null] | [1, 2, null]
+        Projections.property('p')       | [1, 1, null]           | [1, 1, null]
+    }
+
+    void "newInstance creates an empty accumulator"() {
+        given:
+        def accumulator = new ProjectionAccumulator.Sum()
+        accumulator.accumulate(5)
+
+        expect:
+        accumulator.newInstance().result == null
+        accumulator.result == 5
+    }
+}
@@ -3,6 +3,7 @@ package org.grails.datastore.mapping.reflect
 import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext
 import org.grails.datastore.mapping.model.MappingContext
 import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.model.PersistentProperty
 import spock.lang.Specification
 
 /**
@@ -18,6 +19,63 @@ class EntityReflectorSpec extends Specification {
         then:"the property from the trait can be reflected"
         entity.reflector.getPropertyReader('bar').read(new Bar(bar: "test")) == 'test'
     }
+
+    void "test read and write properties by index through the generated accessors"() {
+        given:
+        MappingContext mappingContext = new KeyValueMappingContext("test")
+        PersistentEntity entity = mappingContext.addPersistentEntity(Counter)
+        EntityReflector reflector = entity.reflector
+        int count = entity.persistentProperties.findIndexOf { it.name == 'count' }
+        int total = entity.persistentProperties.findIndexOf { it.name == 'total' }
+        int active = entity.persistentProperties.findIndexOf { it.name == 'active' }
+        int name = entity.persistentProperties.findIndexOf { it.name == 'name' }
+        def counter = new Counter()
+
+        when:
+        reflector.setIntProperty(counter, count, 3)
+        reflector.setLongProperty(counter, total, 10L)
+        reflector.setBooleanProperty(counter, active, true)
+        reflector.setProperty(counter, name, "hits")
+
+        then:
+        counter.count == 3
+        counter.total == 10L
+        counter.active
+        counter.name == "hits"
+        reflector.getIntProperty(counter, count) == 3
+        reflector.getLongProperty(counter, total) == 10L
+        reflector.getBooleanProperty(counter, active)
+        reflector.getProperty(counter, count) == 3
+        reflector.getProperty(counter, name) == "hits"
+        reflector.getPropertyReader('count').read(counter) == 3
+        reflector.getPropertyReader('count').field().name == 'count'
+        reflector.accessors.class.name.startsWith(Counter.name + '$$PropertyAccessors')
+
+        when:"a primitive property is set to null"
+        reflector.getPropertyWriter('count').write(counter, null)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    void "test read and write properties by the ordinal of the persistent property"() {
+        given:
+        MappingContext mappingContext = new KeyValueMappingContext("test")
+        PersistentEntity entity = mappingContext.addPersistentEntity(Counter)
+        EntityReflector reflector = entity.reflector
+        PersistentProperty name = entity.getPropertyByName('name')
+        def counter = new Counter()
+
+        when:
+        reflector.setProperty(counter, name, "hits")
+        mappingContext.createEntityAccess(entity, counter).setProperty(entity.getPropertyByName('count'), "5")
+
+        then:
+        entity.persistentProperties*.ordinal == (0..<entity.persistentProperties.size()).toList()
+        entity.identity.ordinal == -1
+        reflector.getProperty(counter, name) == "hits"
+        counter.count == 5
+    }
 }
 
 trait Foo {
@@ -27,3 +85,11 @@ trait Foo {
 class Bar implements Foo {
     String name
 }
+
+class Counter {
+    Long id
+    String name
+    int count
+    long total
+    boolean active
+}
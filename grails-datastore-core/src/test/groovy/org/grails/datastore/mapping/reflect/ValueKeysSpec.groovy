@@ -0,0 +1,31 @@
+package org.grails.datastore.mapping.reflect
+
+import spock.lang.Specification
+
+class ValueKeysSpec extends Specification {
+
+    void "test values that are equal in Groovy have the same equality key"() {
+        expect:
+        ValueKeys.equalityKey(a).equals(ValueKeys.equalityKey(b))
+        ValueKeys.equalityKey(a).hashCode() == ValueKeys.equalityKey(b).hashCode()
+
+        where:
+        a         | b
+        1         | 1L
+        (short) 2 | 2G
+        3.0G      | 3
+        1.50G     | 1.5G
+        4.0f      | 4L
+        "x"       | "${'x'}"
+    }
+
+    void "test other values are their own equality key"() {
+        given:
+        def date = new Date()
+
+        expect:
+        ValueKeys.equalityKey(date).is(date)
+        ValueKeys.equalityKey(null) == null
+        !ValueKeys.equalityKey(1.5d).equals(ValueKeys.equalityKey(1))
+    }
+}
@@ -30,6 +30,9 @@ import org.grails.datastore.gorm.GormValidationApi;
 import org.grails.datastore.gorm.events.*;
 import org.grails.datastore.gorm.multitenancy.MultiTenantEventListener;
 import org.grails.datastore.gorm.utils.ClasspathEntityScanner;
+import org.grails.datastore.mapping.cache.QueryCacheCapableDatastore;
+import org.grails.datastore.mapping.cache.QueryResultCache;
+import org.grails.datastore.mapping.cache.QueryResultCacheInvalidatingListener;
 import org.grails.datastore.mapping.config.Settings;
 import org.grails.datastore.mapping.core.AbstractDatastore;
 import org.grails.datastore.mapping.core.Datastore;
@@ -44,6 +47,7 @@ import org.grails.datastore.mapping.multitenancy.MultiTenancySettings;
 import org.grails.datastore.mapping.multitenancy.SchemaMultiTenantCapableDatastore;
 import org.grails.datastore.mapping.multitenancy.TenantResolver;
 import org.grails.datastore.mapping.simple.connections.SimpleMapConnectionSourceFactory;
+import org.grails.datastore.mapping.simple.engine.SimpleMapPropertyIndex;
 import org.grails.datastore.mapping.transactions.DatastoreTransactionManager;
 import org.grails.datastore.mapping.transactions.TransactionCapableDatastore;
 import org.springframework.context.ApplicationEventPublisher;
@@ -59,12 +63,16 @@ import org.springframework.transaction.PlatformTransactionManager;
  * @since 1.0
  */
 @SuppressWarnings("rawtypes")
-public class SimpleMapDatastore extends AbstractDatastore implements Closeable, TransactionCapableDatastore, MultipleConnectionSourceCapableDatastore, SchemaMultiTenantCapableDatastore<Map<String,Map>, ConnectionSourceSettings>, ConnectionSourcesProvider<Map<String,Map>, ConnectionSourceSettings> {
+public class SimpleMapDatastore extends AbstractDatastore implements Closeable, TransactionCapableDatastore, MultipleConnectionSourceCapableDatastore, SchemaMultiTenantCapableDatastore<Map<String,Map>, ConnectionSourceSettings>, ConnectionSourcesProvider<Map<String,Map>, ConnectionSourceSettings>, QueryCacheCapableDatastore {
     private final Map<String, Map> inmemoryData;
     private final TenantResolver tenantResolver;
     protected final GormEnhancer gormEnhancer;
     private final ConfigurableApplicationEventPublisher eventPublisher;
     private Map indices = new ConcurrentHashMap();
+    private final Map<String, SimpleMapPropertyIndex> propertyIndices = new ConcurrentHashMap<>();
+    private final QueryResultCache queryResultCache = new QueryResultCache();
+    private final ConnectionSourceSettings.FlushSettings flushSettings;
+    private final boolean trackedDirtyChecking;
     private final PlatformTransactionManager transactionManager;
     private final ConnectionSources<Map<String,Map>, ConnectionSourceSettings> connectionSources;
     private final MultiTenancySettings.MultiTenancyMode multiTenancyMode;
@@ -84,6 +92,8 @@ public class SimpleMapDatastore extends AbstractDatastore implements Closeable,
         this.tenantResolver = multiTenancy.getTenantResolver();
         PropertyResolver config = connectionSources.getBaseConfiguration();
         this.failOnError = config.getProperty(Settings.SETTING_FAIL_ON_ERROR, Boolean.class, false);
+        this.flushSettings = defaultConnectionSource.getSettings().getFlush();
+        this.trackedDirtyChecking = defaultConnectionSource.getSettings().isTrackedDirtyChecking();
         if(!(connectionSources instanceof SingletonConnectionSources)) {
 
             Iterable<ConnectionSource<Map<String,Map>, ConnectionSourceSettings>> allConnectionSources = connectionSources.getAllConnectionSources();
@@ -106,6 +116,7 @@ public class SimpleMapDatastore extends AbstractDatastore implements Closeable,
             }
         }
         this.eventPublisher = eventPublisher;
+        eventPublisher.addApplicationListener(new QueryResultCacheInvalidatingListener(this, queryResultCache));
         this.gormEnhancer = initialize(defaultConnectionSource.getSettings());
     }
 
@@ -273,9 +284,22 @@ public class SimpleMapDatastore extends AbstractDatastore implements Closeable,
         return indices;
     }
 
+    /**
+     * @return The property value indices, keyed by index root
+     */
+    public Map<String, SimpleMapPropertyIndex> getPropertyIndices() {
+        return propertyIndices;
+    }
+
     @Override
     protected Session createSession(PropertyResolver connectionDetails) {
-        return new SimpleMapSession(this, getMappingContext(), eventPublisher);
+        SimpleMapSession session = new SimpleMapSession(this, getMappingContext(), eventPublisher);
+        session.setFlushThreshold(flushSettings.getThreshold());
+        session.setFlushSizeThreshold(flushSettings.getSizeThreshold());
+        session.setEvictOnAutoFlush(flushSettings.isEvict());
+        session.setSelectiveAutoFlush(flushSettings.isSelective());
+        session.setTrackedDirtyChecking(trackedDirtyChecking);
+        return session;
     }
 
     @Override
@@ -290,6 +314,13 @@ public class SimpleMapDatastore extends AbstractDatastore implements Closeable,
     public void clearData() {
         inmemoryData.clear();
         indices.clear();
+        propertyIndices.clear();
+        queryResultCache.invalidateAll();
+    }
+
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
     }
 
     @Override
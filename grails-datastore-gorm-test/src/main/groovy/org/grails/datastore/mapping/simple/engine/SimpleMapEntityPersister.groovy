@@ -21,17 +21,27 @@ import org.grails.datastore.mapping.core.Session
 import org.grails.datastore.mapping.engine.AssociationIndexer
 import org.grails.datastore.mapping.engine.EntityAccess
 import org.grails.datastore.mapping.engine.EntityPersister
+import org.grails.datastore.mapping.engine.KeyOrderedRetrieval
 import org.grails.datastore.mapping.engine.PropertyValueIndexer
+import org.grails.datastore.mapping.engine.UniqueIndexLookup
 import org.grails.datastore.mapping.keyvalue.engine.AbstractKeyValueEntityPersister
 import org.grails.datastore.mapping.model.MappingContext
 import org.grails.datastore.mapping.model.PersistentEntity
 import org.grails.datastore.mapping.model.PersistentProperty
 import org.grails.datastore.mapping.model.types.Association
+import org.grails.datastore.mapping.model.types.Custom
 import org.grails.datastore.mapping.model.types.ManyToMany
+import org.grails.datastore.mapping.model.types.Simple
+import org.grails.datastore.mapping.model.types.ToOne
+import org.grails.datastore.mapping.proxy.ProxyHandler
 import org.grails.datastore.mapping.query.Query
 import org.grails.datastore.mapping.simple.SimpleMapDatastore
 import org.grails.datastore.mapping.simple.query.SimpleMapQuery
 import org.springframework.context.ApplicationEventPublisher
+import org.springframework.core.convert.ConversionException
+import org.springframework.core.convert.ConversionService
+
+import javax.persistence.FlushModeType
 
 /**
  * A simple implementation of the {@link org.grails.datastore.mapping.engine.EntityPersister} abstract class that backs onto an in-memory map.
@@ -40,18 +50,25 @@ import org.springframework.context.ApplicationEventPublisher
  * @author Graeme Rocher
  * @since 1.0
  */
-class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Object> {
+class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Object> implements UniqueIndexLookup, KeyOrderedRetrieval {
 
     Map<String, Map> datastore
     Map indices
+    Map<String, SimpleMapPropertyIndex> propertyIndices
     def lastKey
     String family
 
+    /**
+     * Whether the pending inserts and updates of the entity are stored once the pre-events of the whole batch have fired
+     */
+    boolean batchWriteDeferred
+
     SimpleMapEntityPersister(MappingContext context, PersistentEntity entity, Session session,
                              SimpleMapDatastore datastore, ApplicationEventPublisher publisher) {
         super(context, entity, session, publisher)
         this.datastore = datastore.backingMap
         this.indices = datastore.indices
+        this.propertyIndices = datastore.propertyIndices
         family = getFamily(entity, entity.getMapping())
         final identity = entity.getIdentity()
         def idType = identity?.type
@@ -65,6 +82,11 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         }
     }
 
+    @Override
+    protected boolean isBatchWriteDeferred(PersistentEntity persistentEntity) {
+        return batchWriteDeferred
+    }
+
     protected PersistentEntity discriminatePersistentEntity(PersistentEntity persistentEntity, Map nativeEntry) {
         def disc = nativeEntry?.discriminator
         if (disc) {
@@ -93,32 +115,43 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         return true // index all
     }
 
+    /**
+     * Obtains the index of the values of the given property, which is shared by the whole inheritance hierarchy
+     *
+     * @param property The property
+     * @return The index
+     */
+    SimpleMapPropertyIndex getPropertyIndex(PersistentProperty property) {
+        String indexRoot = getIndexRoot(property)
+        SimpleMapPropertyIndex propertyIndex = propertyIndices.get(indexRoot)
+        if (propertyIndex == null) {
+            propertyIndex = new SimpleMapPropertyIndex()
+            SimpleMapPropertyIndex existing = propertyIndices.putIfAbsent(indexRoot, propertyIndex)
+            if (existing != null) {
+                propertyIndex = existing
+            }
+        }
+        return propertyIndex
+    }
+
+    protected String getIndexRoot(PersistentProperty property) {
+        return "~${property.owner.rootEntity.name}:${property.name}"
+    }
+
     PropertyValueIndexer getPropertyIndexer(PersistentProperty property) {
+        final SimpleMapPropertyIndex propertyIndex = getPropertyIndex(property)
         return new PropertyValueIndexer() {
 
             String getIndexRoot() {
-                return "~${property.owner.rootEntity.name}:${property.name}"
+                return SimpleMapEntityPersister.this.getIndexRoot(property)
             }
 
             void deindex(value, primaryKey) {
-                def index = getIndexName(value)
-                List indexed = indices[index]
-                if (indexed) {
-                    indexed.removeElement(primaryKey)
-                }
+                propertyIndex.deindex(value, primaryKey)
             }
 
             void index(value, primaryKey) {
-
-                def index = getIndexName(value)
-                def indexed = indices[index]
-                if (indexed == null) {
-                    indexed = []
-                    indices[index] = indexed
-                }
-                if (!indexed.contains(primaryKey)) {
-                    indexed << primaryKey
-                }
+                propertyIndex.index(value, primaryKey)
             }
 
             List query(value) {
@@ -126,13 +159,7 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
             }
 
             List query(value, int offset, int max) {
-                def index = getIndexName(value)
-
-                def indexed = indices[index]
-                if (!indexed) {
-                    return Collections.emptyList()
-                }
-                return indexed[offset..max]
+                return propertyIndex.query(convertQueryValue(property, value), offset, max)
             }
 
             String getIndexName(value) {
@@ -141,6 +168,123 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         }
     }
 
+    /**
+     * Converts a textual query value to the type values of the property are indexed with, for example when
+     * an identifier is queried with a request parameter
+     */
+    protected convertQueryValue(PersistentProperty property, value) {
+        if (!(value instanceof CharSequence)) {
+            return value
+        }
+        Class indexedType = property.type
+        if (property instanceof ToOne) {
+            indexedType = ((ToOne) property).associatedEntity?.identity?.type
+        }
+        if (indexedType == null || CharSequence.isAssignableFrom(indexedType) || indexedType == Object) {
+            return value
+        }
+
+        ConversionService conversionService = mappingContext.conversionService
+        if (conversionService.canConvert(String, indexedType)) {
+            try {
+                return conversionService.convert(value.toString(), indexedType)
+            } catch (ConversionException ignored) {
+                // not a value of the indexed type, so it is looked up as is
+            }
+        }
+        return value
+    }
+
+    /**
+     * Property groups can be looked up when every property is held in a property index with the same equality a query
+     * uses, which is the case for simple values keyed exactly and for to-one associations stored by foreign key. The
+     * indices are not partitioned by tenant, so multi-tenant entities are always queried.
+     */
+    @Override
+    boolean hasUniqueIndex(List<String> propertyNames) {
+        if (propertyNames.isEmpty() || persistentEntity.isMultiTenant()) {
+            return false
+        }
+        for (String propertyName in propertyNames) {
+            if (!isExactlyIndexed(persistentEntity.getPropertyByName(propertyName))) {
+                return false
+            }
+        }
+        return true
+    }
+
+    @Override
+    List<Serializable> lookupUnique(Map<String, Object> propertyValues) {
+        if (session.flushMode == FlushModeType.AUTO) {
+            session.flush()
+        }
+
+        Map entries = datastore[family]
+        Set<Object> keys = null
+        for (Map.Entry<String, Object> propertyValue in propertyValues.entrySet()) {
+            def value = propertyValue.value
+            if (value == null) {
+                continue
+            }
+            PersistentProperty property = persistentEntity.getPropertyByName(propertyValue.key)
+            if (property instanceof ToOne) {
+                value = getAssociationKey((ToOne) property, value)
+            }
+            List<Object> matches = getPropertyIndex(property).query(convertQueryValue(property, value), 0, -1)
+            if (keys == null) {
+                keys = new LinkedHashSet<Object>(matches)
+            }
+            else {
+                keys.retainAll(new HashSet<Object>(matches))
+            }
+            if (keys.isEmpty()) {
+                return []
+            }
+        }
+        if (keys == null) {
+            return new ArrayList<Serializable>(entries.keySet())
+        }
+
+        // the index is shared by the inheritance hierarchy, so only the keys of this entity's family apply
+        List<Serializable> identifiers = []
+        for (key in keys) {
+            if (entries.containsKey(key)) {
+                identifiers.add((Serializable) key)
+            }
+        }
+        return identifiers
+    }
+
+    /**
+     * Whether the values of the given property are indexed such that a lookup finds the same entries as a query
+     */
+    protected boolean isExactlyIndexed(PersistentProperty property) {
+        if (property instanceof ToOne) {
+            ToOne toOne = (ToOne) property
+            return !toOne.isForeignKeyInChild() && toOne.associatedEntity != null
+        }
+        if (!(property instanceof Simple) || property instanceof Custom) {
+            return false
+        }
+        Class type = property.type
+        return (type.isPrimitive() && type != Float.TYPE && type != Double.TYPE) || CharSequence.isAssignableFrom(type) || Enum.isAssignableFrom(type) ||
+                type in [Long, Integer, Short, Byte, Boolean, Character, UUID]
+    }
+
+    /**
+     * Obtains the key a to-one association is indexed by from an entity, a proxy or an identifier
+     */
+    protected getAssociationKey(ToOne property, value) {
+        ProxyHandler proxyHandler = mappingContext.proxyHandler
+        if (proxyHandler.isProxy(value)) {
+            return proxyHandler.getIdentifier(value)
+        }
+        if (mappingContext.isPersistentEntity(value)) {
+            return property.associatedEntity.reflector.getIdentifier(value)
+        }
+        return value
+    }
+
     AssociationIndexer getAssociationIndexer(Map nativeEntry, Association association) {
         if(association?.associatedEntity == null) {
             return null
@@ -258,6 +402,17 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         return null
     }
 
+    @Override
+    protected List<Map> retrieveEntries(PersistentEntity persistentEntity, String family, List<Serializable> keys) {
+        Map<Object, Map> familyEntries = datastore[family]
+        List<Map> entries = new ArrayList<>(keys.size())
+        for (Serializable key in keys) {
+            Map entry = familyEntries.get(key)
+            entries.add(entry != null ? new LinkedHashMap<>(entry) : null)
+        }
+        return entries
+    }
+
     protected generateIdentifier(PersistentEntity persistentEntity, Map id) {
         final isRoot = persistentEntity.root
         final type = isRoot ? persistentEntity.identity.type : persistentEntity.rootEntity.identity.type
@@ -291,10 +446,27 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         }
         datastore[family].put(storeId, nativeEntry)
         indexIdentifier(persistentEntity, storeId)
+        indexMissingValues(persistentEntity, storeId, nativeEntry)
         updateInheritanceHierarchy(persistentEntity, storeId, nativeEntry)
         return storeId
     }
 
+    /**
+     * Indexes the properties an inserted entry has no value for, which the persister skips, so that range
+     * queries answered from the index include the entry where a scan would
+     */
+    protected void indexMissingValues(PersistentEntity persistentEntity, storeId, Map nativeEntry) {
+        for (PersistentProperty property in persistentEntity.persistentProperties) {
+            if (property instanceof Association) {
+                continue
+            }
+            String key = property.mapping?.mappedForm?.targetName ?: property.name
+            if (nativeEntry.get(key) == null) {
+                getPropertyIndex(property).index(null, storeId)
+            }
+        }
+    }
+
     protected def indexIdentifier(PersistentEntity persistentEntity, storeId) {
         final indexer = getPropertyIndexer(persistentEntity.identity)
         indexer.index(storeId, storeId)
@@ -319,6 +491,38 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         def family = getFamily(persistentEntity, persistentEntity.getMapping())
         def existing = datastore[family].get(key)
 
+        updateVersion(persistentEntity, entityAccess, key, existing, entry)
+
+        indexIdentifier(persistentEntity, key)
+        if (existing == null) {
+            datastore[family].put(key, entry)
+        }
+        else {
+            existing.putAll(entry)
+        }
+        updateInheritanceHierarchy(persistentEntity, key, entry)
+    }
+
+    @Override
+    protected void updateEntryDelta(PersistentEntity persistentEntity, EntityAccess entityAccess, key, Map entry, Map<String, Object> delta) {
+        def family = getFamily(persistentEntity, persistentEntity.getMapping())
+        Map existing = datastore[family].get(key)
+        if (existing == null) {
+            updateEntry(persistentEntity, entityAccess, key, entry)
+            return
+        }
+
+        updateVersion(persistentEntity, entityAccess, key, existing, entry)
+
+        indexIdentifier(persistentEntity, key)
+        existing.putAll(delta)
+        if (isVersioned(entityAccess)) {
+            existing.version = entry.version
+        }
+        updateInheritanceHierarchy(persistentEntity, key, existing)
+    }
+
+    private void updateVersion(PersistentEntity persistentEntity, EntityAccess entityAccess, key, Map existing, Map entry) {
         if (isVersioned(entityAccess)) {
             if (existing == null) {
                 setVersion entityAccess
@@ -341,15 +545,6 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
                 incrementVersion(entityAccess)
             }
         }
-
-        indexIdentifier(persistentEntity, key)
-        if (existing == null) {
-            datastore[family].put(key, entry)
-        }
-        else {
-            existing.putAll(entry)
-        }
-        updateInheritanceHierarchy(persistentEntity, key, entry)
     }
 
     protected void deleteEntries(String family, List<Object> keys) {
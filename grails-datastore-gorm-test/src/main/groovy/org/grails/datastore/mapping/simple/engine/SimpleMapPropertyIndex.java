@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+/**
+ * The index of the values of a single property of a root entity held by the {@link org.grails.datastore.mapping.simple.SimpleMapDatastore}.
+ *
+ * Each value maps to the insertion ordered set of keys of the entries holding it, so indexing and deindexing a key is
+ * constant time. Values are keyed by the value itself rather than its string form, with character sequences, enums and
+ * numbers normalized so that, for example, a query by an Integer finds entries indexed with a Long and a query by a
+ * BigDecimal finds entries indexed with a Double.
+ *
+ * Values are also kept sorted so that range criteria can be answered without walking every entry of a family. Values are
+ * compared with Groovy semantics (so that an Integer and a Long compare as numbers). If a value is indexed that cannot
+ * be compared with the values already present, the sorted form is discarded and range queries return null so the caller
+ * can fall back to scanning. The keys of entries without a value are kept apart, since Groovy compares null as lower
+ * than any value, a range without a lower bound includes them.
+ *
+ * @since 7.1
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class SimpleMapPropertyIndex {
+
+    private static final Comparator<Object> VALUE_COMPARATOR = new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return DefaultTypeTransformation.compareTo(o1, o2);
+        }
+    };
+
+    private final Map<Object, Set<Object>> values = new HashMap<>();
+    private final NavigableMap<Object, Set<Object>> sortedValues = new TreeMap<>(VALUE_COMPARATOR);
+    private final Set<Object> nullKeys = new LinkedHashSet<>();
+    private boolean sortable = true;
+
+    /**
+     * Indexes the given value against the given key
+     *
+     * @param value The value
+     * @param key The key of the entry
+     */
+    public synchronized void index(Object value, Object key) {
+        if (value == null) {
+            nullKeys.add(key);
+            return;
+        }
+        Object indexKey = normalize(value);
+        Set<Object> keys = values.get(indexKey);
+        if (keys == null) {
+            keys = new LinkedHashSet<>();
+            values.put(indexKey, keys);
+        }
+        keys.add(key);
+
+        if (!sortable) {
+            return;
+        }
+        try {
+            Set<Object> sortedKeys = sortedValues.get(value);
+            if (sortedKeys == null) {
+                sortedKeys = new LinkedHashSet<>();
+                sortedValues.put(value, sortedKeys);
+            }
+            sortedKeys.add(key);
+        } catch (RuntimeException e) {
+            // mixed value types that cannot be ordered, range queries have to scan
+            sortable = false;
+            sortedValues.clear();
+        }
+    }
+
+    /**
+     * Removes the given key from the index of the given value
+     *
+     * @param value The value
+     * @param key The key of the entry
+     */
+    public synchronized void deindex(Object value, Object key) {
+        if (value == null) {
+            nullKeys.remove(key);
+            return;
+        }
+        Object indexKey = normalize(value);
+        Set<Object> keys = values.get(indexKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                values.remove(indexKey);
+            }
+        }
+
+        if (!sortable) {
+            return;
+        }
+        try {
+            Set<Object> sortedKeys = sortedValues.get(value);
+            if (sortedKeys != null) {
+                sortedKeys.remove(key);
+                if (sortedKeys.isEmpty()) {
+                    sortedValues.remove(value);
+                }
+            }
+        } catch (RuntimeException e) {
+            // value not comparable, so it can never have been indexed
+        }
+    }
+
+    /**
+     * Queries the keys of the entries holding the given value
+     *
+     * @param value The value
+     * @param offset The number of keys to skip
+     * @param max The maximum number of keys to return or -1 for all of them
+     * @return The keys in the order they were indexed
+     */
+    public synchronized List<Object> query(Object value, int offset, int max) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        Set<Object> keys = values.get(normalize(value));
+        if (keys == null || offset >= keys.size() || max == 0) {
+            return Collections.emptyList();
+        }
+        if (offset <= 0 && max < 0) {
+            return new ArrayList<>(keys);
+        }
+
+        List<Object> results = new ArrayList<>();
+        int position = 0;
+        for (Object key : keys) {
+            if (position++ < offset) {
+                continue;
+            }
+            results.add(key);
+            if (max > -1 && results.size() == max) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Queries the keys of the entries whose value, in its string form, matches the given pattern
+     *
+     * @param pattern The pattern
+     * @return The keys
+     */
+    public synchronized List<Object> queryMatching(Pattern pattern) {
+        Set<Object> results = new LinkedHashSet<>();
+        for (Map.Entry<Object, Set<Object>> entry : values.entrySet()) {
+            if (pattern.matcher(entry.getKey().toString()).matches()) {
+                results.addAll(entry.getValue());
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * @return Whether the values of this index can be used to answer range queries
+     */
+    public synchronized boolean isSortable() {
+        return sortable;
+    }
+
+    /**
+     * Queries the keys of the entries whose value lies within the given range. A null bound is treated as unbounded,
+     * and without a lower bound the entries without a value match as well, as they do with Groovy comparisons.
+     *
+     * @param from The lower bound
+     * @param fromInclusive Whether the lower bound is inclusive
+     * @param to The upper bound
+     * @param toInclusive Whether the upper bound is inclusive
+     * @return The keys in value order or null if the range cannot be answered by this index
+     */
+    public synchronized List<Object> queryRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (!sortable) {
+            return null;
+        }
+        try {
+            NavigableMap<Object, Set<Object>> range;
+            if (from != null && to != null) {
+                if (VALUE_COMPARATOR.compare(from, to) > 0) {
+                    return new ArrayList<>();
+                }
+                range = sortedValues.subMap(from, fromInclusive, to, toInclusive);
+            }
+            else if (from != null) {
+                range = sortedValues.tailMap(from, fromInclusive);
+            }
+            else if (to != null) {
+                range = sortedValues.headMap(to, toInclusive);
+            }
+            else {
+                range = sortedValues;
+            }
+
+            List<Object> keys = new ArrayList<>();
+            if (from == null) {
+                keys.addAll(nullKeys);
+            }
+            for (Collection<Object> matches : range.values()) {
+                keys.addAll(matches);
+            }
+            return keys;
+        } catch (RuntimeException e) {
+            // the bounds cannot be compared with the indexed values
+            return null;
+        }
+    }
+
+    /**
+     * Clears the index
+     */
+    public synchronized void clear() {
+        values.clear();
+        sortedValues.clear();
+        nullKeys.clear();
+        sortable = true;
+    }
+
+    /**
+     * Normalizes a value to the form it is keyed by in the index
+     *
+     * @param value The value
+     * @return The normalized value
+     */
+    protected static Object normalize(Object value) {
+        if (value instanceof CharSequence || value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum) value).name();
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            return ((BigInteger) value).longValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double doubleValue = ((Number) value).doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                return doubleValue;
+            }
+            // the decimal form the value is written in, so that 9.99f and 9.99d both become 9.99
+            return normalizeDecimal(new BigDecimal(value.toString()));
+        }
+        if (value instanceof BigDecimal) {
+            return normalizeDecimal((BigDecimal) value);
+        }
+        return value;
+    }
+
+    private static Object normalizeDecimal(BigDecimal value) {
+        BigDecimal stripped = value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+        if (stripped.scale() <= 0 && stripped.precision() - stripped.scale() < 19) {
+            return stripped.longValueExact();
+        }
+        return stripped;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.query
+
+import groovy.transform.CompileStatic
+import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.engine.types.CustomTypeMarshaller
+import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.model.PersistentProperty
+import org.grails.datastore.mapping.model.types.Association
+import org.grails.datastore.mapping.model.types.Custom
+import org.grails.datastore.mapping.model.types.ToOne
+import org.grails.datastore.mapping.query.AssociationQuery
+import org.grails.datastore.mapping.query.Query
+import org.grails.datastore.mapping.query.criteria.FunctionCallingCriterion
+import org.grails.datastore.mapping.simple.engine.SimpleMapEntityPersister
+import org.grails.datastore.mapping.simple.query.evaluation.AssociationPredicate
+import org.grails.datastore.mapping.simple.query.evaluation.EntryPredicate
+import org.grails.datastore.mapping.simple.query.evaluation.EntryPredicate.Operator
+import org.grails.datastore.mapping.simple.query.evaluation.ValueReader
+
+import java.util.regex.Pattern
+
+/**
+ * Compiles the criteria of a {@link SimpleMapQuery} into a tree of {@link EntryPredicate} instances that is evaluated
+ * in a single pass over the native entries of the queried family.
+ *
+ * Criteria that can be answered from a property index are looked up once while compiling and contribute the keys they
+ * match. Criteria without a compiled form are answered by the handlers of the query.
+ *
+ * @since 7.1
+ */
+@CompileStatic
+class SimpleMapCriteriaCompiler {
+
+    final SimpleMapQuery query
+    final PersistentEntity entity
+    final SimpleMapEntityPersister entityPersister
+    final Session session
+
+    SimpleMapCriteriaCompiler(SimpleMapQuery query, SimpleMapEntityPersister entityPersister) {
+        this.query = query
+        this.entity = query.entity
+        this.entityPersister = entityPersister
+        this.session = query.session
+    }
+
+    /**
+     * Compiles the given junction
+     *
+     * @param junction The junction
+     * @return The predicate
+     */
+    EntryPredicate compile(Query.Junction junction) {
+        List<EntryPredicate> predicates = new ArrayList<>()
+        for (Query.Criterion criterion in junction.criteria) {
+            if (criterion instanceof Query.Junction) {
+                predicates.add(compile((Query.Junction) criterion))
+            }
+            else {
+                compileCriterion(criterion, predicates)
+            }
+        }
+        return combine(junction, predicates)
+    }
+
+    protected void compileCriterion(Query.Criterion criterion, List<EntryPredicate> predicates) {
+        PersistentProperty property = query.getValidProperty(criterion)
+        if ((property instanceof Custom) && (criterion instanceof Query.PropertyCriterion)) {
+            CustomTypeMarshaller customTypeMarshaller = ((Custom) property).getCustomTypeMarshaller()
+            SimpleMapResultList resultList = new SimpleMapResultList(query)
+            customTypeMarshaller.query(property, (Query.PropertyCriterion) criterion, resultList)
+            for (Object results in resultList.results) {
+                predicates.add(keys((Collection) results))
+            }
+        }
+        else {
+            predicates.add(compileLeaf(criterion, property))
+        }
+    }
+
+    protected EntryPredicate compileLeaf(Query.Criterion criterion, PersistentProperty property) {
+        Class type = criterion.getClass()
+        if (type == Query.Equals) {
+            return compileEquals((Query.Equals) criterion, property)
+        }
+        if (type == Query.NotEquals) {
+            Query.NotEquals notEquals = (Query.NotEquals) criterion
+            return new EntryPredicate.Negation(compileEquals(new Query.Equals(notEquals.property, notEquals.value), property))
+        }
+        if (type == Query.IsNull) {
+            return new EntryPredicate.Comparison(entryReader(((Query.IsNull) criterion).property), Operator.EQ, null)
+        }
+        if (type == Query.IsNotNull) {
+            return new EntryPredicate.Negation(new EntryPredicate.Comparison(entryReader(((Query.IsNotNull) criterion).property), Operator.EQ, null))
+        }
+        if (type == Query.Between) {
+            Query.Between between = (Query.Between) criterion
+            // a null bound is compared as a value by the predicate, whereas the index treats it as unbounded
+            List indexed = between.from != null && between.to != null ?
+                    query.queryRangeIndex(property, between.property, between.from, true, between.to, true) : null
+            return indexed != null ? keys(indexed) : new EntryPredicate.Between(entryReader(between.property), between.from, between.to)
+        }
+        if (type == Query.GreaterThan) {
+            return compileRange((Query.PropertyCriterion) criterion, property, Operator.GT)
+        }
+        if (type == Query.GreaterThanEquals) {
+            return compileRange((Query.PropertyCriterion) criterion, property, Operator.GTE)
+        }
+        if (type == Query.LessThan) {
+            return compileRange((Query.PropertyCriterion) criterion, property, Operator.LT)
+        }
+        if (type == Query.LessThanEquals) {
+            return compileRange((Query.PropertyCriterion) criterion, property, Operator.LTE)
+        }
+        if (criterion instanceof Query.PropertyComparisonCriterion) {
+            Operator operator = getPropertyComparisonOperator(type)
+            if (operator != null) {
+                Query.PropertyComparisonCriterion pcc = (Query.PropertyComparisonCriterion) criterion
+                return new EntryPredicate.PropertyComparison(entryReader(pcc.property), operator, new ValueReader.EntryValue(pcc.otherProperty))
+            }
+        }
+        if (type == FunctionCallingCriterion) {
+            return compileFunction((FunctionCallingCriterion) criterion, property)
+        }
+        if (type == AssociationQuery) {
+            return compileAssociation((AssociationQuery) criterion, property)
+        }
+        return handle(criterion, property)
+    }
+
+    protected EntryPredicate compileEquals(Query.Equals equals, PersistentProperty property) {
+        Object value = query.subqueryIfNecessary(equals)
+        if (equals.property.contains('.') || value == null) {
+            return new EntryPredicate.Comparison(entryReader(equals.property), Operator.EQ, value)
+        }
+        // pass on the resolved value so that a subquery is not executed twice
+        return handle(new Query.Equals(equals.property, value), property)
+    }
+
+    protected EntryPredicate compileRange(Query.PropertyCriterion criterion, PersistentProperty property, Operator operator) {
+        Object value = query.subqueryIfNecessary(criterion)
+        if (value != null) {
+            List indexed
+            switch (operator) {
+                case Operator.GT:
+                    indexed = query.queryRangeIndex(property, criterion.property, value, false, null, false)
+                    break
+                case Operator.GTE:
+                    indexed = query.queryRangeIndex(property, criterion.property, value, true, null, false)
+                    break
+                case Operator.LT:
+                    indexed = query.queryRangeIndex(property, criterion.property, null, false, value, false)
+                    break
+                default:
+                    indexed = query.queryRangeIndex(property, criterion.property, null, false, value, true)
+            }
+            if (indexed != null) {
+                return keys(indexed)
+            }
+        }
+        return new EntryPredicate.Comparison(entryReader(criterion.property), operator, value)
+    }
+
+    protected EntryPredicate compileFunction(FunctionCallingCriterion fcc, PersistentProperty property) {
+        Query.PropertyCriterion criterion = fcc.propertyCriterion
+        Class type = criterion.getClass()
+        if (type == Query.Equals || type == Query.NotEquals) {
+            Object value = query.subqueryIfNecessary(criterion)
+            if (value != null && property instanceof ToOne && property.type.isInstance(value)) {
+                value = entityPersister.getObjectIdentifier(value)
+            }
+            ValueReader reader = new ValueReader.FunctionValue(new ValueReader.EntryValue(property.name), fcc.functionName)
+            EntryPredicate equals = new EntryPredicate.Comparison(reader, Operator.EQ, value)
+            return type == Query.Equals ? equals : new EntryPredicate.Negation(equals)
+        }
+        if (type == Query.Between) {
+            Query.Between between = (Query.Between) criterion
+            ValueReader reader = new ValueReader.FunctionValue(entryReader(between.property), fcc.functionName)
+            return new EntryPredicate.Between(reader, between.from, between.to)
+        }
+        if (type == Query.GreaterThan) {
+            ValueReader reader = new ValueReader.FunctionValue(entryReader(criterion.property), fcc.functionName)
+            return new EntryPredicate.Comparison(reader, Operator.GT, query.subqueryIfNecessary(criterion))
+        }
+        return handle(fcc, property)
+    }
+
+    protected EntryPredicate compileAssociation(AssociationQuery associationQuery, PersistentProperty property) {
+        if (!isCompilableAssociationJunction(associationQuery.criteria)) {
+            return handle(associationQuery, property)
+        }
+        Association association = associationQuery.association
+        return compileAssociationJunction(associationQuery.criteria, association)
+    }
+
+    protected EntryPredicate compileAssociationJunction(Query.Junction junction, Association association) {
+        List<EntryPredicate> predicates = new ArrayList<>()
+        for (Query.Criterion criterion in junction.criteria) {
+            if (criterion instanceof Query.Junction) {
+                predicates.add(compileAssociationJunction((Query.Junction) criterion, association))
+            }
+            else {
+                EntryPredicate predicate = compileAssociationLeaf(criterion, association.associatedEntity)
+                if (predicate != null) {
+                    predicates.add(new AssociationPredicate(session, entityPersister, association, predicate))
+                }
+            }
+        }
+        return combine(junction, predicates)
+    }
+
+    /**
+     * Compiles a criterion evaluated against an associated entity
+     *
+     * @return The predicate or null if the criterion is not supported for associations
+     */
+    protected EntryPredicate compileAssociationLeaf(Query.Criterion criterion, PersistentEntity associatedEntity) {
+        Class type = criterion.getClass()
+        if (!(criterion instanceof Query.PropertyNameCriterion)) {
+            return null
+        }
+        ValueReader reader = entityReader(associatedEntity, ((Query.PropertyNameCriterion) criterion).property)
+        // cases match subclasses, so the Like variants come first
+        switch (type) {
+            case Query.RLike:
+                return new EntryPredicate.PatternMatch(reader, Pattern.compile(((Query.RLike) criterion).pattern), false)
+            case Query.ILike:
+                String regex = ((Query.ILike) criterion).pattern.replaceAll('%', '.*?')
+                return new EntryPredicate.PatternMatch(reader, Pattern.compile(regex, Pattern.CASE_INSENSITIVE), true)
+            case Query.Like:
+                String likeRegex = ((Query.Like) criterion).pattern.replaceAll('%', '.*?')
+                return new EntryPredicate.PatternMatch(reader, Pattern.compile(likeRegex), false)
+            case Query.Equals:
+                return new EntryPredicate.Comparison(reader, Operator.EQ, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.NotEquals:
+                return new EntryPredicate.Comparison(reader, Operator.NE, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.IsNull:
+                return new EntryPredicate.Comparison(reader, Operator.EQ, null)
+            case Query.IsNotNull:
+                return new EntryPredicate.Comparison(reader, Operator.NE, null)
+            case Query.IdEquals:
+                return new EntryPredicate.Comparison(reader, Operator.EQ, ((Query.IdEquals) criterion).value)
+            case Query.Between:
+                Query.Between between = (Query.Between) criterion
+                return new EntryPredicate.Between(reader, between.from, between.to)
+            case Query.GreaterThan:
+                return new EntryPredicate.Comparison(reader, Operator.GT, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.GreaterThanEquals:
+                return new EntryPredicate.Comparison(reader, Operator.GTE, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.LessThan:
+                return new EntryPredicate.Comparison(reader, Operator.LT, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.LessThanEquals:
+                return new EntryPredicate.Comparison(reader, Operator.LTE, query.subqueryIfNecessary((Query.PropertyCriterion) criterion))
+            case Query.In:
+                return new EntryPredicate.InList(reader, ((Query.In) criterion).values)
+            default:
+                return null
+        }
+    }
+
+    protected boolean isCompilableAssociationJunction(Query.Junction junction) {
+        for (Query.Criterion criterion in junction.criteria) {
+            if (criterion instanceof Query.Junction) {
+                if (!isCompilableAssociationJunction((Query.Junction) criterion)) {
+                    return false
+                }
+            }
+            else if (criterion instanceof AssociationQuery || criterion instanceof FunctionCallingCriterion) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Answers the criterion with the matching handler of the query
+     */
+    protected EntryPredicate handle(Query.Criterion criterion, PersistentProperty property) {
+        Closure handler = (Closure) ((Map) query.handlers).get(criterion.getClass())
+        Object results = handler?.call(criterion, property)
+        return keys(results instanceof Collection ? (Collection) results : Collections.emptyList())
+    }
+
+    protected EntryPredicate combine(Query.Junction junction, List<EntryPredicate> predicates) {
+        if (predicates.isEmpty()) {
+            return EntryPredicate.NONE
+        }
+        if (junction instanceof Query.Negation) {
+            return new EntryPredicate.Negation(predicates.size() == 1 ? predicates.get(0) : new EntryPredicate.Disjunction(predicates))
+        }
+        if (predicates.size() == 1) {
+            return predicates.get(0)
+        }
+        if (junction instanceof Query.Conjunction) {
+            return new EntryPredicate.Conjunction(predicates)
+        }
+        return new EntryPredicate.Disjunction(predicates)
+    }
+
+    /**
+     * Creates a reader for the given property of a native entry of the queried family
+     */
+    protected ValueReader entryReader(String propertyName) {
+        int dot = propertyName.indexOf('.')
+        if (dot > -1) {
+            List<String> path = propertyName.tokenize('.')
+            return new ValueReader.NestedValue(new ValueReader.EntryValue(path.get(0)), path.get(1))
+        }
+        return new ValueReader.EntryValue(propertyName)
+    }
+
+    /**
+     * Creates a reader for the given property of an instance of the given entity
+     */
+    static ValueReader entityReader(PersistentEntity entity, String propertyName) {
+        int dot = propertyName.indexOf('.')
+        if (dot > -1) {
+            List<String> path = propertyName.tokenize('.')
+            return new ValueReader.NestedValue(entityReader(entity, path.get(0)), path.get(1))
+        }
+        if (entity != null && entity.reflector != null) {
+            try {
+                return new ValueReader.EntityValue(entity.reflector.getPropertyReader(propertyName))
+            } catch (IllegalArgumentException ignored) {
+                // not a persistent property, read it dynamically
+            }
+        }
+        return new ValueReader.DynamicValue(propertyName)
+    }
+
+    private static Operator getPropertyComparisonOperator(Class type) {
+        switch (type) {
+            case Query.EqualsProperty:
+                return Operator.EQ
+            case Query.NotEqualsProperty:
+                return Operator.NE
+            case Query.GreaterThanProperty:
+                return Operator.GT
+            case Query.GreaterThanEqualsProperty:
+                return Operator.GTE
+            case Query.LessThanProperty:
+                return Operator.LT
+            case Query.LessThanEqualsProperty:
+                return Operator.LTE
+            default:
+                return null
+        }
+    }
+
+    private static EntryPredicate keys(Collection results) {
+        return new EntryPredicate.KeySet(results != null ? (Collection<Object>) results : Collections.emptyList())
+    }
+}
@@ -16,6 +16,7 @@ package org.grails.datastore.mapping.simple.query
 
 import java.util.regex.Pattern
 
+import groovy.transform.CompileStatic
 import org.grails.datastore.mapping.engine.types.CustomTypeMarshaller
 import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValue
 import org.grails.datastore.mapping.model.PersistentEntity
@@ -28,8 +29,14 @@ import org.grails.datastore.mapping.query.Query
 import org.grails.datastore.mapping.query.Restrictions
 import org.grails.datastore.mapping.query.api.QueryableCriteria
 import org.grails.datastore.mapping.query.criteria.FunctionCallingCriterion
+import org.grails.datastore.mapping.query.order.ManualEntityOrdering
+import org.grails.datastore.mapping.query.projections.ProjectionAccumulator
+import org.grails.datastore.mapping.reflect.ValueKeys
 import org.grails.datastore.mapping.simple.SimpleMapSession
 import org.grails.datastore.mapping.simple.engine.SimpleMapEntityPersister
+import org.grails.datastore.mapping.simple.query.evaluation.EntryPredicate
+import org.grails.datastore.mapping.simple.query.evaluation.ValueComparator
+import org.grails.datastore.mapping.simple.query.evaluation.ValueReader
 import org.springframework.dao.InvalidDataAccessResourceUsageException
 import org.springframework.util.Assert
 
@@ -54,110 +61,240 @@ class SimpleMapQuery extends Query {
 
     protected List executeQuery(PersistentEntity entity, Query.Junction criteria) {
         def results = []
-        def entityMap = [:]
-        if (criteria.isEmpty()) {
-            populateQueryResult(datastore[family].keySet().toList(), entityMap)
+        boolean paged = projections.isEmpty() && max > -1
+        // without an order only the first offset + max matches can end up in the results
+        int limit = paged && !orderBy ? offset + max : -1
+        def entityMap = findMatchingEntities(criteria, limit)
+
+        if (orderBy) {
+            if (paged) {
+                return selectOrderedPage(entityMap, orderBy)
+            }
+            entityMap = applyOrder(entityMap, orderBy)
+        }
+        if (projections.isEmpty()) {
+            results = entityMap.values() as List
         }
         else {
-            def criteriaList = criteria.getCriteria()
-            entityMap = executeSubQuery(criteria, criteriaList)
-            if (!entity.isRoot()) {
-                def childKeys = datastore[family].keySet()
-                entityMap = entityMap.subMap(childKeys)
-            }
+            results = applyProjections(entityMap, projections.projectionList)
         }
+        if (results) {
+            return applyMaxAndOffset(results)
+        }
+        return Collections.emptyList()
+    }
 
-        def nullEntries = entityMap.entrySet().findAll { it.value == null }
-        entityMap.keySet().removeAll(nullEntries.collect { it.key })
+    /**
+     * Compiles the given criteria and evaluates them in a single pass over the entries of the queried family
+     *
+     * @param criteria The criteria
+     * @param limit The number of entities after which evaluation stops or -1 to evaluate all entries
+     * @return The matching entities keyed by their key
+     */
+    @CompileStatic
+    protected Map findMatchingEntities(Query.Junction criteria, int limit) {
+        Map entries = datastore.get(family)
+        Map entityMap = new LinkedHashMap()
+        if (limit == 0) {
+            return entityMap
+        }
 
-        if (orderBy) {
-            orderBy.reverseEach { Query.Order order ->
-                boolean desc = order.direction == Query.Order.Direction.DESC
-                entityMap = entityMap.sort { a, b ->
-                    int cmp = (a.value."${order.property}" <=> b.value."${order.property}")
-                    return desc ? -cmp : cmp
+        EntryPredicate predicate = criteria.isEmpty() ? null : new SimpleMapCriteriaCompiler(this, entityPersister).compile(criteria)
+        Collection candidates = predicate != null ? predicate.candidateKeys : null
+        Collection keys = candidates != null ? candidates : new ArrayList(entries.keySet())
+        for (Object key in keys) {
+            Object entry = entries.get(key)
+            if (entry == null || (predicate != null && !predicate.matches(key, entry))) {
+                continue
+            }
+            Object instance = session.retrieve(entity.javaClass, (Serializable) key)
+            if (instance != null) {
+                entityMap.put(key, instance)
+                if (limit > -1 && entityMap.size() >= limit) {
+                    break
                 }
             }
         }
-        if (projections.isEmpty()) {
-            results = entityMap.values() as List
+        return entityMap
+    }
+
+    @CompileStatic
+    protected Map applyOrder(Map entityMap, List<Query.Order> orders) {
+        List<Map.Entry<Object, Object>> entries = new ArrayList<Map.Entry<Object, Object>>(entityMap.entrySet())
+        Collections.sort(entries, createComparator(orders))
+        Map sorted = new LinkedHashMap(entries.size())
+        for (Map.Entry<Object, Object> entry in entries) {
+            sorted.put(entry.key, entry.value)
         }
-        else {
-            def projectionList = projections.projectionList
-            def projectionCount = projectionList.size()
-            def entityList = entityMap.values()
+        return sorted
+    }
 
-            projectionList.each { Query.Projection p ->
+    /**
+     * Selects the entities of the requested page without sorting all of the matching entities
+     */
+    @CompileStatic
+    protected List selectOrderedPage(Map entityMap, List<Query.Order> orders) {
+        List<Map.Entry<Object, Object>> page = ManualEntityOrdering.selectOrdered((Collection<Map.Entry<Object, Object>>) entityMap.entrySet(), createComparator(orders), offset, max)
+        List results = new ArrayList(page.size())
+        for (Map.Entry<Object, Object> entry in page) {
+            results.add(entry.value)
+        }
+        return results
+    }
 
-                if (p instanceof Query.IdProjection) {
-                    if (projectionCount == 1) {
-                        results = entityMap.keySet().toList()
-                    }
-                    else {
-                        results.add(entityMap.keySet().toList())
+    @CompileStatic
+    protected Comparator<Map.Entry<Object, Object>> createComparator(List<Query.Order> orders) {
+        ValueReader[] readers = new ValueReader[orders.size()]
+        boolean[] descending = new boolean[orders.size()]
+        for (int i = 0; i < orders.size(); i++) {
+            Query.Order order = orders.get(i)
+            readers[i] = SimpleMapCriteriaCompiler.entityReader(entity, order.property)
+            descending[i] = order.direction == Query.Order.Direction.DESC
+        }
+        return new ValueComparator(readers, descending)
+    }
+
+    /**
+     * Calculates all of the given projections in a single pass over the matching entities. A single projection returns
+     * its values, aggregates only return a single row of values and several value projections are transposed into a row
+     * per entity. When there are group properties, a row is produced per distinct combination of their values instead.
+     *
+     * @param entityMap The matching entities keyed by their key
+     * @param projectionList The projections
+     * @return The projected results
+     */
+    @CompileStatic
+    protected List applyProjections(Map entityMap, List<Query.Projection> projectionList) {
+        int projectionCount = projectionList.size()
+        List<ProjectionAccumulator> accumulators = []
+        List<ValueReader> readers = []
+        List<PersistentProperty> properties = []
+        List<Integer> groupColumns = []
+        for (Query.Projection projection in projectionList) {
+            ProjectionAccumulator accumulator = ProjectionAccumulator.forProjection(projection)
+            if (accumulator == null) {
+                continue
+            }
+            ValueReader reader = null
+            PersistentProperty property = null
+            if (projection instanceof Query.PropertyProjection) {
+                String propertyName = ((Query.PropertyProjection) projection).propertyName
+                if (!accumulator.aggregate) {
+                    property = entity.getPropertyByName(propertyName)
+                    if (property == null) {
+                        continue
                     }
                 }
-                else if (p instanceof Query.CountProjection) {
-                    results.add(entityList.size())
+                reader = SimpleMapCriteriaCompiler.entityReader(entity, propertyName)
+            }
+            if (projection instanceof Query.GroupPropertyProjection) {
+                groupColumns.add(accumulators.size())
+            }
+            accumulators.add(accumulator)
+            readers.add(reader)
+            properties.add(property)
+        }
+
+        int columnCount = accumulators.size()
+        if (!groupColumns.isEmpty()) {
+            return projectGroups(entityMap, accumulators, readers, properties, groupColumns, projectionCount)
+        }
+
+        for (Map.Entry entry in (Set<Map.Entry>) entityMap.entrySet()) {
+            for (int i = 0; i < columnCount; i++) {
+                ValueReader reader = readers.get(i)
+                accumulators.get(i).accumulate(reader != null ? reader.read(entry.value) : entry.key)
+            }
+        }
+
+        List results = []
+        for (int i = 0; i < columnCount; i++) {
+            ProjectionAccumulator accumulator = accumulators.get(i)
+            if (accumulator.aggregate) {
+                results.add(accumulator.result)
+                continue
+            }
+            List values = (List) accumulator.result
+            PersistentProperty property = properties.get(i)
+            if (property instanceof ToOne) {
+                for (int j = 0; j < values.size(); j++) {
+                    values.set(j, resolveAssociated((ToOne) property, values.get(j)))
                 }
-                else if (p instanceof Query.CountDistinctProjection) {
-                    final uniqueList = new ArrayList(entityList).unique { it."$p.propertyName"}
-                    results.add(uniqueList.size() )
+            }
+            if (projectionCount == 1) {
+                results.addAll(values)
+            }
+            else {
+                results.add(values)
+            }
+        }
+
+        if (results.size() <= 1 || projectionCount == 1) {           // [<col>] or [<row>, <row>, ...]
+            return results
+        }
+        if (!(results.get(0) instanceof Collection)) {              // [<col>, <col>, ...]
+            return [results]
+        }
+        return results.transpose()                                  // [[<col>, <col>, ...], ...]
+    }
+
+    @CompileStatic
+    private List projectGroups(Map entityMap, List<ProjectionAccumulator> accumulators, List<ValueReader> readers,
+                               List<PersistentProperty> properties, List<Integer> groupColumns, int projectionCount) {
+        int columnCount = accumulators.size()
+        Map<List, Object[]> groups = new LinkedHashMap<>()
+        for (Map.Entry entry in (Set<Map.Entry>) entityMap.entrySet()) {
+            Object[] values = new Object[columnCount]
+            for (int i = 0; i < columnCount; i++) {
+                ValueReader reader = readers.get(i)
+                values[i] = reader != null ? reader.read(entry.value) : entry.key
+            }
+            List groupKey = new ArrayList(groupColumns.size())
+            for (Integer column in groupColumns) {
+                groupKey.add(ValueKeys.equalityKey(values[column.intValue()]))
+            }
+
+            // a group row holds the values of the first entity of the group and an accumulator per aggregate
+            Object[] row = groups.get(groupKey)
+            if (row == null) {
+                row = new Object[columnCount]
+                for (int i = 0; i < columnCount; i++) {
+                    ProjectionAccumulator accumulator = accumulators.get(i)
+                    row[i] = accumulator.aggregate ? accumulator.newInstance() : values[i]
                 }
-                else if (p instanceof Query.PropertyProjection) {
-                    def propertyValues = entityList.collect { it."$p.propertyName"}
-                    if (p instanceof Query.MaxProjection) {
-                        results.add(propertyValues.max())
-                    }
-                    else if (p instanceof Query.MinProjection) {
-                        results.add(propertyValues.min())
-                    }
-                    else if (p instanceof Query.SumProjection) {
-                        results.add(propertyValues.sum())
-                    }
-                    else if (p instanceof Query.AvgProjection) {
-                        def average = propertyValues.sum() / propertyValues.size()
-                        results.add(average)
-                    }
-                    else {
-                        PersistentProperty prop = entity.getPropertyByName(p.propertyName)
-                        boolean distinct = p instanceof Query.DistinctPropertyProjection
-                        if (distinct) {
-                            propertyValues = propertyValues.unique()
-                        }
-
-                        if (prop) {
-                            if (prop instanceof ToOne) {
-                                propertyValues = propertyValues.collect {
-                                    if (prop.associatedEntity.isInstance(it)) {
-                                        return it
-                                    }
-                                    session.retrieve(prop.type, it)
-                                }
-                            }
-                            if (projectionCount == 1) {
-                                results.addAll(propertyValues)
-                            }
-                            else {
-                                results.add(propertyValues)
-                            }
-                        }
-                    }
+                groups.put(groupKey, row)
+            }
+            for (int i = 0; i < columnCount; i++) {
+                if (accumulators.get(i).aggregate) {
+                    ((ProjectionAccumulator) row[i]).accumulate(values[i])
                 }
             }
-            if (results.size() <= 1)                            // [<col>]
-                results
-            else if (projectionCount == 1)                      // [<row>, <row>, ...]
-                results
-            else if (!(results[0] instanceof Collection))       // [<col>, <col>, ...]
-                results = [results]
-            else                                                // [[<col>, <col>, ...], ...]
-                results = results.transpose()
         }
-        if (results) {
-            return applyMaxAndOffset(results)
+
+        List rows = new ArrayList(groups.size())
+        for (Object[] row in groups.values()) {
+            List values = new ArrayList(columnCount)
+            for (int i = 0; i < columnCount; i++) {
+                PersistentProperty property = properties.get(i)
+                if (accumulators.get(i).aggregate) {
+                    values.add(((ProjectionAccumulator) row[i]).result)
+                }
+                else {
+                    values.add(property instanceof ToOne ? resolveAssociated((ToOne) property, row[i]) : row[i])
+                }
+            }
+            // a single group property returns its distinct values rather than rows
+            rows.add(projectionCount == 1 ? values.get(0) : values)
         }
-        return Collections.emptyList()
+        return rows
+    }
+
+    @CompileStatic
+    private Object resolveAssociated(ToOne property, Object value) {
+        if (value == null || property.associatedEntity.isInstance(value)) {
+            return value
+        }
+        return session.retrieve(property.type, (Serializable) value)
     }
 
     private List applyMaxAndOffset(List sortedResults) {
@@ -468,21 +605,8 @@ class SimpleMapQuery extends Query {
             return negateResults(indexed)
         },
         (Query.Like): { Query.Like like, PersistentProperty property ->
-            def indexer = entityPersister.getPropertyIndexer(property)
-
-            def root = indexer.indexRoot
             def regexFormat = like.pattern.replaceAll('%', '.*?')
-            def pattern = "${root}:${regexFormat}"
-            def matchingIndices = entityPersister.indices.findAll { key, value ->
-                key ==~ pattern
-            }
-
-            Set result = []
-            for (indexed in matchingIndices) {
-                result.addAll(indexed.value)
-            }
-
-            return result.toList()
+            return entityPersister.getPropertyIndex(property).queryMatching(Pattern.compile(regexFormat))
         },
         (Query.ILike): { Query.ILike like, PersistentProperty property ->
             def regexFormat = like.pattern.replaceAll('%', '.*?')
@@ -493,6 +617,11 @@ class SimpleMapQuery extends Query {
             return executeLikeWithRegex(entityPersister, property, regexFormat)
         },
         (Query.In): { Query.In inList, PersistentProperty property ->
+            def indexed = queryInIndex(inList, property)
+            if (indexed != null) {
+                return indexed
+            }
+
             def disjunction = new Query.Disjunction()
             for (value in inList.values) {
                 disjunction.add(Restrictions.eq(inList.name, value))
@@ -504,6 +633,12 @@ class SimpleMapQuery extends Query {
             def from = between.from
             def to = between.to
             def name = between.property
+            if (function == null && from != null && to != null) {
+                def indexed = queryRangeIndex(property, name, from, true, to, true)
+                if (indexed != null) {
+                    return indexed
+                }
+            }
             def allEntities = datastore[family]
 
             if (function != null) {
@@ -516,6 +651,12 @@ class SimpleMapQuery extends Query {
         (Query.GreaterThan): { Query.GreaterThan gt, PersistentProperty property, Closure function = null, boolean onValue = false ->
             def name = gt.property
             final value = subqueryIfNecessary(gt)
+            if (function == null && value != null) {
+                def indexed = queryRangeIndex(property, name, value, false, null, false)
+                if (indexed != null) {
+                    return indexed
+                }
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { (function != null ? function(resolveIfEmbedded(name, it.value)) : resolveIfEmbedded(name, it.value)) > value }.collect { it.key }
@@ -595,6 +736,12 @@ class SimpleMapQuery extends Query {
         (Query.GreaterThanEquals): { Query.GreaterThanEquals gt, PersistentProperty property ->
             def name = gt.property
             final value = subqueryIfNecessary(gt)
+            if (value != null) {
+                def indexed = queryRangeIndex(property, name, value, true, null, false)
+                if (indexed != null) {
+                    return indexed
+                }
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) >= value }.collect { it.key }
@@ -602,6 +749,12 @@ class SimpleMapQuery extends Query {
         (Query.LessThan): { Query.LessThan lt, PersistentProperty property ->
             def name = lt.property
             final value = subqueryIfNecessary(lt)
+            if (value != null) {
+                def indexed = queryRangeIndex(property, name, null, false, value, false)
+                if (indexed != null) {
+                    return indexed
+                }
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) < value }.collect { it.key }
@@ -609,6 +762,12 @@ class SimpleMapQuery extends Query {
         (Query.LessThanEquals): { Query.LessThanEquals lte, PersistentProperty property ->
             def name = lte.property
             final value = subqueryIfNecessary(lte)
+            if (value != null) {
+                def indexed = queryRangeIndex(property, name, null, false, value, true)
+                if (indexed != null) {
+                    return indexed
+                }
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) <= value }.collect { it.key }
@@ -630,6 +789,57 @@ class SimpleMapQuery extends Query {
         return value
     }
 
+    /**
+     * Answers a range criterion from the sorted index of the given property. Association and embedded
+     * properties are never answered from the index. Without a lower bound the entries without a value
+     * are included, like when the family is scanned.
+     *
+     * @param property The property
+     * @param propertyName The property name used in the criterion
+     * @param from The lower bound or null if unbounded
+     * @param fromInclusive Whether the lower bound is inclusive
+     * @param to The upper bound or null if unbounded
+     * @param toInclusive Whether the upper bound is inclusive
+     * @return The matching keys or null if the criterion has to be evaluated by scanning the family
+     */
+    protected List queryRangeIndex(PersistentProperty property, String propertyName, from, boolean fromInclusive, to, boolean toInclusive) {
+        if (!isIndexQueryable(property, propertyName)) {
+            return null
+        }
+        return entityPersister.getPropertyIndex(property).queryRange(from, fromInclusive, to, toInclusive)
+    }
+
+    /**
+     * Answers an in criterion by looking up each value in the property value index
+     *
+     * @param inList The criterion
+     * @param property The property
+     * @return The matching keys or null if the criterion has to be evaluated as a disjunction
+     */
+    protected List queryInIndex(Query.In inList, PersistentProperty property) {
+        if (inList.subquery != null || property == null || property instanceof Custom || inList.name.contains('.')) {
+            return null
+        }
+        def values = inList.values
+        if (values.contains(null)) {
+            return null
+        }
+
+        def indexer = entityPersister.getPropertyIndexer(property)
+        Set keys = new LinkedHashSet()
+        for (value in values) {
+            if (property instanceof ToOne && property.type.isInstance(value)) {
+                value = entityPersister.getObjectIdentifier(value)
+            }
+            keys.addAll(indexer.query(value))
+        }
+        return keys.toList()
+    }
+
+    private boolean isIndexQueryable(PersistentProperty property, String propertyName) {
+        return property != null && !(property instanceof Association) && !propertyName.contains('.')
+    }
+
     /**
      * If the property name refers to an embedded property like 'foo.startDate', then we need
      * resolve the value of startDate by walking through the key list.
@@ -648,20 +858,8 @@ class SimpleMapQuery extends Query {
     }
 
     protected List executeLikeWithRegex(SimpleMapEntityPersister entityPersister, PersistentProperty property, regexFormat) {
-        def indexer = entityPersister.getPropertyIndexer(property)
-
-        def root = indexer.indexRoot
-        def pattern = Pattern.compile("${root}:${regexFormat}", Pattern.CASE_INSENSITIVE)
-        def matchingIndices = entityPersister.indices.findAll { key, value ->
-            pattern.matcher(key).matches()
-        }
-
-        Set result = []
-        for (indexed in matchingIndices) {
-            result.addAll(indexed.value)
-        }
-
-        return result.toList()
+        def pattern = Pattern.compile(regexFormat.toString(), Pattern.CASE_INSENSITIVE)
+        return entityPersister.getPropertyIndex(property).queryMatching(pattern)
     }
 
     private ArrayList negateResults(List results) {
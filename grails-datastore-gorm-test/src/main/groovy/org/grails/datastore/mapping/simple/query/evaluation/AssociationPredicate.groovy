@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.query.evaluation
+
+import groovy.transform.CompileStatic
+import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.model.types.Association
+import org.grails.datastore.mapping.model.types.ToOne
+import org.grails.datastore.mapping.simple.engine.SimpleMapEntityPersister
+
+/**
+ * Matches the native entries that have an associated entity matching the given predicate
+ *
+ * @since 7.1
+ */
+@CompileStatic
+class AssociationPredicate extends EntryPredicate {
+
+    final Association association
+    final EntryPredicate predicate
+    private final Session session
+    private final SimpleMapEntityPersister entityPersister
+
+    AssociationPredicate(Session session, SimpleMapEntityPersister entityPersister, Association association, EntryPredicate predicate) {
+        this.session = session
+        this.entityPersister = entityPersister
+        this.association = association
+        this.predicate = predicate
+    }
+
+    @Override
+    boolean matches(Object key, Object value) {
+        PersistentEntity associatedEntity = association.associatedEntity
+        if (associatedEntity == null) {
+            // if the entity isn't mocked properly this will happen
+            throw new IllegalStateException("No associated entity found for ${association.owner}.${association.name}")
+        }
+
+        Map entry = (Map) value
+        if (association instanceof ToOne) {
+            Object id = entry.get(association.name)
+            if (id == null) {
+                return false
+            }
+            Object associated = session.retrieve(associatedEntity.javaClass, (Serializable) id)
+            return associated != null && predicate.matches(id, associated)
+        }
+
+        List keys = entityPersister.getAssociationIndexer(entry, association).query(key)
+        if (keys == null || keys.isEmpty()) {
+            return false
+        }
+        for (Object associated in session.retrieveAll(associatedEntity.javaClass, (Iterable) keys)) {
+            if (associated != null && predicate.matches(null, associated)) {
+                return true
+            }
+        }
+        return false
+    }
+}
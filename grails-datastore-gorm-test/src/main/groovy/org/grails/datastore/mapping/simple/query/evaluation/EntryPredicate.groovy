@@ -0,0 +1,314 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.query.evaluation
+
+import groovy.transform.CompileStatic
+import org.codehaus.groovy.runtime.ScriptBytecodeAdapter
+
+import java.util.regex.Pattern
+
+/**
+ * A compiled criterion of a {@link org.grails.datastore.mapping.simple.query.SimpleMapQuery}. Predicates are evaluated
+ * against the key and value of an entry, where the value is either a native entry or, for association criteria,
+ * an associated entity.
+ *
+ * Comparisons follow the semantics of the equivalent Groovy operators.
+ *
+ * @since 7.1
+ */
+@CompileStatic
+abstract class EntryPredicate {
+
+    /**
+     * A predicate that never matches
+     */
+    static final EntryPredicate NONE = new EntryPredicate() {
+        @Override
+        boolean matches(Object key, Object value) {
+            return false
+        }
+
+        @Override
+        Collection<Object> getCandidateKeys() {
+            return Collections.emptyList()
+        }
+    }
+
+    /**
+     * @param key The key of the entry
+     * @param value The value of the entry
+     * @return Whether the entry matches
+     */
+    abstract boolean matches(Object key, Object value)
+
+    /**
+     * @return The keys that can match, in result order, or null if any key of the family can match
+     */
+    Collection<Object> getCandidateKeys() {
+        return null
+    }
+
+    static enum Operator {
+        EQ, NE, GT, GTE, LT, LTE
+
+        boolean apply(Object left, Object right) {
+            switch (this) {
+                case EQ:
+                    return ScriptBytecodeAdapter.compareEqual(left, right)
+                case NE:
+                    return ScriptBytecodeAdapter.compareNotEqual(left, right)
+                case GT:
+                    return ScriptBytecodeAdapter.compareGreaterThan(left, right)
+                case GTE:
+                    return ScriptBytecodeAdapter.compareGreaterThanEqual(left, right)
+                case LT:
+                    return ScriptBytecodeAdapter.compareLessThan(left, right)
+                default:
+                    return ScriptBytecodeAdapter.compareLessThanEqual(left, right)
+            }
+        }
+    }
+
+    /**
+     * Compares a value against a constant
+     */
+    static class Comparison extends EntryPredicate {
+        final ValueReader reader
+        final Operator operator
+        final Object value
+
+        Comparison(ValueReader reader, Operator operator, Object value) {
+            this.reader = reader
+            this.operator = operator
+            this.value = value
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            return operator.apply(reader.read(target), value)
+        }
+    }
+
+    /**
+     * Compares a value against another value of the same entry
+     */
+    static class PropertyComparison extends EntryPredicate {
+        final ValueReader reader
+        final Operator operator
+        final ValueReader other
+
+        PropertyComparison(ValueReader reader, Operator operator, ValueReader other) {
+            this.reader = reader
+            this.operator = operator
+            this.other = other
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            return operator.apply(reader.read(target), other.read(target))
+        }
+    }
+
+    /**
+     * Matches values between two inclusive bounds
+     */
+    static class Between extends EntryPredicate {
+        final ValueReader reader
+        final Object from
+        final Object to
+
+        Between(ValueReader reader, Object from, Object to) {
+            this.reader = reader
+            this.from = from
+            this.to = to
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            Object value = reader.read(target)
+            return ScriptBytecodeAdapter.compareGreaterThanEqual(value, from) && ScriptBytecodeAdapter.compareLessThanEqual(value, to)
+        }
+    }
+
+    /**
+     * Matches the string form of a value against a pattern
+     */
+    static class PatternMatch extends EntryPredicate {
+        final ValueReader reader
+        final Pattern pattern
+        final boolean find
+
+        /**
+         * @param reader The value reader
+         * @param pattern The pattern
+         * @param find Whether the pattern only has to be found in the value rather than match all of it
+         */
+        PatternMatch(ValueReader reader, Pattern pattern, boolean find) {
+            this.reader = reader
+            this.pattern = pattern
+            this.find = find
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            Object value = reader.read(target)
+            if (value == null) {
+                return false
+            }
+            def matcher = pattern.matcher(value.toString())
+            return find ? matcher.find() : matcher.matches()
+        }
+    }
+
+    /**
+     * Matches values contained in a collection
+     */
+    static class InList extends EntryPredicate {
+        final ValueReader reader
+        final Collection values
+
+        InList(ValueReader reader, Collection values) {
+            this.reader = reader
+            this.values = values
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            return values != null && values.contains(reader.read(target))
+        }
+    }
+
+    /**
+     * Matches the entries with the given keys, typically the result of an index lookup
+     */
+    static class KeySet extends EntryPredicate {
+        final Collection<Object> keys
+        private final Set<Object> keySet
+
+        KeySet(Collection<Object> keys) {
+            this.keys = keys
+            this.keySet = keys instanceof Set ? (Set<Object>) keys : new HashSet<Object>(keys)
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            return keySet.contains(key)
+        }
+
+        @Override
+        Collection<Object> getCandidateKeys() {
+            return keys
+        }
+    }
+
+    /**
+     * Matches when all of the given predicates match
+     */
+    static class Conjunction extends EntryPredicate {
+        final EntryPredicate[] predicates
+        private final Collection<Object> candidateKeys
+
+        Conjunction(List<EntryPredicate> predicates) {
+            // evaluate the predicates backed by keys first, they are the cheapest
+            List<EntryPredicate> ordered = new ArrayList<>(predicates.size())
+            List<EntryPredicate> scanning = new ArrayList<>(predicates.size())
+            Collection<Object> smallest = null
+            for (EntryPredicate predicate in predicates) {
+                Collection<Object> keys = predicate.candidateKeys
+                if (keys != null) {
+                    ordered.add(predicate)
+                    if (smallest == null || keys.size() < smallest.size()) {
+                        smallest = keys
+                    }
+                }
+                else {
+                    scanning.add(predicate)
+                }
+            }
+            ordered.addAll(scanning)
+            this.predicates = ordered as EntryPredicate[]
+            this.candidateKeys = smallest
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            for (EntryPredicate predicate in predicates) {
+                if (!predicate.matches(key, target)) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        @Override
+        Collection<Object> getCandidateKeys() {
+            return candidateKeys
+        }
+    }
+
+    /**
+     * Matches when any of the given predicates match
+     */
+    static class Disjunction extends EntryPredicate {
+        final EntryPredicate[] predicates
+        private final Collection<Object> candidateKeys
+
+        Disjunction(List<EntryPredicate> predicates) {
+            this.predicates = predicates as EntryPredicate[]
+            Set<Object> union = new LinkedHashSet<>()
+            for (EntryPredicate predicate in predicates) {
+                Collection<Object> keys = predicate.candidateKeys
+                if (keys == null) {
+                    union = null
+                    break
+                }
+                union.addAll(keys)
+            }
+            this.candidateKeys = union
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            for (EntryPredicate predicate in predicates) {
+                if (predicate.matches(key, target)) {
+                    return true
+                }
+            }
+            return false
+        }
+
+        @Override
+        Collection<Object> getCandidateKeys() {
+            return candidateKeys
+        }
+    }
+
+    /**
+     * Matches when the given predicate does not match
+     */
+    static class Negation extends EntryPredicate {
+        final EntryPredicate predicate
+
+        Negation(EntryPredicate predicate) {
+            this.predicate = predicate
+        }
+
+        @Override
+        boolean matches(Object key, Object target) {
+            return !predicate.matches(key, target)
+        }
+    }
+}
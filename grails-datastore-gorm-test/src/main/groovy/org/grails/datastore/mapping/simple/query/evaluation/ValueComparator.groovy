@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.query.evaluation
+
+import groovy.transform.CompileStatic
+import org.codehaus.groovy.runtime.ScriptBytecodeAdapter
+
+/**
+ * Orders the entries of a query result by one or more values of the entities they hold, with the semantics of the
+ * Groovy spaceship operator. The first reader is the primary sort key and later readers only break ties.
+ *
+ * @since 7.1
+ */
+@CompileStatic
+class ValueComparator implements Comparator<Map.Entry<Object, Object>> {
+
+    final ValueReader[] readers
+    final boolean[] descending
+
+    ValueComparator(ValueReader reader, boolean descending) {
+        this([reader] as ValueReader[], [descending] as boolean[])
+    }
+
+    ValueComparator(ValueReader[] readers, boolean[] descending) {
+        this.readers = readers
+        this.descending = descending
+    }
+
+    @Override
+    int compare(Map.Entry<Object, Object> e1, Map.Entry<Object, Object> e2) {
+        for (int i = 0; i < readers.length; i++) {
+            ValueReader reader = readers[i]
+            int cmp = ScriptBytecodeAdapter.compareTo(reader.read(e1.value), reader.read(e2.value))
+            if (cmp != 0) {
+                return descending[i] ? -cmp : cmp
+            }
+        }
+        return 0
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.query.evaluation
+
+import groovy.transform.CompileStatic
+import org.codehaus.groovy.runtime.InvokerHelper
+import org.grails.datastore.mapping.reflect.EntityReflector
+import org.springframework.dao.InvalidDataAccessResourceUsageException
+
+/**
+ * Reads the value a criterion is evaluated against, either from a native entry or from an entity instance.
+ *
+ * @since 7.1
+ */
+@CompileStatic
+abstract class ValueReader {
+
+    /**
+     * @param target The native entry or entity instance
+     * @return The value
+     */
+    abstract Object read(Object target)
+
+    /**
+     * Reads a key of a native entry
+     */
+    static class EntryValue extends ValueReader {
+        final String key
+
+        EntryValue(String key) {
+            this.key = key
+        }
+
+        @Override
+        Object read(Object target) {
+            return target != null ? ((Map) target).get(key) : null
+        }
+    }
+
+    /**
+     * Reads a property of an entity instance through its {@link EntityReflector.PropertyReader}
+     */
+    static class EntityValue extends ValueReader {
+        final EntityReflector.PropertyReader reader
+
+        EntityValue(EntityReflector.PropertyReader reader) {
+            this.reader = reader
+        }
+
+        @Override
+        Object read(Object target) {
+            return target != null ? reader.read(target) : null
+        }
+    }
+
+    /**
+     * Reads a property dynamically, used for properties that have no {@link EntityReflector.PropertyReader}
+     */
+    static class DynamicValue extends ValueReader {
+        final String property
+
+        DynamicValue(String property) {
+            this.property = property
+        }
+
+        @Override
+        Object read(Object target) {
+            if (target == null) {
+                return null
+            }
+            if (target instanceof Map) {
+                return ((Map) target).get(property)
+            }
+            return InvokerHelper.getProperty(target, property)
+        }
+    }
+
+    /**
+     * Reads a property of an embedded value, for example 'address.postCode'
+     */
+    static class NestedValue extends ValueReader {
+        final ValueReader parent
+        final DynamicValue nested
+
+        NestedValue(ValueReader parent, String nested) {
+            this.parent = parent
+            this.nested = new DynamicValue(nested)
+        }
+
+        @Override
+        Object read(Object target) {
+            return nested.read(parent.read(target))
+        }
+    }
+
+    /**
+     * Applies a function such as 'lower' or 'year' to the value read by another reader
+     */
+    static class FunctionValue extends ValueReader {
+        private static final Map<String, Integer> CALENDAR_FIELDS = [
+                second: Calendar.SECOND,
+                minute: Calendar.MINUTE,
+                hour  : Calendar.HOUR_OF_DAY,
+                year  : Calendar.YEAR,
+                month : Calendar.MONTH,
+                day   : Calendar.DAY_OF_MONTH
+        ]
+        private static final Set<String> STRING_FUNCTIONS = ['lower', 'upper', 'trim', 'length'] as Set<String>
+
+        final ValueReader delegate
+        final String functionName
+        private final Integer calendarField
+
+        FunctionValue(ValueReader delegate, String functionName) {
+            if (!CALENDAR_FIELDS.containsKey(functionName) && !STRING_FUNCTIONS.contains(functionName)) {
+                throw new InvalidDataAccessResourceUsageException("Unsupported function '$functionName' used in query")
+            }
+            this.delegate = delegate
+            this.functionName = functionName
+            this.calendarField = CALENDAR_FIELDS.get(functionName)
+        }
+
+        @Override
+        Object read(Object target) {
+            Object value = delegate.read(target)
+            if (calendarField != null) {
+                Calendar calendar
+                if (value instanceof Calendar) {
+                    calendar = (Calendar) value
+                }
+                else if (value instanceof Date) {
+                    calendar = Calendar.getInstance()
+                    calendar.setTime((Date) value)
+                }
+                else {
+                    throw new InvalidDataAccessResourceUsageException("Unsupported function '$functionName' used in query")
+                }
+                return calendar.get(calendarField.intValue())
+            }
+
+            String text = String.valueOf(value)
+            switch (functionName) {
+                case 'lower':
+                    return text.toLowerCase()
+                case 'upper':
+                    return text.toUpperCase()
+                case 'trim':
+                    return text.trim()
+                default:
+                    return text.length()
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class AutoFlushThresholdSpec extends GormDatastoreSpec {
+
+    void "the session is flushed once the number of pending operations reaches the threshold"() {
+        given:
+        session.flushThreshold = 10
+
+        when:
+        25.times { new Reading(value: it).save() }
+
+        then:
+        session.pendingOperationCount == 5
+        session.pendingInserts.values()*.size().sum() == 5
+        session.datastore.backingMap[Reading.name].size() == 20
+    }
+
+    void "instances written by an automatic flush can be evicted from the session"() {
+        given:
+        session.flushThreshold = 10
+        session.evictOnAutoFlush = true
+
+        when:
+        def readings = (0..<15).collect { new Reading(value: it).save() }
+
+        then:
+        readings[0..9].every { !session.contains(it) }
+        readings[10..14].every { session.contains(it) }
+
+        when:
+        session.flush()
+
+        then:
+        Reading.count() == 15
+    }
+
+    void "the session is flushed once the estimated size of the pending operations reaches the threshold"() {
+        given:
+        session.flushSizeThreshold = 1
+
+        when:
+        new Reading(value: 1).save()
+
+        then:
+        session.pendingOperationCount == 0
+        session.pendingOperationSize == 0
+        session.datastore.backingMap[Reading.name].size() == 1
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Reading]
+    }
+}
+
+@Entity
+class Reading {
+    Long id
+    Integer value
+}
@@ -0,0 +1,123 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class BatchFlushSpec extends GormDatastoreSpec {
+
+    void setup() {
+        Sensor.callbacks.clear()
+    }
+
+    void "each pending insert is stored before the pre-events of the next one fire"() {
+        when:
+        new Sensor(name: "a").save()
+        new Sensor(name: "b").save()
+        new Sensor(name: "c").save()
+        session.flush()
+
+        then:
+        Sensor.callbacks == ["beforeInsert a", "afterInsert a", "beforeInsert b", "afterInsert b", "beforeInsert c", "afterInsert c"]
+        Sensor.count() == 3
+    }
+
+    void "pending inserts of an entity are written as a batch if the persister defers them"() {
+        given:
+        session.getPersister(Sensor).batchWriteDeferred = true
+
+        when:
+        new Sensor(name: "a").save()
+        new Sensor(name: "b").save()
+        new Sensor(name: "c").save()
+        session.flush()
+
+        then:
+        Sensor.callbacks == ["beforeInsert a", "beforeInsert b", "beforeInsert c", "afterInsert a", "afterInsert b", "afterInsert c"]
+        Sensor.count() == 3
+    }
+
+    void "a vetoed insert is left out of the batch"() {
+        given:
+        session.getPersister(Sensor).batchWriteDeferred = true
+
+        when:
+        new Sensor(name: "a").save()
+        new Sensor(name: "veto").save()
+        new Sensor(name: "c").save()
+        session.flush()
+        session.clear()
+
+        then:
+        Sensor.list()*.name.sort() == ["a", "c"]
+        !Sensor.callbacks.contains("afterInsert veto")
+    }
+
+    void "each pending update is written before the pre-events of the next one fire"() {
+        given:
+        def a = new Sensor(name: "a").save()
+        def b = new Sensor(name: "b").save(flush: true)
+        Sensor.callbacks.clear()
+
+        when:
+        a.name = "x"
+        b.name = "y"
+        a.save()
+        b.save()
+        session.flush()
+        session.clear()
+
+        then:
+        Sensor.callbacks == ["beforeUpdate x", "afterUpdate x", "beforeUpdate y", "afterUpdate y"]
+        Sensor.list()*.name.sort() == ["x", "y"]
+    }
+
+    void "pending updates of an entity are written as a batch if the persister defers them"() {
+        given:
+        def a = new Sensor(name: "a").save()
+        def b = new Sensor(name: "b").save(flush: true)
+        session.getPersister(Sensor).batchWriteDeferred = true
+        Sensor.callbacks.clear()
+
+        when:
+        a.name = "x"
+        b.name = "y"
+        a.save()
+        b.save()
+        session.flush()
+        session.clear()
+
+        then:
+        Sensor.callbacks == ["beforeUpdate x", "beforeUpdate y", "afterUpdate x", "afterUpdate y"]
+        Sensor.list()*.name.sort() == ["x", "y"]
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Sensor]
+    }
+}
+
+@Entity
+class Sensor {
+    static List<String> callbacks = []
+
+    Long id
+    String name
+
+    def beforeInsert() {
+        callbacks << "beforeInsert $name".toString()
+        return name != "veto"
+    }
+
+    def afterInsert() {
+        callbacks << "afterInsert $name".toString()
+    }
+
+    def beforeUpdate() {
+        callbacks << "beforeUpdate $name".toString()
+    }
+
+    def afterUpdate() {
+        callbacks << "afterUpdate $name".toString()
+    }
+}
@@ -0,0 +1,49 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class BatchRetrievalSpec extends GormDatastoreSpec {
+
+    void "getAll returns the entities in the order of the identifiers"() {
+        given:
+        def a = new Gauge(name: "a").save()
+        def b = new Gauge(name: "b").save()
+        def c = new Gauge(name: "c").save(flush: true)
+        session.clear()
+        def cachedB = Gauge.get(b.id)
+
+        when:
+        def results = Gauge.getAll(c.id, 1000L, b.id, a.id)
+
+        then:
+        results*.name == ["c", null, "b", "a"]
+        results[2].is(cachedB)
+    }
+
+    void "getAll converts identifiers and caches the retrieved entities in the session"() {
+        given:
+        def a = new Gauge(name: "a").save()
+        def b = new Gauge(name: "b").save(flush: true)
+        session.clear()
+
+        when:
+        def results = Gauge.getAll(b.id.toString(), a.id.toString())
+
+        then:
+        results*.name == ["b", "a"]
+        Gauge.get(a.id).is(results[1])
+        Gauge.get(b.id).is(results[0])
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Gauge]
+    }
+}
+
+@Entity
+class Gauge {
+    Long id
+    String name
+}
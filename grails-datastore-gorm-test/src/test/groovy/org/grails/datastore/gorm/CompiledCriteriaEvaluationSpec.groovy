@@ -0,0 +1,140 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class CompiledCriteriaEvaluationSpec extends GormDatastoreSpec {
+
+    @Override
+    List getDomainClasses() {
+        [Shelf, Novel]
+    }
+
+    void setupData() {
+        def fiction = new Shelf(name: "fiction").save()
+        def poetry = new Shelf(name: "poetry").save()
+        new Novel(title: "Dune", pages: 600, shelf: fiction).save()
+        new Novel(title: "Emma", pages: 400, shelf: fiction).save()
+        new Novel(title: "Odes", pages: 80, shelf: poetry).save()
+        new Novel(title: "Untitled", pages: 10).save(flush: true)
+        session.clear()
+    }
+
+    void "Test nested junctions and negation are evaluated in a single pass"() {
+        given:
+        setupData()
+
+        expect:
+        Novel.withCriteria {
+            or {
+                and {
+                    gt 'pages', 100
+                    like 'title', 'E%'
+                }
+                isNull 'shelf'
+            }
+        }*.title.sort() == ["Emma", "Untitled"]
+
+        Novel.withCriteria {
+            not {
+                eq 'title', 'Dune'
+                lt 'pages', 50
+            }
+        }*.title.sort() == ["Emma", "Odes"]
+
+        Novel.withCriteria {
+            ne 'title', 'Dune'
+            isNotNull 'shelf'
+        }*.title.sort() == ["Emma", "Odes"]
+    }
+
+    void "Test range criteria match the same entries from the index and from the compiled predicates"() {
+        given:
+        setupData()
+        new Novel(title: "Blank").save(flush: true)
+        session.clear()
+        def queries = {
+            [
+                Novel.withCriteria { or { lt 'pages', 100; eq 'title', 'Dune' } }*.title.sort(),
+                Novel.withCriteria { le 'pages', 80 }*.title.sort(),
+                Novel.withCriteria { between 'pages', 10, 400 }*.title.sort(),
+                Novel.withCriteria { not { gt 'pages', 80 } }*.title.sort()
+            ]
+        }
+
+        when:
+        def indexed = queries()
+        // a value that cannot be compared with the others disables the sorted index, so the predicates are evaluated
+        session.getPersister(Novel).getPropertyIndex(Novel.gormPersistentEntity.getPropertyByName("pages")).index(new Object(), -1L)
+        session.clear()
+        def compiled = queries()
+
+        then:
+        indexed == [["Blank", "Dune", "Odes", "Untitled"], ["Blank", "Odes", "Untitled"], ["Emma", "Odes", "Untitled"], ["Blank", "Odes", "Untitled"]]
+        compiled == indexed
+    }
+
+    void "Test association criteria are evaluated against the associated entity"() {
+        given:
+        setupData()
+
+        expect:
+        Novel.withCriteria {
+            shelf {
+                eq 'name', 'fiction'
+            }
+            order 'pages', 'desc'
+        }*.title == ["Dune", "Emma"]
+
+        Novel.withCriteria {
+            shelf {
+                ilike 'name', 'POE%'
+            }
+        }*.title == ["Odes"]
+    }
+
+    void "Test ordering by multiple properties"() {
+        given:
+        setupData()
+        new Novel(title: "Another", pages: 400).save(flush: true)
+        session.clear()
+
+        expect:
+        Novel.withCriteria {
+            order 'pages', 'desc'
+            order 'title', 'asc'
+        }*.title == ["Dune", "Another", "Emma", "Odes", "Untitled"]
+    }
+
+    void "Test paging with and without ordering"() {
+        given:
+        setupData()
+
+        expect:
+        Novel.list(max: 2, sort: 'pages', order: 'desc')*.title == ["Dune", "Emma"]
+        Novel.list(offset: 1, max: 2, sort: 'pages')*.title == ["Odes", "Emma"]
+        Novel.list(offset: 3, max: 2, sort: 'pages')*.title == ["Dune"]
+        Novel.list(max: 3).size() == 3
+        Novel.list(offset: 3, max: 3).size() == 1
+        Novel.findAllByPagesGreaterThan(50, [max: 1, sort: 'title'])*.title == ["Dune"]
+    }
+}
+
+@Entity
+class Shelf {
+    Long id
+    String name
+}
+
+@Entity
+class Novel {
+    Long id
+    String title
+    Integer pages
+    Shelf shelf
+
+    static constraints = {
+        shelf nullable: true
+        pages nullable: true
+    }
+}
@@ -208,6 +208,68 @@ class CriteriaProjectedResultsSpec extends GormDatastoreSpec {
             [['eighty-three', 83], ['seventy', 83]] == model
     }
 
+    void "Test aggregate projections are calculated together"() {
+        given:"Multiple records"
+            new Check(amount: 57, descr: 'odd').save()
+            new Check(amount: 83, descr: 'odd').save()
+            new Check(amount: 20, descr: 'even').save()
+            new Check(amount: 30).save(flush: true)
+
+        when:"Several aggregates are projected"
+            def model = Check.withCriteria {
+                projections {
+                    rowCount()
+                    sum 'amount'
+                    min 'amount'
+                    max 'amount'
+                    avg 'amount'
+                    countDistinct 'descr'
+                }
+            }
+
+        then:"A single row with all of the aggregates is returned"
+            [[4, 190, 20, 83, 47.5, 2]] == model
+
+        when:"A property is grouped on its own"
+            model = Check.withCriteria {
+                projections {
+                    groupProperty 'descr'
+                }
+                isNotNull 'descr'
+                order 'amount'
+            }
+
+        then:"A value is returned per group"
+            ['even', 'odd'] == model
+
+        when:"Aggregates are grouped by a property"
+            model = Check.withCriteria {
+                projections {
+                    groupProperty 'descr'
+                    sum 'amount'
+                    rowCount()
+                }
+                isNotNull 'descr'
+                order 'amount'
+            }
+
+        then:"A row is returned per group"
+            [['even', 20, 1], ['odd', 140, 2]] == model
+
+        when:"Several properties are projected"
+            model = Check.withCriteria {
+                projections {
+                    property 'descr'
+                    property 'amount'
+                }
+                isNotNull 'descr'
+                order 'amount'
+            }
+
+        then:"A row is returned per entity"
+            [['even', 20], ['odd', 57], ['odd', 83]] == model
+    }
+
     @Override
     List getDomainClasses() {
         [Check]
@@ -0,0 +1,153 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+import org.grails.datastore.mapping.reflect.EntityReflector
+import org.grails.datastore.mapping.reflect.GeneratedPropertyAccess
+
+class GeneratedPropertyAccessSpec extends GormDatastoreSpec {
+
+    void "entities are compiled with property access by ordinal"() {
+        expect:
+        GeneratedPropertyAccess.isAssignableFrom(Gadget)
+        Gadget.getDeclaredAnnotation(GeneratedPropertyAccess.Properties).value().toList().containsAll(["name", "weight", "id", "version"])
+        SpecialGadget.getDeclaredAnnotation(GeneratedPropertyAccess.Properties).value().toList() == ["feature"]
+    }
+
+    void "an ordinal refers to the same field in instances of subclasses"() {
+        given:
+        def gadget = new SpecialGadget(name: "a", weight: 1, feature: "b")
+
+        expect:
+        reflectorFor(Gadget).getProperty(gadget, "name") == "a"
+        reflectorFor(Gadget).getProperty(gadget, "weight") == 1
+    }
+
+    void "the entity reflector reads and writes properties through the generated methods"() {
+        given:
+        EntityReflector reflector = reflectorFor(SpecialGadget)
+        def gadget = new SpecialGadget(name: "a", weight: 1, feature: "b")
+
+        when:
+        reflector.setProperty(gadget, "name", "c")
+        reflector.setProperty(gadget, "feature", "d")
+        reflector.setIdentifier(gadget, 10L)
+
+        then:
+        reflector.getPropertyReader("name").getClass().simpleName == "GeneratedReader"
+        reflector.getProperty(gadget, "name") == "c"
+        reflector.getProperty(gadget, "weight") == 1
+        gadget.feature == "d"
+        reflector.getIdentifier(gadget) == 10L
+
+        when:
+        reflector.setProperty(gadget, "weight", null)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    void "values of the wrong type are rejected like reflective field access does"() {
+        given:
+        EntityReflector reflector = reflectorFor(Gadget)
+        def gadget = new Gadget(name: "a", weight: 1)
+
+        when:
+        reflector.setProperty(gadget, "weight", 1L)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Can not set int field ${Gadget.name}.weight to java.lang.Long"
+
+        when:
+        reflector.setProperty(gadget, "name", 1)
+
+        then:
+        e = thrown()
+        e.message == "Can not set java.lang.String field ${Gadget.name}.name to java.lang.Integer"
+
+        when:
+        reflector.setProperty(gadget, "name", null)
+        reflector.setProperty(gadget, "weight", 2)
+
+        then:
+        gadget.name == null
+        gadget.weight == 2
+    }
+
+    void "primitive values are widened like reflective field access does"() {
+        given:
+        EntityReflector reflector = reflectorFor(Gadget)
+        def gadget = new Gadget(name: "a", weight: 1)
+
+        when:
+        reflector.setProperty(gadget, "serial", 5)
+        reflector.setProperty(gadget, "rating", 1.5f)
+        reflector.setProperty(gadget, "weight", (short) 3)
+
+        then:
+        gadget.serial == 5L
+        gadget.rating == 1.5d
+        gadget.weight == 3
+
+        when:
+        reflector.setProperty(gadget, "weight", 'x' as char)
+
+        then:
+        gadget.weight == 120
+
+        when:
+        reflector.setProperty(gadget, "serial", 1.5d)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Can not set long field ${Gadget.name}.serial to java.lang.Double"
+    }
+
+    void "the dirty checking state is read through the entity"() {
+        given:
+        def gadget = new Gadget(name: "a", weight: 1)
+        gadget.trackChanges()
+
+        when:
+        gadget.name = "b"
+
+        then:
+        reflectorFor(Gadget).getDirtyCheckingState(gadget) == [name: "a"]
+    }
+
+    void "entities with generated property access are persisted"() {
+        when:
+        def id = new SpecialGadget(name: "a", weight: 2, feature: "b").save(flush: true).id
+        session.clear()
+        def gadget = SpecialGadget.get(id)
+
+        then:
+        gadget.name == "a"
+        gadget.weight == 2
+        gadget.feature == "b"
+    }
+
+    private EntityReflector reflectorFor(Class type) {
+        session.mappingContext.getEntityReflector(session.mappingContext.getPersistentEntity(type.name))
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Gadget, SpecialGadget]
+    }
+}
+
+@Entity
+class Gadget {
+    Long id
+    String name
+    int weight
+    long serial
+    double rating
+}
+
+@Entity
+class SpecialGadget extends Gadget {
+    String feature
+}
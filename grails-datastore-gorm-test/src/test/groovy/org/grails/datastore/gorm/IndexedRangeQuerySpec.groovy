@@ -0,0 +1,103 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class IndexedRangeQuerySpec extends GormDatastoreSpec {
+
+    @Override
+    List getDomainClasses() {
+        [Measurement]
+    }
+
+    void "Test range queries are answered from the sorted property index"() {
+        given:
+        (1..10).each { new Measurement(reading: it, label: "m$it").save() }
+        session.flush()
+        session.clear()
+
+        expect:
+        Measurement.findAllByReadingGreaterThan(7)*.reading.sort() == [8, 9, 10]
+        Measurement.findAllByReadingGreaterThanEquals(9)*.reading.sort() == [9, 10]
+        Measurement.findAllByReadingLessThan(3)*.reading.sort() == [1, 2]
+        Measurement.findAllByReadingLessThanEquals(2L)*.reading.sort() == [1, 2]
+        Measurement.findAllByReadingBetween(4, 6)*.reading.sort() == [4, 5, 6]
+        Measurement.findAllByReadingInList([2, 5, 11])*.reading.sort() == [2, 5]
+        Measurement.findAllByReadingBetween(6, 4).isEmpty()
+    }
+
+    void "Test range queries reflect updated and null values"() {
+        given:
+        def m = new Measurement(reading: 5, label: "five").save()
+        new Measurement(reading: 1, label: "one").save()
+        new Measurement(label: "none").save(flush: true)
+
+        when:
+        m.reading = 20
+        m.save(flush: true)
+        session.clear()
+
+        then:
+        Measurement.findAllByReadingGreaterThan(4)*.label == ["five"]
+        Measurement.findAllByReadingLessThan(10)*.label.sort() == ["none", "one"]
+        Measurement.countByReadingBetween(0, 100) == 2
+    }
+
+    void "Test range queries return the same entries from the index and by scanning"() {
+        given:
+        new Measurement(reading: 1, label: "one").save()
+        new Measurement(reading: 5, label: "five").save()
+        new Measurement(label: "none").save(flush: true)
+        session.clear()
+        def queries = {
+            [
+                Measurement.findAllByReadingLessThan(5)*.label.sort(),
+                Measurement.findAllByReadingLessThanEquals(5)*.label.sort(),
+                Measurement.findAllByReadingGreaterThan(1)*.label.sort(),
+                Measurement.findAllByReadingGreaterThanEquals(1)*.label.sort(),
+                Measurement.findAllByReadingBetween(1, 5)*.label.sort(),
+                Measurement.withCriteria { lt 'reading', 5; like 'label', '%e' }*.label.sort()
+            ]
+        }
+
+        when:
+        def indexed = queries()
+        // a value that cannot be compared with the others disables the sorted index, so the family is scanned
+        def index = session.getPersister(Measurement).getPropertyIndex(Measurement.gormPersistentEntity.getPropertyByName("reading"))
+        index.index(new Object(), -1L)
+        session.clear()
+        def scanned = queries()
+
+        then:
+        !index.sortable
+        indexed == [["none", "one"], ["five", "none", "one"], ["five"], ["five", "one"], ["five", "one"], ["none", "one"]]
+        scanned == indexed
+    }
+
+    void "Test range queries combine with other criteria"() {
+        given:
+        (1..10).each { new Measurement(reading: it, label: it % 2 ? "odd" : "even").save() }
+        session.flush()
+        session.clear()
+
+        expect:
+        Measurement.findAllByReadingGreaterThanAndLabel(5, "even")*.reading.sort() == [6, 8, 10]
+        Measurement.withCriteria {
+            or {
+                lt 'reading', 2
+                gt 'reading', 9
+            }
+        }*.reading.sort() == [1, 10]
+    }
+}
+
+@Entity
+class Measurement {
+    Long id
+    Integer reading
+    String label
+
+    static constraints = {
+        reading nullable: true
+    }
+}
@@ -0,0 +1,84 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+import org.grails.datastore.mapping.cache.QueryResultCache
+
+class QueryResultCacheSpec extends GormDatastoreSpec {
+
+    void "the results of cached queries are reused until the entity is written to"() {
+        given:
+        QueryResultCache cache = session.datastore.queryResultCache
+        new Track(title: "Intro", length: 60).save()
+        new Track(title: "Outro", length: 90).save(flush: true)
+        session.clear()
+
+        when:
+        def first = Track.findAllByLengthGreaterThan(30, [cache: true, sort: 'title'])
+        def second = Track.findAllByLengthGreaterThan(30, [cache: true, sort: 'title'])
+
+        then:
+        first*.title == ["Intro", "Outro"]
+        second*.title == ["Intro", "Outro"]
+        cache.hitCount == 1
+
+        when:
+        new Track(title: "Bonus", length: 120).save(flush: true)
+        def third = Track.findAllByLengthGreaterThan(30, [cache: true, sort: 'title'])
+
+        then:
+        third*.title == ["Bonus", "Intro", "Outro"]
+        cache.hitCount == 1
+    }
+
+    void "the values of cached projection queries are invalidated when an entity is deleted"() {
+        given:
+        QueryResultCache cache = session.datastore.queryResultCache
+        new Track(title: "Intro", length: 60).save()
+        def outro = new Track(title: "Outro", length: 90).save(flush: true)
+
+        expect:
+        countTracks() == 2
+        countTracks() == 2
+        cache.hitCount == 1
+
+        when:
+        outro.delete(flush: true)
+
+        then:
+        countTracks() == 1
+    }
+
+    void "queries are not cached unless caching is requested"() {
+        given:
+        QueryResultCache cache = session.datastore.queryResultCache
+        new Track(title: "Intro", length: 60).save(flush: true)
+
+        when:
+        Track.findAllByTitle("Intro")
+        Track.findAllByTitle("Intro")
+
+        then:
+        cache.size == 0
+        cache.hitCount == 0
+        cache.missCount == 0
+    }
+
+    private Object countTracks() {
+        def query = session.createQuery(Track).cache(true)
+        query.projections().count()
+        query.singleResult()
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Track]
+    }
+}
+
+@Entity
+class Track {
+    Long id
+    String title
+    Integer length
+}
@@ -0,0 +1,81 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+import org.springframework.dao.InvalidDataAccessResourceUsageException
+
+class ReadOnlySessionSpec extends GormDatastoreSpec {
+
+    void setup() {
+        20.times { new Ledger(amount: it).save() }
+        session.flush()
+        session.clear()
+    }
+
+    void "a read-only session holds a bounded number of instances"() {
+        given:
+        session.readOnlyCacheSize = 5
+        session.readOnly = true
+
+        when:
+        def ledgers = Ledger.list()
+
+        then:
+        ledgers.size() == 20
+        session.identityMapSize <= 5
+        Ledger.get(ledgers[0].id).amount == ledgers[0].amount
+    }
+
+    void "setting the cache size of a session that is not read-only keeps its first level cache"() {
+        given:
+        Ledger.list()
+
+        when:
+        session.readOnlyCacheSize = 5
+
+        then:
+        session.identityMapSize == 20
+        session.readOnlyCacheSize == 5
+    }
+
+    void "a read-only session rejects writes"() {
+        given:
+        session.readOnly = true
+
+        when:
+        new Ledger(amount: 100).save()
+
+        then:
+        thrown(InvalidDataAccessResourceUsageException)
+
+        when:
+        session.readOnly = false
+        new Ledger(amount: 100).save(flush: true)
+
+        then:
+        Ledger.count() == 21
+    }
+
+    void "pending operations are flushed before the session becomes read-only"() {
+        given:
+        new Ledger(amount: 100).save()
+
+        when:
+        session.readOnly = true
+
+        then:
+        session.pendingOperationCount == 0
+        Ledger.countByAmount(100) == 1
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Ledger]
+    }
+}
+
+@Entity
+class Ledger {
+    Long id
+    Integer amount
+}
@@ -0,0 +1,83 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+class SelectiveAutoFlushSpec extends GormDatastoreSpec {
+
+    void setup() {
+        session.selectiveAutoFlush = true
+    }
+
+    void "a query of an entity without pending operations does not flush"() {
+        when:
+        new Shipment(name: "s").save()
+        def labels = Label.list()
+
+        then:
+        labels.isEmpty()
+        !session.pendingInserts.isEmpty()
+
+        when:
+        def shipments = Shipment.list()
+
+        then:
+        shipments*.name == ["s"]
+        session.pendingInserts.isEmpty()
+    }
+
+    void "a query joining through an association flushes the pending operations of the associated entity"() {
+        given:
+        def shipment = new Shipment(name: "s").save(flush: true)
+        new Parcel(name: "p", shipment: shipment).save(flush: true)
+
+        when:
+        shipment.name = "t"
+        shipment.save()
+        def parcels = Parcel.withCriteria {
+            shipment {
+                eq "name", "t"
+            }
+        }
+
+        then:
+        parcels*.name == ["p"]
+        session.pendingUpdates.isEmpty()
+    }
+
+    void "queries always flush when the mode is disabled"() {
+        given:
+        session.selectiveAutoFlush = false
+
+        when:
+        new Shipment(name: "s").save()
+        Label.list()
+
+        then:
+        session.pendingInserts.isEmpty()
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Shipment, Parcel, Label]
+    }
+}
+
+@Entity
+class Shipment {
+    Long id
+    String name
+}
+
+@Entity
+class Parcel {
+    Long id
+    String name
+    Shipment shipment
+}
+
+@Entity
+class Label {
+    Long id
+    String name
+}
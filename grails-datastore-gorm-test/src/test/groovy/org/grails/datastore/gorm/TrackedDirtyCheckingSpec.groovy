@@ -0,0 +1,77 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+import org.grails.datastore.mapping.dirty.checking.DirtyCheckable
+
+class TrackedDirtyCheckingSpec extends GormDatastoreSpec {
+
+    void setup() {
+        session.trackedDirtyChecking = true
+    }
+
+    void "no native entry is cached for dirty checking entities that track their changes"() {
+        given:
+        def id = new Thermostat(room: "hall", target: 20).save(flush: true).id
+        session.clear()
+
+        when:
+        def thermostat = Thermostat.get(id)
+        def entity = session.mappingContext.getPersistentEntity(Thermostat.name)
+
+        then:
+        thermostat instanceof DirtyCheckable
+        session.getCachedEntry(entity, id, true) == null
+        session.getCachedEntry(entity, id, false) != null
+        !session.isDirty(thermostat)
+    }
+
+    void "updates write the changed properties"() {
+        given:
+        def id = new Thermostat(room: "hall", target: 20).save(flush: true).id
+        session.clear()
+
+        when:
+        def thermostat = Thermostat.get(id)
+        thermostat.target = 22
+        thermostat.save(flush: true)
+        session.clear()
+        thermostat = Thermostat.get(id)
+
+        then:
+        thermostat.room == "hall"
+        thermostat.target == 22
+        Thermostat.findByTarget(22)?.id == id
+        Thermostat.findByTarget(20) == null
+    }
+
+    void "updates leave the stored values of unchanged properties alone"() {
+        given:
+        def id = new Thermostat(room: "hall", target: 20).save(flush: true).id
+        session.clear()
+        def thermostat = Thermostat.get(id)
+
+        when:
+        session.datastore.backingMap[Thermostat.name][id].room = "kitchen"
+        thermostat.target = 22
+        thermostat.save(flush: true)
+        session.clear()
+        thermostat = Thermostat.get(id)
+
+        then:
+        thermostat.room == "kitchen"
+        thermostat.target == 22
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Thermostat]
+    }
+}
+
+@Entity
+class Thermostat {
+    Long id
+    String room
+    Integer target
+}
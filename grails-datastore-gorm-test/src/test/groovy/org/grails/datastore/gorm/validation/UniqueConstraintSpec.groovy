@@ -3,15 +3,22 @@ package org.grails.datastore.gorm.validation
 
 import grails.gorm.annotation.Entity
 import grails.gorm.transactions.Transactional
+import grails.gorm.validation.PersistentEntityValidator
 import org.grails.datastore.gorm.validation.constraints.MappingContextAwareConstraintFactory
 import org.grails.datastore.gorm.validation.constraints.builtin.UniqueConstraint
 import org.grails.datastore.gorm.validation.constraints.registry.ConstraintRegistry
 import org.grails.datastore.gorm.validation.constraints.registry.DefaultValidatorRegistry
+import org.grails.datastore.gorm.validation.listener.ValidationEventListener
+import org.grails.datastore.mapping.engine.UniqueIndexLookup
 import org.grails.datastore.mapping.simple.SimpleMapDatastore
+import org.grails.datastore.mapping.validation.ValidationErrors
 import org.springframework.context.support.StaticMessageSource
+import org.springframework.validation.Errors
 import spock.lang.AutoCleanup
 import spock.lang.Specification
 
+import javax.persistence.FlushModeType
+
 @Transactional
 class UniqueConstraintSpec extends Specification {
 
@@ -20,7 +27,8 @@ class UniqueConstraintSpec extends Specification {
             DefaultChannel,
             ListChannel,
             OtherListChannel,
-            Organization
+            Organization,
+            Voucher
     )
 
     def setup() {
@@ -35,6 +43,7 @@ class UniqueConstraintSpec extends Specification {
         )
 
         datastore.mappingContext.setValidatorRegistry(constraintRegistry)
+        datastore.applicationEventPublisher.addApplicationListener(new ValidationEventListener(datastore))
     }
 
     void 'unique constraint works with parent/child'() {
@@ -140,6 +149,123 @@ class UniqueConstraintSpec extends Specification {
         then: 'that org is also valid'
         testOrg2.save(failOnError: true, flush: true)
     }
+
+    void 'unique constraint is validated with the property index of the datastore'() {
+        given: 'an existing channel'
+        def testOrg = new Organization(name: 'Test 1')
+        testOrg.defaultChannel.organization = testOrg
+        testOrg.save(failOnError: true, flush: true)
+        def alphaChannel = new ListChannel(name: 'Alpha', organization: testOrg).save(failOnError: true, flush: true)
+        UniqueIndexLookup lookup = (UniqueIndexLookup) datastore.currentSession.getPersister(Channel)
+
+        expect: 'the property group is indexed'
+        lookup.hasUniqueIndex(['name', 'organization'])
+        !lookup.hasUniqueIndex(['name', 'channels'])
+        lookup.lookupUnique([name: 'Alpha', organization: testOrg]) == [alphaChannel.id]
+        lookup.lookupUnique([name: 'Alpha', organization: testOrg.id]) == [alphaChannel.id]
+        lookup.lookupUnique([name: 'Beta', organization: testOrg]).isEmpty()
+
+        when: 'the channel is validated again'
+        alphaChannel.markDirty('name')
+
+        then: 'it does not conflict with itself'
+        alphaChannel.validate()
+
+        when: 'a pending channel takes the name'
+        new ListChannel(name: 'Beta', organization: testOrg).save(failOnError: true)
+        def betaChannel = new ListChannel(name: 'Beta', organization: testOrg)
+
+        then: 'the pending channel is flushed before the lookup'
+        !betaChannel.validate()
+        betaChannel.errors.getFieldError('name').code == 'unique'
+    }
+
+    void 'unique constraints are validated for a batch of objects at once'() {
+        given: 'an existing voucher'
+        Date issued = new Date(0)
+        new Voucher(code: 'A', issued: issued).save(failOnError: true, flush: true)
+
+        and: 'a batch of vouchers'
+        def vouchers = [
+                new Voucher(code: 'A', issued: issued),
+                new Voucher(code: 'B', issued: issued),
+                new Voucher(code: 'B', issued: issued),
+                new Voucher(code: 'A', issued: new Date(1000)),
+                new Voucher(code: '', issued: issued)
+        ]
+        List<Errors> errors = vouchers.collect { new ValidationErrors(it) as Errors }
+        def validator = (PersistentEntityValidator) datastore.mappingContext.getEntityValidator(datastore.mappingContext.getPersistentEntity(Voucher.name))
+
+        when: 'the batch is validated'
+        validator.validateAll(vouchers, errors)
+
+        then: 'values held in the datastore or earlier in the batch are rejected'
+        errors*.getFieldError('code')*.code == ['unique', null, 'unique', null, 'blank']
+    }
+
+    void 'saveAll validates unique constraints for the whole batch'() {
+        given: 'an existing voucher'
+        Date issued = new Date(0)
+        new Voucher(code: 'A', issued: issued).save(failOnError: true, flush: true)
+
+        and: 'a batch of vouchers'
+        def vouchers = [
+                new Voucher(code: 'A', issued: issued),
+                new Voucher(code: 'B', issued: issued),
+                new Voucher(code: 'B', issued: issued)
+        ]
+
+        when: 'the batch is saved'
+        Voucher.saveAll(vouchers)
+        datastore.currentSession.flush()
+
+        then: 'only the voucher with unique values is saved'
+        vouchers*.errors*.getFieldError('code')*.code == ['unique', null, 'unique']
+        Voucher.countByCode('A') == 1
+        Voucher.countByCode('B') == 1
+    }
+
+    void 'pending objects with the same unique value are validated against each other when flushed'() {
+        given: 'a session that is not flushed before queries'
+        Date issued = new Date(0)
+        datastore.currentSession.flushMode = FlushModeType.COMMIT
+
+        when: 'two vouchers with the same code are saved without flushing'
+        def first = new Voucher(code: 'C', issued: issued).save()
+        def second = new Voucher(code: 'C', issued: issued).save()
+
+        then: 'neither conflicts with a stored voucher'
+        first != null
+        second != null
+
+        when: 'the session is flushed'
+        datastore.currentSession.flush()
+
+        then: 'the second voucher is rejected'
+        !first.hasErrors()
+        second.errors.getFieldError('code').code == 'unique'
+        Voucher.countByCode('C') == 1
+    }
+
+    void 'unique constraint plans validation once per concrete class'() {
+        given: 'the unique constraint of channels'
+        def testOrg = new Organization(name: 'Test 1')
+        testOrg.defaultChannel.organization = testOrg
+        testOrg.save(failOnError: true, flush: true)
+        def validator = (PersistentEntityValidator) datastore.mappingContext.getEntityValidator(datastore.mappingContext.getPersistentEntity(ListChannel.name))
+        UniqueConstraint constraint = (UniqueConstraint) validator.constrainedProperties.name.getAppliedConstraint(UniqueConstraint.NAME)
+
+        when: 'channels of the same class are validated'
+        new ListChannel(name: 'Alpha', organization: testOrg).validate()
+        def plan = constraint.validationPlans.get(ListChannel)
+        new ListChannel(name: 'Beta', organization: testOrg).validate()
+
+        then: 'the plan resolves the defining entity and is reused'
+        plan.constraintEntity.javaClass == Channel
+        plan.groupNames == ['organization'] as String[]
+        plan.groupAssociations[0].javaClass == Organization
+        constraint.validationPlans.get(ListChannel).is(plan)
+    }
 }
 
 
@@ -190,4 +316,14 @@ class Organization {
 
     static hasOne = [defaultChannel: DefaultChannel]
     static hasMany = [channels: Channel]
-}
\ No newline at end of file
+}
+
+@Entity
+class Voucher {
+    String code
+    Date issued
+
+    static constraints = {
+        code unique: 'issued'
+    }
+}
@@ -0,0 +1,117 @@
+package org.grails.datastore.mapping.simple.engine
+
+import spock.lang.Specification
+
+import java.util.regex.Pattern
+
+class SimpleMapPropertyIndexSpec extends Specification {
+
+    void "test index and deindex keep insertion order without duplicates"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+
+        when:
+        index.index("Bob", 1L)
+        index.index("Bob", 2L)
+        index.index("Bob", 1L)
+        index.index("Fred", 3L)
+
+        then:
+        index.query("Bob", 0, -1) == [1L, 2L]
+        index.query("Fred", 0, -1) == [3L]
+
+        when:
+        index.deindex("Bob", 1L)
+
+        then:
+        index.query("Bob", 0, -1) == [2L]
+        index.query("Nobody", 0, -1).isEmpty()
+    }
+
+    void "test query supports paging"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        (1..5).each { index.index("value", it) }
+
+        expect:
+        index.query("value", 1, 2) == [2, 3]
+        index.query("value", 3, -1) == [4, 5]
+        index.query("value", 5, -1).isEmpty()
+        index.query("value", 0, 0).isEmpty()
+    }
+
+    void "test values are keyed by normalized value"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        index.index(10, 1L)
+        index.index("x", 2L)
+
+        expect:
+        index.query(10L, 0, -1) == [1L]
+        index.query("${'x'}", 0, -1) == [2L]
+        index.query('x' as char, 0, -1) == [2L]
+    }
+
+    void "test decimal values are keyed by their decimal value"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        index.index(9.99d, 1L)
+        index.index(1.5f, 2L)
+        index.index(2.50G, 3L)
+        index.index(10.0d, 4L)
+
+        expect:
+        index.query(9.99, 0, -1) == [1L]
+        index.query(9.990G, 0, -1) == [1L]
+        index.query(1.5d, 0, -1) == [2L]
+        index.query(2.5d, 0, -1) == [3L]
+        index.query(10, 0, -1) == [4L]
+        index.query(10.00G, 0, -1) == [4L]
+        index.query(9.98d, 0, -1).isEmpty()
+    }
+
+    void "test range and pattern queries"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        index.index("apple", 1L)
+        index.index("banana", 2L)
+        index.index("cherry", 3L)
+
+        expect:
+        index.queryRange("b", true, null, false) == [2L, 3L]
+        index.queryRange(null, false, "banana", true) == [1L, 2L]
+        index.queryMatching(Pattern.compile("b.*")) == [2L]
+    }
+
+    void "test ranges without a lower bound include the keys without a value"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        index.index(1, 1L)
+        index.index(null, 2L)
+        index.index(3, 3L)
+
+        expect:
+        index.queryRange(null, false, 3, false) == [2L, 1L]
+        index.queryRange(1, true, null, false) == [1L, 3L]
+        index.query(null, 0, -1).isEmpty()
+
+        when:
+        index.deindex(null, 2L)
+        index.index(2, 2L)
+
+        then:
+        index.queryRange(null, false, 3, false) == [1L, 2L]
+    }
+
+    void "test range queries are disabled once values cannot be ordered"() {
+        given:
+        def index = new SimpleMapPropertyIndex()
+        index.index(1, 1L)
+        index.index([1, 2], 2L)
+
+        expect:
+        !index.sortable
+        index.queryRange(0, true, null, false) == null
+        index.query([1, 2], 0, -1) == [2L]
+    }
+}
@@ -0,0 +1,30 @@
+package grails.gorm.validation;
+
+import java.util.List;
+
+import org.springframework.validation.Errors;
+
+/**
+ * <p>Interface for constraints that can validate many targets at once.</p>
+ *
+ * <p>
+ * Constraints that have to consult the datastore, such as uniqueness, can validate a batch of targets with a query per
+ * batch rather than a query per target. When a batch is validated with
+ * {@link PersistentEntityValidator#validateAll(List, List, boolean)} these constraints are skipped while each target is
+ * validated and applied to the whole batch afterwards.
+ * </p>
+ *
+ * @since 7.1
+ */
+public interface BatchValidatingConstraint extends Constraint {
+
+    /**
+     * Validates the constraint against all of the given targets. The lists are parallel, so the property value and
+     * errors of a target are found at the same index as the target.
+     *
+     * @param targets The targets to validate
+     * @param propertyValues The values of the constrained property of the targets
+     * @param errors The errors objects of the targets
+     */
+    void validateBatch(List<Object> targets, List<Object> propertyValues, List<Errors> errors);
+}
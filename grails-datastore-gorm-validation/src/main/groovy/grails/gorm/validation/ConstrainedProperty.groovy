@@ -3,6 +3,8 @@ package grails.gorm.validation
 import groovy.transform.CompileStatic
 import org.springframework.validation.Errors
 
+import java.util.function.Predicate
+
 /**
  * An interface for a constrained property
  *
@@ -151,4 +153,16 @@ interface ConstrainedProperty extends Constrained {
      * @param errors The Errors instances to report errors to
      */
     void validate(Object target, Object propertyValue, Errors errors)
+
+    /**
+     * Validate this constrainted property against specified property value, leaving out the constraints matched by the given predicate
+     *
+     * @param target The target object to validate
+     * @param propertyValue The value of the property to validate
+     * @param errors The Errors instances to report errors to
+     * @param skip Matches the constraints that are not applied or null to apply all of them
+     * @return False if a vetoing constraint stopped the validation process
+     * @since 7.1
+     */
+    boolean validate(Object target, Object propertyValue, Errors errors, Predicate<Constraint> skip)
 }
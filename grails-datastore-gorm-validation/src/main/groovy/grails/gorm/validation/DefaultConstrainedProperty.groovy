@@ -21,6 +21,8 @@ import org.grails.datastore.gorm.validation.constraints.registry.ConstraintRegis
 import org.grails.datastore.mapping.reflect.ClassPropertyFetcher
 import org.springframework.validation.Errors
 
+import java.util.function.Predicate
+
 /**
  * Default implementation of the {@link ConstrainedProperty} interface
  *
@@ -581,14 +583,30 @@ class DefaultConstrainedProperty implements ConstrainedProperty {
      * @param errors The Errors instances to report errors to
      */
     void validate(Object target, Object propertyValue, Errors errors) {
+        validate(target, propertyValue, errors, null)
+    }
+
+    /**
+     * Validate this constrainted property against specified property value, leaving out the constraints matched by the given predicate
+     *
+     * @param target The target object to validate
+     * @param propertyValue The value of the property to validate
+     * @param errors The Errors instances to report errors to
+     * @param skip Matches the constraints that are not applied or null to apply all of them
+     * @return False if a vetoing constraint stopped the validation process
+     */
+    boolean validate(Object target, Object propertyValue, Errors errors, Predicate<Constraint> skip) {
         List<Constraint> delayedConstraints = new ArrayList<Constraint>()
 
         // validate only vetoing constraints first, putting non-vetoing into delayedConstraints
         for (Constraint c in appliedConstraints.values()) {
+            if (skip != null && skip.test(c)) {
+                continue
+            }
             if (c instanceof VetoingConstraint) {
                 // stop validation process when constraint vetoes
                 if (((VetoingConstraint)c).validateWithVetoing(target, propertyValue, errors)) {
-                    return
+                    return false
                 }
             }
             else {
@@ -600,6 +618,7 @@ class DefaultConstrainedProperty implements ConstrainedProperty {
         for (Constraint c : delayedConstraints) {
             c.validate(target, propertyValue, errors)
         }
+        return true
     }
 
     /**
@@ -18,6 +18,8 @@ import org.springframework.context.MessageSource
 import org.springframework.validation.Errors
 import org.springframework.validation.FieldError
 
+import java.util.function.Predicate
+
 /**
  * A Validator that validates a {@link org.grails.datastore.mapping.model.PersistentEntity} against known constraints
  *
@@ -31,6 +33,13 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
                                                             GormProperties.IDENTITY,
                                                             GormProperties.VERSION)
 
+    private static final Predicate<Constraint> BATCH_VALIDATING_CONSTRAINTS = new Predicate<Constraint>() {
+        @Override
+        boolean test(Constraint constraint) {
+            return constraint instanceof BatchValidatingConstraint
+        }
+    }
+
     final PersistentEntity entity
     final EntityReflector entityReflector
     final MessageSource messageSource
@@ -57,6 +66,64 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
 
     @Override
     void validate(Object obj, Errors errors, boolean cascade = true) {
+        validate(obj, errors, cascade, Collections.<String>emptySet(), null)
+    }
+
+    /**
+     * Validates a batch of objects. Constraints that can validate many objects at once, such as uniqueness, are
+     * applied to the whole batch once every object has been validated, so that they consult the datastore once per
+     * batch rather than once per object.
+     *
+     * @param objects The objects to validate
+     * @param errors The Errors instance of each object, at the same index as the object
+     * @param cascade True if validation should cascade into associations
+     */
+    void validateAll(List<Object> objects, List<Errors> errors, boolean cascade = true) {
+        if (objects.size() != errors.size()) {
+            throw new IllegalArgumentException("Number of Errors instances [${errors.size()}] does not match the number of objects [${objects.size()}] to validate")
+        }
+
+        Map<String, List<BatchValidatingConstraint>> batchConstraints = findBatchValidatingConstraints()
+        Map<String, List<Integer>> pendingIndexes = new LinkedHashMap<>()
+        List<String> pendingProperties = new ArrayList<>()
+        for (int i = 0; i < objects.size(); i++) {
+            pendingProperties.clear()
+            validate(objects.get(i), errors.get(i), cascade, batchConstraints.keySet(), pendingProperties)
+            for (String propertyName in pendingProperties) {
+                List<Integer> indexes = pendingIndexes.get(propertyName)
+                if (indexes == null) {
+                    indexes = new ArrayList<>()
+                    pendingIndexes.put(propertyName, indexes)
+                }
+                indexes.add(i)
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> pending in pendingIndexes.entrySet()) {
+            String propertyName = pending.key
+            PersistentProperty persistentProperty = entity.getPropertyByName(propertyName)
+            List<Object> targets = new ArrayList<>(pending.value.size())
+            List<Object> propertyValues = new ArrayList<>(pending.value.size())
+            List<Errors> targetErrors = new ArrayList<>(pending.value.size())
+            for (Integer i in pending.value) {
+                Object obj = objects.get(i)
+                targets.add(obj)
+                propertyValues.add(getPropertyValue(obj, unwrap(obj), propertyName, entityReflector, persistentProperty))
+                targetErrors.add(errors.get(i))
+            }
+            for (BatchValidatingConstraint constraint in batchConstraints.get(propertyName)) {
+                constraint.validateBatch(targets, propertyValues, targetErrors)
+            }
+        }
+    }
+
+    /**
+     * Validates an object, leaving out the batch validating constraints of the given properties
+     *
+     * @param batchProperties The properties whose batch validating constraints are applied to the whole batch
+     * @param pendingProperties Receives the names of the properties whose batch validating constraints still apply to the object
+     */
+    protected void validate(Object obj, Errors errors, boolean cascade, Set<String> batchProperties, List<String> pendingProperties) {
         if (obj == null || !targetClass.isInstance(obj)) {
             throw new IllegalArgumentException("Argument [$obj] is not an instance of [$targetClass] which this validator is configured for")
         }
@@ -67,13 +134,23 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         def validatedObjects = new HashSet()
         validatedObjects.add(obj)
 
+        // the properties are read by their ordinal, which requires the object to be unwrapped from any proxy
+        Object target = unwrap(obj)
+
         for(PersistentProperty pp in entity.persistentProperties) {
             def propertyName = pp.name
 
             ConstrainedProperty constrainedProperty = constrainedProperties.get(propertyName)
 
             if(constrainedProperty != null) {
-                validatePropertyWithConstraint(obj, propertyName, entityReflector, errors, constrainedProperty, pp)
+                if(batchProperties.contains(propertyName)) {
+                    if(validatePropertyWithoutBatchConstraints(obj, target, propertyName, errors, constrainedProperty, pp)) {
+                        pendingProperties.add(propertyName)
+                    }
+                }
+                else {
+                    validatePropertyWithConstraint(obj, target, propertyName, entityReflector, errors, constrainedProperty, pp)
+                }
             }
 
             if(pp instanceof Association) {
@@ -89,10 +166,62 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         for(String remainingProperty in constrainedPropertyNames) {
             ConstrainedProperty constrainedProperty = constrainedProperties.get(remainingProperty)
             if(remainingProperty != null) {
-                validatePropertyWithConstraint(obj, remainingProperty, entityReflector, errors, constrainedProperty, null)
+                if(batchProperties.contains(remainingProperty)) {
+                    if(validatePropertyWithoutBatchConstraints(obj, target, remainingProperty, errors, constrainedProperty, null)) {
+                        pendingProperties.add(remainingProperty)
+                    }
+                }
+                else {
+                    validatePropertyWithConstraint(obj, target, remainingProperty, entityReflector, errors, constrainedProperty, null)
+                }
+            }
+        }
+
+    }
+
+    /**
+     * @return The batch validating constraints of the constrained properties, keyed by property name
+     */
+    protected Map<String, List<BatchValidatingConstraint>> findBatchValidatingConstraints() {
+        Map<String, List<BatchValidatingConstraint>> batchConstraints = new LinkedHashMap<>()
+        for (Map.Entry<String, ConstrainedProperty> entry in constrainedProperties.entrySet()) {
+            for (Constraint constraint in entry.value.appliedConstraints) {
+                if (constraint instanceof BatchValidatingConstraint) {
+                    List<BatchValidatingConstraint> constraints = batchConstraints.get(entry.key)
+                    if (constraints == null) {
+                        constraints = new ArrayList<>()
+                        batchConstraints.put(entry.key, constraints)
+                    }
+                    constraints.add((BatchValidatingConstraint) constraint)
+                }
             }
         }
+        return batchConstraints
+    }
+
+    /**
+     * Validates a property against its constraints, leaving out the batch validating constraints
+     *
+     * @return True if the batch validating constraints still apply, that is the property has not been vetoed
+     */
+    private boolean validatePropertyWithoutBatchConstraints(Object obj, Object target, String propertyName, Errors errors, ConstrainedProperty constrainedProperty, PersistentProperty persistentProperty) {
+        if (errors.getFieldError(propertyName) != null || (persistentProperty == null && !(obj instanceof GroovyObject))) {
+            return false
+        }
+
+        Object propertyValue = getPropertyValue(obj, target, propertyName, entityReflector, persistentProperty)
+        return constrainedProperty.validate(obj, propertyValue, errors, BATCH_VALIDATING_CONSTRAINTS)
+    }
+
+    private static Object getPropertyValue(Object obj, Object target, String propertyName, EntityReflector reflector, PersistentProperty persistentProperty) {
+        if (persistentProperty != null) {
+            return reflector.getProperty(target, persistentProperty)
+        }
+        return ((GroovyObject)obj).getProperty(propertyName)
+    }
 
+    private Object unwrap(Object obj) {
+        return proxyHandler != null ? proxyHandler.unwrap(obj) : obj
     }
 
     /**
@@ -109,7 +238,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         }
 
         if (association instanceof ToOne) {
-            Object associatedObject = reflector.getProperty(parent, propertyName)
+            Object associatedObject = reflector.getProperty(unwrap(parent), association)
 
             if(associatedObject != null && proxyHandler?.isInitialized(associatedObject)) {
                 if(association.doesCascadeValidate(associatedObject)) {
@@ -151,7 +280,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
     @SuppressWarnings("rawtypes")
     protected void cascadeValidationToMany(Object parentObject, String propertyName, Association association, Errors errors, EntityReflector entityReflector, Set validatedObjects) {
 
-        Object collection = entityReflector.getProperty(parentObject, propertyName)
+        Object collection = entityReflector.getProperty(unwrap(parentObject), association)
         if(collection == null || !proxyHandler?.isInitialized(collection)) {
             return
         }
@@ -231,6 +360,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         validateHelper.invokeBeforeValidate(associatedObject, associatedConstrainedProperties.keySet() as List<String>)
 
         List<PersistentProperty> associatedPersistentProperties = associatedEntity.getPersistentProperties()
+        Object associatedTarget = unwrap(associatedObject)
         String nestedPath = errors.getNestedPath()
         try {
             errors.setNestedPath(buildNestedPath(nestedPath, propertyName, indexOrKey))
@@ -243,7 +373,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
                 String associatedPropertyName = associatedPersistentProperty.getName()
                 if (associatedConstrainedProperties.containsKey(associatedPropertyName)) {
                     ConstrainedProperty associatedConstrainedProperty = associatedConstrainedProperties.get(associatedPropertyName)
-                    validatePropertyWithConstraint(associatedObject, errors.getNestedPath() + associatedPropertyName, associatedReflector, errors, associatedConstrainedProperty, associatedPersistentProperty)
+                    validatePropertyWithConstraint(associatedObject, associatedTarget, errors.getNestedPath() + associatedPropertyName, associatedReflector, errors, associatedConstrainedProperty, associatedPersistentProperty)
                 }
 
                 // Don't continue cascade if the the other side is equal to avoid stack overflow
@@ -289,7 +419,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         return nestedPath + componentName + "['" + indexOrKey + "']"
     }
 
-    private void validatePropertyWithConstraint(Object obj, String propertyName, EntityReflector reflector, Errors errors, ConstrainedProperty constrainedProperty, PersistentProperty persistentProperty) {
+    private void validatePropertyWithConstraint(Object obj, Object target, String propertyName, EntityReflector reflector, Errors errors, ConstrainedProperty constrainedProperty, PersistentProperty persistentProperty) {
 
         int i = propertyName.lastIndexOf(".")
         String constrainedPropertyName
@@ -302,7 +432,7 @@ class PersistentEntityValidator implements CascadingValidator, ConstrainedEntity
         FieldError fieldError = errors.getFieldError(constrainedPropertyName)
         if (fieldError == null) {
             if(persistentProperty != null) {
-                constrainedProperty.validate(obj, reflector.getProperty(obj, constrainedPropertyName), errors)
+                constrainedProperty.validate(obj, reflector.getProperty(target, persistentProperty), errors)
             }
             else {
                 if(obj instanceof GroovyObject) {
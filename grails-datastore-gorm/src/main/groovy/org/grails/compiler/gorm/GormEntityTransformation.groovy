@@ -25,6 +25,7 @@ import org.codehaus.groovy.ast.AnnotatedNode
 import org.codehaus.groovy.ast.AnnotationNode
 import org.codehaus.groovy.ast.ClassHelper
 import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.FieldNode
 import org.codehaus.groovy.ast.GenericsType
 import org.codehaus.groovy.ast.InnerClassNode
 import org.codehaus.groovy.ast.MethodNode
@@ -54,12 +55,14 @@ import org.codehaus.groovy.control.SourceUnit
 import org.codehaus.groovy.transform.ASTTransformation
 import org.codehaus.groovy.transform.AbstractASTTransformation
 import org.codehaus.groovy.transform.GroovyASTTransformation
+import org.codehaus.groovy.transform.sc.StaticCompilationVisitor
 import org.grails.datastore.gorm.GormEnhancer
 import org.grails.datastore.gorm.GormEntity
 import org.grails.datastore.gorm.query.GormQueryOperations
 import org.grails.datastore.mapping.model.config.GormProperties
 import org.grails.datastore.mapping.reflect.AstUtils
 import org.grails.datastore.mapping.reflect.ClassUtils
+import org.grails.datastore.mapping.reflect.GeneratedPropertyAccess
 import org.grails.datastore.mapping.reflect.NameUtils
 import static org.codehaus.groovy.ast.tools.GeneralUtils.*
 import javax.persistence.Embeddable
@@ -103,6 +106,10 @@ class GormEntityTransformation extends AbstractASTTransformation implements Comp
     public static final Parameter[] ADD_TO_PARAMETERS = [new Parameter(AstUtils.OBJECT_CLASS_NODE, "obj")] as Parameter[]
     public static final ClassNode SERIALIZABLE_CLASS_NODE = ClassHelper.make(Serializable).getPlainNodeReference()
     private static final Object APPLIED_MARKER = new Object();
+    private static final ClassNode GENERATED_PROPERTY_ACCESS_CLASS_NODE = ClassHelper.make(GeneratedPropertyAccess).getPlainNodeReference()
+    private static final ClassNode GENERATED_PROPERTIES_CLASS_NODE = ClassHelper.make(GeneratedPropertyAccess.Properties)
+    private static final String GET_PROPERTY_VALUE = '$getPropertyValue'
+    private static final String SET_PROPERTY_VALUE = '$setPropertyValue'
     private static final ListExpression IGNORED_PROPERTIES = new ListExpression();
 
     static {
@@ -159,6 +166,19 @@ class GormEntityTransformation extends AbstractASTTransformation implements Comp
 
         final boolean isJpaEntity = hasAnnotation(classNode, JPA_ENTITY_CLASS_NODE)
 
+        // transform the entity this class extends first, so the generated property access of this class can build on it
+        ClassNode superClass = classNode.getSuperClass()
+        while(superClass != null && !AstUtils.OBJECT_CLASS_NODE.equals(superClass)) {
+            ClassNode superClassNode = superClass.redirect()
+            if(superClassNode.isPrimaryClassNode() && AstUtils.isDomainClass(superClassNode)) {
+                if(hasAnnotation(superClassNode, JPA_ENTITY_CLASS_NODE) == isJpaEntity) {
+                    visit(superClassNode, superClassNode.getModule()?.getContext() ?: sourceUnit)
+                }
+                break
+            }
+            superClass = superClass.getSuperClass()
+        }
+
         AstUtils.addTransformedEntityName(classNode.name)
         // Add the entity annotation and enable generic replacement
         classNode.setUsingGenerics(true)
@@ -242,6 +262,8 @@ class GormEntityTransformation extends AbstractASTTransformation implements Comp
         def dirtyCheckTransformer = new DirtyCheckingTransformer()
         dirtyCheckTransformer.performInjectionOnAnnotatedClass(sourceUnit, classNode)
 
+        // generate access to the fields by ordinal, so the entity reflector needs neither reflection nor runtime generated classes
+        injectPropertyAccess(classNode, sourceUnit)
 
         // convert the methodMissing and propertyMissing implementations to $static_methodMissing and $static_propertyMissing for the static versions
         def methodMissingBody = new BlockStatement()
@@ -446,6 +468,140 @@ class GormEntityTransformation extends AbstractASTTransformation implements Comp
         }
     }
 
+    /**
+     * Implements {@link GeneratedPropertyAccess} by reading and writing the fields the class declares with a binary
+     * search on the ordinal. The ordinals of the fields follow those of the superclasses, which the lower ordinals are
+     * delegated to, so an ordinal refers to the same field in instances of subclasses.
+     */
+    protected void injectPropertyAccess(ClassNode classNode, SourceUnit sourceUnit) {
+        Parameter[] getParameters = [param(ClassHelper.int_TYPE, "ordinal")] as Parameter[]
+        if(classNode.getDeclaredMethod(GET_PROPERTY_VALUE, getParameters) != null) {
+            return
+        }
+
+        int superCount = 0
+        ClassNode superClass = classNode.getSuperClass()
+        while(superClass != null && !AstUtils.OBJECT_CLASS_NODE.equals(superClass)) {
+            List<AnnotationNode> generated = superClass.getAnnotations(GENERATED_PROPERTIES_CLASS_NODE)
+            if(!generated.isEmpty()) {
+                Expression names = generated.get(0).getMember("value")
+                superCount += names instanceof ListExpression ? ((ListExpression) names).expressions.size() : 1
+            }
+            else if(superClass.redirect().isPrimaryClassNode() && (AstUtils.isDomainClass(superClass) || hasAnnotation(superClass, JPA_ENTITY_CLASS_NODE))) {
+                // the ordinals of a superclass transformed later are not known yet, so this class inherits its methods instead
+                return
+            }
+            superClass = superClass.getSuperClass()
+        }
+
+        List<FieldNode> fields = []
+        for(FieldNode field in classNode.fields) {
+            if(field.isStatic() || field.isFinal() || field.name.contains('$') || field.type.isGenericsPlaceHolder()) continue
+            fields.add(field)
+        }
+
+        Parameter getOrdinal = getParameters[0]
+        Parameter setOrdinal = param(ClassHelper.int_TYPE, "ordinal")
+        Parameter setValue = param(ClassHelper.OBJECT_TYPE, "value")
+        Parameter[] setParameters = [setOrdinal, setValue] as Parameter[]
+
+        List<Statement> reads = []
+        List<Statement> writes = []
+        for(FieldNode field in fields) {
+            reads.add(returnS(fieldX(field)))
+            writes.add(assignField(classNode, field, setValue))
+        }
+
+        Statement getBody = dispatchOrdinal(getOrdinal, reads, superCount, 0, reads.size())
+        Statement setBody = dispatchOrdinal(setOrdinal, writes, superCount, 0, writes.size())
+        if(superCount > 0) {
+            getBody = ifElseS(ltX(varX(getOrdinal), constX(superCount, true)),
+                    returnS(callSuperX(GET_PROPERTY_VALUE, args(varX(getOrdinal)))),
+                    getBody)
+            setBody = ifElseS(ltX(varX(setOrdinal), constX(superCount, true)),
+                    stmt(callSuperX(SET_PROPERTY_VALUE, args(varX(setOrdinal), varX(setValue)))),
+                    setBody)
+        }
+
+        classNode.addInterface(GENERATED_PROPERTY_ACCESS_CLASS_NODE)
+        MethodNode getMethod = classNode.addMethod(GET_PROPERTY_VALUE, Modifier.PUBLIC, ClassHelper.OBJECT_TYPE, getParameters, null, getBody)
+        MethodNode setMethod = classNode.addMethod(SET_PROPERTY_VALUE, Modifier.PUBLIC, ClassHelper.VOID_TYPE, setParameters, null, setBody)
+
+        def staticCompilationVisitor = new StaticCompilationVisitor(sourceUnit, classNode)
+        staticCompilationVisitor.visitMethod(getMethod)
+        staticCompilationVisitor.visitMethod(setMethod)
+
+        AnnotationNode properties = new AnnotationNode(GENERATED_PROPERTIES_CLASS_NODE)
+        properties.setMember("value", new ListExpression(fields.collect { FieldNode field -> (Expression) constX(field.name) }))
+        classNode.addAnnotation(properties)
+    }
+
+    /**
+     * The primitive types whose values widen to each primitive type, as {@link java.lang.reflect.Field#set(Object, Object)}
+     * accepts them, in the order they are checked after the type itself
+     */
+    private static final Map<String, List<ClassNode>> WIDENED_TYPES = [
+            'short' : [ClassHelper.byte_TYPE],
+            'int'   : [ClassHelper.char_TYPE, ClassHelper.short_TYPE, ClassHelper.byte_TYPE],
+            'long'  : [ClassHelper.int_TYPE, ClassHelper.char_TYPE, ClassHelper.short_TYPE, ClassHelper.byte_TYPE],
+            'float' : [ClassHelper.long_TYPE, ClassHelper.int_TYPE, ClassHelper.char_TYPE, ClassHelper.short_TYPE, ClassHelper.byte_TYPE],
+            'double': [ClassHelper.float_TYPE, ClassHelper.long_TYPE, ClassHelper.int_TYPE, ClassHelper.char_TYPE, ClassHelper.short_TYPE, ClassHelper.byte_TYPE]
+    ] as Map<String, List<ClassNode>>
+
+    /**
+     * Assigns the value to the field if it is an instance of the type of the field, or of a wrapper type that widens to
+     * a primitive field, failing with the same {@link IllegalArgumentException} as
+     * {@link java.lang.reflect.Field#set(Object, Object)} otherwise.
+     */
+    private static Statement assignField(ClassNode classNode, FieldNode field, Parameter value) {
+        ClassNode type = field.type.plainNodeReference
+        boolean primitive = ClassHelper.isPrimitiveType(type)
+        Expression valueType = ternaryX(equalsNullX(varX(value)),
+                constX("null value"),
+                callX(callX(varX(value), "getClass"), "getName"))
+        Expression message = plusX(constX("Can not set ${type.name} field ${classNode.name}.${field.name} to ".toString()), valueType)
+        Statement fail = throwS(ctorX(ClassHelper.make(IllegalArgumentException), args(message)))
+        if(!primitive) {
+            Expression invalid = andX(notNullX(varX(value)), notX(isInstanceOfX(varX(value), type)))
+            return block(
+                    ifS(invalid, fail),
+                    assignS(fieldX(field), castX(type, varX(value)))
+            )
+        }
+
+        Statement assignment = fail
+        List<ClassNode> sourceTypes = [type]
+        List<ClassNode> widened = WIDENED_TYPES.get(type.name)
+        if(widened != null) {
+            sourceTypes.addAll(widened)
+        }
+        for(ClassNode sourceType in sourceTypes.reverse()) {
+            ClassNode wrapper = ClassHelper.getWrapper(sourceType)
+            Expression unboxed = castX(sourceType, castX(wrapper, varX(value)))
+            assignment = ifElseS(isInstanceOfX(varX(value), wrapper),
+                    assignS(fieldX(field), sourceType == type ? unboxed : castX(type, unboxed)),
+                    assignment)
+        }
+        return assignment
+    }
+
+    private static Statement dispatchOrdinal(Parameter ordinal, List<Statement> cases, int offset, int from, int to) {
+        if(to - from == 0) {
+            return invalidOrdinal(ordinal)
+        }
+        if(to - from == 1) {
+            return ifElseS(eqX(varX(ordinal), constX(offset + from, true)), cases.get(from), invalidOrdinal(ordinal))
+        }
+        int middle = (from + to) >>> 1
+        return ifElseS(ltX(varX(ordinal), constX(offset + middle, true)),
+                dispatchOrdinal(ordinal, cases, offset, from, middle),
+                dispatchOrdinal(ordinal, cases, offset, middle, to))
+    }
+
+    private static Statement invalidOrdinal(Parameter ordinal) {
+        return throwS(ctorX(ClassHelper.make(IndexOutOfBoundsException), args(plusX(constX("Invalid property ordinal: "), varX(ordinal)))))
+    }
+
     protected void injectVersionProperty(ClassNode classNode) {
         final boolean hasVersion = AstUtils.hasOrInheritsProperty(classNode, GormProperties.VERSION)
 
@@ -28,6 +28,7 @@ import groovy.transform.TypeCheckingMode
 import org.codehaus.groovy.runtime.InvokerHelper
 import org.grails.datastore.gorm.finders.DynamicFinder
 import org.grails.datastore.gorm.finders.FinderMethod
+import org.grails.datastore.gorm.finders.FinderMethodResolver
 import org.grails.datastore.gorm.multitenancy.TenantDelegatingGormOperations
 import org.grails.datastore.gorm.query.NamedCriteriaProxy
 import org.grails.datastore.mapping.core.Datastore
@@ -62,6 +63,7 @@ import org.springframework.util.Assert
 class GormStaticApi<D> extends AbstractGormApi<D> implements GormAllOperations<D> {
 
     protected final List<FinderMethod> gormDynamicFinders
+    protected final FinderMethodResolver finderMethodResolver
 
     protected final PlatformTransactionManager transactionManager
     protected final String defaultQualifier
@@ -75,6 +77,7 @@ class GormStaticApi<D> extends AbstractGormApi<D> implements GormAllOperations<D
     GormStaticApi(Class<D> persistentClass, Datastore datastore, List<FinderMethod> finders, PlatformTransactionManager transactionManager) {
         super(persistentClass, datastore)
         gormDynamicFinders = finders
+        finderMethodResolver = new FinderMethodResolver(finders)
         this.transactionManager = transactionManager
         String qualifier = ConnectionSource.DEFAULT
         if(datastore instanceof ConnectionSourcesProvider) {
@@ -134,7 +137,7 @@ class GormStaticApi<D> extends AbstractGormApi<D> implements GormAllOperations<D
      */
     @CompileDynamic
     def methodMissing(String methodName, Object args) {
-        FinderMethod method = gormDynamicFinders.find { FinderMethod f -> f.isMethodMatch(methodName) }
+        FinderMethod method = finderMethodResolver.resolve(methodName)
         if (!method) {
             if(args && args[-1] instanceof Closure) {
                 NamedCriteriaProxy proxy = GormEnhancer.createNamedQuery(persistentClass, methodName)
@@ -252,7 +255,9 @@ class GormStaticApi<D> extends AbstractGormApi<D> implements GormAllOperations<D
      */
     List<Serializable> saveAll(Object... objectsToSave) {
         (List<Serializable>)execute({ Session session ->
-           session.persist Arrays.asList(objectsToSave)
+           List<Object> objects = Arrays.asList(objectsToSave)
+           validateAll objects
+           session.persist objects
         } as SessionCallback)
     }
 
@@ -263,10 +268,34 @@ class GormStaticApi<D> extends AbstractGormApi<D> implements GormAllOperations<D
      */
     List<Serializable> saveAll(Iterable<?> objectsToSave) {
         (List<Serializable>)execute({ Session session ->
+            validateAll objectsToSave
             session.persist objectsToSave
         } as SessionCallback)
     }
 
+    /**
+     * Validates the objects to save in a batch per class, so that constraints such as uniqueness consult the datastore
+     * once per batch. The objects are validated again, one by one, when they are flushed.
+     *
+     * @param objectsToSave The objects to save
+     */
+    protected void validateAll(Iterable<?> objectsToSave) {
+        Map<Class, List<Object>> batches = new LinkedHashMap<Class, List<Object>>()
+        for (Object object in objectsToSave) {
+            if (object instanceof GormValidateable && !((GormValidateable) object).shouldSkipValidation()) {
+                List<Object> batch = batches.get(object.getClass())
+                if (batch == null) {
+                    batch = new ArrayList<Object>()
+                    batches.put(object.getClass(), batch)
+                }
+                batch.add(object)
+            }
+        }
+        for (Map.Entry<Class, List<Object>> batch in batches.entrySet()) {
+            GormEnhancer.findValidationApi((Class<Object>) batch.key, defaultQualifier).validateAll(batch.value)
+        }
+    }
+
     /**
      * Deletes a list of objects in one go
      * @param objectsToDelete The objects to delete
@@ -15,6 +15,7 @@
 package org.grails.datastore.gorm
 
 import grails.gorm.validation.CascadingValidator
+import grails.gorm.validation.PersistentEntityValidator
 import groovy.transform.CompileStatic
 import org.grails.datastore.gorm.support.BeforeValidateHelper
 import org.grails.datastore.gorm.validation.ValidatorProvider
@@ -106,19 +107,7 @@ class GormValidationApi<D> extends AbstractGormApi<D> {
                 return true
             }
 
-            ValidationErrors localErrors = new ValidationErrors(instance)
-
-            Errors errors = getErrors(instance)
-
-            for (error in errors.allErrors) {
-                if (error instanceof FieldError) {
-                    if (((FieldError)error).bindingFailure) {
-                        localErrors.addError error
-                    }
-                } else {
-                    localErrors.addError error
-                }
-            }
+            ValidationErrors localErrors = createLocalErrors(instance)
 
             if (validator instanceof CascadingValidator) {
                 ((CascadingValidator)validator).validate instance, localErrors, deepValidate
@@ -142,6 +131,74 @@ class GormValidationApi<D> extends AbstractGormApi<D> {
         }
     }
 
+    /**
+     * Validates a batch of instances. Constraints that can validate many instances at once, such as uniqueness, are
+     * applied to the whole batch, so that they consult the datastore once per batch rather than once per instance.
+     *
+     * @param instances The instances to validate
+     * @return True if all of the instances are valid
+     */
+    boolean validateAll(List<D> instances) {
+        Validator validator = getValidator()
+        if (!(validator instanceof PersistentEntityValidator)) {
+            boolean valid = true
+            for (D instance in instances) {
+                valid &= validate(instance)
+            }
+            return valid
+        }
+
+        FlushModeType previousFlushMode = null
+        Session currentSession = null
+        if(hasDatastore) {
+            currentSession = datastore.currentSession
+            previousFlushMode = currentSession.flushMode
+            currentSession.setFlushMode(FlushModeType.COMMIT)
+        }
+        try {
+            List<Errors> batchErrors = new ArrayList<Errors>(instances.size())
+            for (D instance in instances) {
+                beforeValidateHelper.invokeBeforeValidate instance, null
+                fireEvent(instance, null)
+                batchErrors.add(createLocalErrors(instance))
+            }
+
+            ((PersistentEntityValidator)validator).validateAll((List<Object>)instances, batchErrors)
+
+            boolean valid = true
+            for (int i = 0; i < instances.size(); i++) {
+                D instance = instances.get(i)
+                setErrors(instance, batchErrors.get(i))
+                valid &= !getErrors(instance).hasErrors()
+            }
+            return valid
+        } finally {
+            if(previousFlushMode != null) {
+                currentSession.setFlushMode(previousFlushMode)
+            }
+        }
+    }
+
+    /**
+     * Creates the errors an instance is validated with, keeping the binding failures of its current errors
+     */
+    private ValidationErrors createLocalErrors(D instance) {
+        ValidationErrors localErrors = new ValidationErrors(instance)
+
+        Errors errors = getErrors(instance)
+
+        for (error in errors.allErrors) {
+            if (error instanceof FieldError) {
+                if (((FieldError)error).bindingFailure) {
+                    localErrors.addError error
+                }
+            } else {
+                localErrors.addError error
+            }
+        }
+        return localErrors
+    }
+
     /**
      * Validates an instance for the given arguments
      *
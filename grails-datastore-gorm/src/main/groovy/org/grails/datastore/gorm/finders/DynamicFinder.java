@@ -14,6 +14,8 @@
  */
 package org.grails.datastore.gorm.finders;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import grails.gorm.DetachedCriteria;
 import groovy.lang.Closure;
 import groovy.lang.MissingMethodException;
@@ -82,6 +84,10 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
     public static final String ARGUMENT_IGNORE_CASE = "ignoreCase";
     public static final String ARGUMENT_CACHE = "cache";
     public static final String ARGUMENT_LOCK = "lock";
+    /**
+     * The maximum number of method names each finder caches the parsed finder plan of
+     */
+    public static final int MAX_CACHED_FINDER_PLANS = 1000;
     protected Pattern pattern;
 
     private static final String OPERATOR_OR = "Or";
@@ -97,7 +103,15 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
 
     private static final String NOT = "Not";
     private static final Map<String, Constructor> methodExpressions = new LinkedHashMap<String, Constructor>();
+    // incremented whenever a method expression is registered, which invalidates the cached plans
+    private static volatile int methodExpressionsVersion;
     protected final MappingContext mappingContext;
+    private final Cache<String, FinderPlan> finderPlans = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_FINDER_PLANS)
+            .build();
+    private static final Cache<String, MethodExpressionPlan> methodExpressionPlans = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_FINDER_PLANS)
+            .build();
 
     static {
         defaultOperationPatterns = new Pattern[2];
@@ -237,6 +251,8 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
      */
     public void setPattern(String pattern) {
         this.pattern = Pattern.compile(pattern);
+        finderPlans.invalidateAll();
+        FinderMethodResolver.invalidateAll();
     }
 
     /**
@@ -272,83 +288,48 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
             System.arraycopy(arguments,0,tmp, 0, arguments.length);
             arguments = tmp;
         }
-        Matcher match = pattern.matcher(methodName);
-        // find match
-        match.find();
+        FinderPlan plan = getFinderPlan(methodName);
 
-        String[] queryParameters;
         int totalRequiredArguments = 0;
-        // get the sequence clauses
-        final String querySequence;
-        int groupCount = match.groupCount();
-        if (groupCount == 6) {
-            String booleanProperty = match.group(3);
-            if (booleanProperty == null) {
-                booleanProperty = match.group(6);
-                querySequence = null;
-            }
-            else {
-                querySequence = match.group(5);
-            }
-            Boolean arg = Boolean.TRUE;
-            if (booleanProperty.matches("Not[A-Z].*")) {
-                booleanProperty = booleanProperty.substring(3);
-                arg = Boolean.FALSE;
-            }
-            MethodExpression booleanExpression = findMethodExpression(clazz, booleanProperty);
-            booleanExpression.setArguments(new Object[]{arg});
+        if (plan.booleanExpression != null) {
+            MethodExpression booleanExpression = findMethodExpression(clazz, plan.booleanExpression);
+            booleanExpression.setArguments(new Object[]{plan.booleanArgument});
             expressions.add(booleanExpression);
         }
-        else {
-            querySequence = match.group(2);
-        }
-        // if it contains operator and split
-        boolean containsOperator = false;
-        String operatorInUse = null;
-        if (querySequence != null) {
-            for (int i = 0; i < operators.length; i++) {
-                Matcher currentMatcher = operatorPatterns[i].matcher(querySequence);
-                if (currentMatcher.find()) {
-                    containsOperator = true;
-                    operatorInUse = operators[i];
-
-                    queryParameters = querySequence.split(operatorInUse);
-
-                    // loop through query parameters and create expressions
-                    // calculating the number of arguments required for the expression
-                    int argumentCursor = 0;
-                    for (String queryParameter : queryParameters) {
-                        MethodExpression currentExpression = findMethodExpression(clazz, queryParameter);
-                        final int requiredArgs = currentExpression.getArgumentsRequired();
-                        // populate the arguments into the GrailsExpression from the argument list
-                        Object[] currentArguments = new Object[requiredArgs];
-                        if ((argumentCursor + requiredArgs) > arguments.length) {
-                            throw new MissingMethodException(methodName, clazz, arguments);
-                        }
-
-                        for (int k = 0; k < requiredArgs; k++, argumentCursor++) {
-                            currentArguments[k] = arguments[argumentCursor];
-                        }
-                        currentExpression = getInitializedExpression(currentExpression, currentArguments);
-                        PersistentEntity persistentEntity = mappingContext.getPersistentEntity(clazz.getName());
+        final String operatorInUse = plan.operator;
+        if (operatorInUse != null) {
+            PersistentEntity persistentEntity = mappingContext.getPersistentEntity(clazz.getName());
+            // loop through query parameters and create expressions
+            // calculating the number of arguments required for the expression
+            int argumentCursor = 0;
+            for (String queryParameter : plan.expressions) {
+                MethodExpression currentExpression = findMethodExpression(clazz, queryParameter);
+                final int requiredArgs = currentExpression.getArgumentsRequired();
+                // populate the arguments into the GrailsExpression from the argument list
+                Object[] currentArguments = new Object[requiredArgs];
+                if ((argumentCursor + requiredArgs) > arguments.length) {
+                    throw new MissingMethodException(methodName, clazz, arguments);
+                }
 
-                        try {
-                            currentExpression.convertArguments(persistentEntity);
-                        } catch (ConversionException e) {
-                            throw new MissingMethodException(methodName, clazz, arguments);
-                        }
+                for (int k = 0; k < requiredArgs; k++, argumentCursor++) {
+                    currentArguments[k] = arguments[argumentCursor];
+                }
+                currentExpression = getInitializedExpression(currentExpression, currentArguments);
 
-                        // add to list of expressions
-                        totalRequiredArguments += currentExpression.argumentsRequired;
-                        expressions.add(currentExpression);
-                    }
-                    break;
+                try {
+                    currentExpression.convertArguments(persistentEntity);
+                } catch (ConversionException e) {
+                    throw new MissingMethodException(methodName, clazz, arguments);
                 }
+
+                // add to list of expressions
+                totalRequiredArguments += currentExpression.argumentsRequired;
+                expressions.add(currentExpression);
             }
         }
         // otherwise there is only one expression
-        if (!containsOperator && querySequence != null) {
-            MethodExpression solo =findMethodExpression(clazz,querySequence);
+        else if (plan.expressions.length > 0) {
+            MethodExpression solo = findMethodExpression(clazz, plan.expressions[0]);
 
             final int requiredArguments = solo.getArgumentsRequired();
             if (requiredArguments  > arguments.length) {
@@ -356,8 +337,6 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
             }
 
             totalRequiredArguments += requiredArguments;
-            Object[] soloArgs = new Object[requiredArguments];
-            System.arraycopy(arguments, 0, soloArgs, 0, requiredArguments);
             solo = getInitializedExpression(solo, arguments);
             PersistentEntity persistentEntity = mappingContext.getPersistentEntity(clazz.getName());
             try {
@@ -388,6 +367,75 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
                 expressions, additionalCriteria, operatorInUse);
     }
 
+    /**
+     * Obtains the split form of the given method name, which is cached since splitting involves several regular
+     * expressions while the plan only depends on the method name. The expressions themselves are still created
+     * by {@link #findMethodExpression(Class, String)} on every invocation
+     *
+     * @param methodName The method name
+     * @return The finder plan
+     */
+    private FinderPlan getFinderPlan(String methodName) {
+        FinderPlan plan = finderPlans.getIfPresent(methodName);
+        if (plan == null || plan.version != methodExpressionsVersion) {
+            plan = parseFinderPlan(methodName);
+            finderPlans.put(methodName, plan);
+        }
+        return plan;
+    }
+
+    private FinderPlan parseFinderPlan(String methodName) {
+        int version = methodExpressionsVersion;
+        Matcher match = pattern.matcher(methodName);
+        // find match
+        match.find();
+
+        String booleanExpression = null;
+        Boolean booleanArgument = null;
+        // get the sequence clauses
+        final String querySequence;
+        int groupCount = match.groupCount();
+        if (groupCount == 6) {
+            String booleanProperty = match.group(3);
+            if (booleanProperty == null) {
+                booleanProperty = match.group(6);
+                querySequence = null;
+            }
+            else {
+                querySequence = match.group(5);
+            }
+            booleanArgument = Boolean.TRUE;
+            if (booleanProperty.matches("Not[A-Z].*")) {
+                booleanProperty = booleanProperty.substring(3);
+                booleanArgument = Boolean.FALSE;
+            }
+            booleanExpression = booleanProperty;
+        }
+        else {
+            querySequence = match.group(2);
+        }
+
+        String operatorInUse = null;
+        List<String> expressions = new ArrayList<>();
+        if (querySequence != null) {
+            // if it contains operator and split
+            for (int i = 0; i < operators.length; i++) {
+                Matcher currentMatcher = operatorPatterns[i].matcher(querySequence);
+                if (currentMatcher.find()) {
+                    operatorInUse = operators[i];
+                    Collections.addAll(expressions, querySequence.split(operatorInUse));
+                    break;
+                }
+            }
+            // otherwise there is only one expression
+            if (operatorInUse == null) {
+                expressions.add(querySequence);
+            }
+        }
+        return new FinderPlan(version, booleanExpression, booleanArgument, operatorInUse,
+                expressions.toArray(new String[0]));
+    }
+
     public Object invoke(final Class clazz, String methodName, Object[] arguments) {
         return invoke(clazz, methodName, (Closure)null, arguments);
     }
@@ -634,7 +682,16 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
     }
 
     private static MethodExpression findMethodExpressionInternal(final Class clazz, String expression) {
-        MethodExpression me = null;
+        MethodExpressionPlan plan = methodExpressionPlans.getIfPresent(expression);
+        if (plan == null || plan.version != methodExpressionsVersion) {
+            plan = parseMethodExpression(expression);
+            methodExpressionPlans.put(expression, plan);
+        }
+        return plan.create(clazz);
+    }
+
+    private static MethodExpressionPlan parseMethodExpression(String expression) {
+        int version = methodExpressionsVersion;
         final Matcher matcher = methodExpressinPattern.matcher(expression);
         Class methodExpressionClass = Equal.class;
         Constructor methodExpressionConstructor = null;
@@ -660,41 +717,7 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
         }
 
         propertyName = NameUtils.decapitalizeFirstChar(propertyName);
-        if(methodExpressionConstructor != null) {
-            try {
-                me = (MethodExpression) methodExpressionConstructor.newInstance(clazz, propertyName);
-            } catch (Exception e) {
-                // ignore
-            }
-        }
-        if (me == null) {
-            me = new Equal(clazz, propertyName);
-        }
-        if(negation) {
-            final MethodExpression finalMe = me;
-            return new MethodExpression(clazz, propertyName) {
-                @Override
-                public Query.Criterion createCriterion() {
-                    return new Query.Negation().add(finalMe.createCriterion());
-                }
-
-                @Override
-                public void setArguments(Object[] arguments) {
-                    finalMe.setArguments(arguments);
-                }
-
-                @Override
-                public int getArgumentsRequired() {
-                    return finalMe.getArgumentsRequired();
-                }
-
-                @Override
-                public Object[] getArguments() {
-                    return finalMe.getArguments();
-                }
-            };
-        }
-        return me;
+        return new MethodExpressionPlan(version, methodExpressionConstructor, propertyName, negation);
     }
 
     private static void handleFetchType(BuildableCriteria q, String associationName, FetchType fetchType) {
@@ -710,6 +733,7 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
     private static void resetMethodExpressionPattern() {
         String expressionPattern = DefaultGroovyMethods.join((Iterable)methodExpressions.keySet(), "|");
         methodExpressinPattern = Pattern.compile("\\p{Upper}[\\p{Lower}\\d]+(" + expressionPattern + ")");
+        methodExpressionsVersion++;
     }
 
     private static void addSimpleSort(Query q, String sort, String order, boolean ignoreCase) {
@@ -774,5 +798,78 @@ public abstract class DynamicFinder extends AbstractFinder implements QueryBuild
         return expression;
     }
 
+    /**
+     * The split form of a dynamic finder method name, holding the method expressions of an invocation such as "AgeGreaterThan"
+     */
+    private static final class FinderPlan {
+        final int version;
+        final String booleanExpression;
+        final Boolean booleanArgument;
+        final String operator;
+        final String[] expressions;
+
+        FinderPlan(int version, String booleanExpression, Boolean booleanArgument, String operator, String[] expressions) {
+            this.version = version;
+            this.booleanExpression = booleanExpression;
+            this.booleanArgument = booleanArgument;
+            this.operator = operator;
+            this.expressions = expressions;
+        }
+    }
+
+    /**
+     * The parsed form of a method expression such as "AgeGreaterThan"
+     */
+    private static final class MethodExpressionPlan {
+        final int version;
+        final Constructor constructor;
+        final String propertyName;
+        final boolean negation;
+
+        MethodExpressionPlan(int version, Constructor constructor, String propertyName, boolean negation) {
+            this.version = version;
+            this.constructor = constructor;
+            this.propertyName = propertyName;
+            this.negation = negation;
+        }
+
+        MethodExpression create(Class clazz) {
+            MethodExpression me = null;
+            if(constructor != null) {
+                try {
+                    me = (MethodExpression) constructor.newInstance(clazz, propertyName);
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            if (me == null) {
+                me = new Equal(clazz, propertyName);
+            }
+            if(negation) {
+                final MethodExpression finalMe = me;
+                return new MethodExpression(clazz, propertyName) {
+                    @Override
+                    public Query.Criterion createCriterion() {
+                        return new Query.Negation().add(finalMe.createCriterion());
+                    }
 
+                    @Override
+                    public void setArguments(Object[] arguments) {
+                        finalMe.setArguments(arguments);
+                    }
+
+                    @Override
+                    public int getArgumentsRequired() {
+                        return finalMe.getArgumentsRequired();
+                    }
+
+                    @Override
+                    public Object[] getArguments() {
+                        return finalMe.getArguments();
+                    }
+                };
+            }
+            return me;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.gorm.finders;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Resolves the finder a method name refers to. The first finder whose pattern matches the method name wins, as
+ * the finders are tried in order. The patterns of the finders are matched once per method name; the finder, or the
+ * absence of one, is then looked up from a bounded cache.</p>
+ *
+ * <p>Method names no finder matches are cached as well, so that names of named queries or misspelled methods are not
+ * matched against every pattern on each call. The resolutions of all resolvers are discarded by
+ * {@link #invalidateAll()}, which is called whenever the pattern of a finder changes.</p>
+ *
+ * @since 7.1
+ */
+public class FinderMethodResolver {
+
+    /**
+     * The default maximum number of method names whose finder is cached
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private final List<FinderMethod> finders;
+    private final Cache<String, Resolution> resolved;
+
+    public FinderMethodResolver(List<FinderMethod> finders) {
+        this(finders, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param finders The finders, in the order they are tried
+     * @param maxSize The maximum number of method names whose finder is cached
+     */
+    public FinderMethodResolver(List<FinderMethod> finders, int maxSize) {
+        this.finders = finders;
+        this.resolved = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @param methodName The method name
+     * @return The finder the method name refers to or null if it does not refer to a finder
+     */
+    public FinderMethod resolve(String methodName) {
+        // read before matching, so that a change of a pattern during the match leaves the resolution stale
+        long current = GENERATION.get();
+        Resolution resolution = resolved.getIfPresent(methodName);
+        if (resolution == null || resolution.generation != current) {
+            resolution = new Resolution(current, match(methodName));
+            resolved.put(methodName, resolution);
+        }
+        return resolution.finder;
+    }
+
+    /**
+     * Discards the resolutions of all resolvers. Must be called whenever the finders of a resolver or the patterns of
+     * the finders change.
+     */
+    public static void invalidateAll() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * @return The finders, in the order they are tried
+     */
+    public List<FinderMethod> getFinders() {
+        return finders;
+    }
+
+    private FinderMethod match(String methodName) {
+        for (FinderMethod finder : finders) {
+            if (finder.isMethodMatch(methodName)) {
+                return finder;
+            }
+        }
+        return null;
+    }
+
+    private static final class Resolution {
+        final long generation;
+        final FinderMethod finder;
+
+        Resolution(long generation, FinderMethod finder) {
+            this.generation = generation;
+            this.finder = finder;
+        }
+    }
+}
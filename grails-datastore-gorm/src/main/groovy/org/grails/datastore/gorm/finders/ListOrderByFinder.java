@@ -46,6 +46,7 @@ public class ListOrderByFinder extends AbstractFinder {
 
     public void setPattern(String pattern) {
         this.pattern = Pattern.compile(pattern);
+        FinderMethodResolver.invalidateAll();
     }
 
     @SuppressWarnings("rawtypes")
@@ -1,19 +1,31 @@
 package org.grails.datastore.gorm.validation.constraints.builtin
 
 import grails.gorm.DetachedCriteria
+import grails.gorm.validation.BatchValidatingConstraint
 import groovy.transform.CompileStatic
+import org.grails.datastore.gorm.GormEnhancer
 import org.grails.datastore.gorm.validation.constraints.AbstractConstraint
+import org.grails.datastore.mapping.core.Datastore
+import org.grails.datastore.mapping.core.DatastoreUtils
+import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.core.SessionCallback
 import org.grails.datastore.mapping.dirty.checking.DirtyCheckable
+import org.grails.datastore.mapping.engine.Persister
+import org.grails.datastore.mapping.engine.UniqueIndexLookup
 import org.grails.datastore.mapping.model.MappingContext
 import org.grails.datastore.mapping.model.PersistentEntity
 import org.grails.datastore.mapping.model.PersistentProperty
 import org.grails.datastore.mapping.model.types.Association
+import org.grails.datastore.mapping.model.types.TenantId
 import org.grails.datastore.mapping.model.types.ToOne
 import org.grails.datastore.mapping.proxy.ProxyHandler
 import org.grails.datastore.mapping.reflect.EntityReflector
+import org.grails.datastore.mapping.reflect.ValueKeys
 import org.springframework.context.MessageSource
 import org.springframework.validation.Errors
 
+import java.util.concurrent.ConcurrentHashMap
+
 /**
  * A constraint that validates for the presence of an existing object (uniqueness)
  *
@@ -22,12 +34,24 @@ import org.springframework.validation.Errors
  *
  */
 @CompileStatic
-class UniqueConstraint extends AbstractConstraint {
+class UniqueConstraint extends AbstractConstraint implements BatchValidatingConstraint {
 
     public static final String NAME = "unique"
 
+    /**
+     * The maximum number of values queried with a single in-list restriction when validating a batch
+     */
+    protected static final int BATCH_QUERY_SIZE = 500
+
     protected List group = []
 
+    /**
+     * The validation plans keyed by the class of the validated instances
+     */
+    protected final Map<Class, ValidationPlan> validationPlans = new ConcurrentHashMap<Class, ValidationPlan>()
+
+    private volatile PersistentEntity owningEntity
+
     UniqueConstraint(Class<?> constraintOwningClass, String constraintPropertyName, Object constraintParameter, MessageSource messageSource) {
         super(constraintOwningClass, constraintPropertyName, constraintParameter, messageSource)
         if(constraintParameter instanceof Iterable) {
@@ -51,106 +75,334 @@ class UniqueConstraint extends AbstractConstraint {
 
     @Override
     protected void processValidate(Object target, Object propertyValue, Errors errors) {
+        UniqueValues uniqueValues = resolveUniqueValues(target, propertyValue, errors)
+        if (uniqueValues == null) {
+            return
+        }
+
+        List<Serializable> existingIds = lookupUniqueIndex(uniqueValues.plan, uniqueValues.values)
+        if (existingIds != null) {
+            for (existingId in existingIds) {
+                if (uniqueValues.targetId != existingId) {
+                    rejectNotUnique(uniqueValues)
+                    return
+                }
+            }
+            return
+        }
+
+        DetachedCriteria detachedCriteria = new DetachedCriteria(uniqueValues.constraintEntity.javaClass)
+        for (Map.Entry<String, Object> uniqueValue in uniqueValues.values.entrySet()) {
+            detachedCriteria.eq(uniqueValue.key, uniqueValue.value)
+        }
+
+        def existingId = detachedCriteria.id().get()
+        if (existingId != null && uniqueValues.targetId != existingId) {
+            rejectNotUnique(uniqueValues)
+        }
+    }
 
-        DetachedCriteria detachedCriteria = new DetachedCriteria(constraintOwningClass)
+    /**
+     * Validates the uniqueness of the values of a batch of targets. Targets that hold the same values as a target
+     * earlier in the batch are rejected without consulting the datastore, and the values of the remaining targets are
+     * queried with an in-list restriction per constraint class rather than a query per target.
+     */
+    @Override
+    void validateBatch(List<Object> targets, List<Object> propertyValues, List<Errors> errors) {
+        checkState()
+
+        Map<List<Object>, UniqueValues> valuesInBatch = new HashMap<List<Object>, UniqueValues>()
+        Map<PersistentEntity, List<UniqueValues>> toQuery = new LinkedHashMap<PersistentEntity, List<UniqueValues>>()
+        int size = targets.size()
+        for (int i = 0; i < size; i++) {
+            Object propertyValue = propertyValues.get(i)
+            if (propertyValue == null && skipNullValues()) {
+                continue
+            }
+            if (skipBlankValues() && propertyValue instanceof String && ((String) propertyValue).isEmpty()) {
+                continue
+            }
+
+            UniqueValues uniqueValues = resolveUniqueValues(targets.get(i), propertyValue, errors.get(i))
+            if (uniqueValues == null) {
+                continue
+            }
+
+            List<Object> key = uniqueValues.getKey(group)
+            if (uniqueValues.constraintEntity.isMultiTenant()) {
+                // the values only have to be unique among the entities of the same tenant
+                key = new ArrayList<Object>(key)
+                key.add(uniqueValues.tenantId)
+            }
+            UniqueValues earlier = valuesInBatch.get(key)
+            if (earlier == null) {
+                valuesInBatch.put(key, uniqueValues)
+            }
+            else if (!earlier.target.is(uniqueValues.target) && (uniqueValues.targetId == null || uniqueValues.targetId != earlier.targetId)) {
+                rejectNotUnique(uniqueValues)
+                continue
+            }
 
-        MappingContext mappingContext = detachedCriteria.getPersistentEntity()
-                                                        .getMappingContext()
-        PersistentEntity targetEntity = mappingContext.getPersistentEntity(mappingContext.getProxyHandler().getProxiedClass(target).getName())
+            List<UniqueValues> entityValues = toQuery.get(uniqueValues.constraintEntity)
+            if (entityValues == null) {
+                entityValues = new ArrayList<UniqueValues>()
+                toQuery.put(uniqueValues.constraintEntity, entityValues)
+            }
+            entityValues.add(uniqueValues)
+        }
 
-        // Determine the GORM class that actually defines this field
-        Class<?> constraintClass = constraintOwningClass
-        if (!targetEntity.isRoot()) {
-            def property = targetEntity.getPropertyByName(constraintPropertyName)
-            while (property.isInherited() && targetEntity != null) {
-                targetEntity = mappingContext.getPersistentEntity(targetEntity.javaClass.superclass.name)
-                if (targetEntity != null) {
-                    property = targetEntity.getPropertyByName(constraintPropertyName)
+        for (List<UniqueValues> entityValues in toQuery.values()) {
+            List<UniqueValues> queried = new ArrayList<UniqueValues>()
+            for (UniqueValues uniqueValues in entityValues) {
+                List<Serializable> existingIds = lookupUniqueIndex(uniqueValues.plan, uniqueValues.values)
+                if (existingIds != null) {
+                    for (existingId in existingIds) {
+                        if (uniqueValues.targetId != existingId) {
+                            rejectNotUnique(uniqueValues)
+                            break
+                        }
+                    }
                 }
+                else if (uniqueValues.constraintEntity.getPropertyByName(constraintPropertyName) instanceof ToOne) {
+                    // associations are not queried with an in-list restriction
+                    processValidate(uniqueValues.target, uniqueValues.propertyValue, uniqueValues.errors)
+                }
+                else {
+                    queried.add(uniqueValues)
+                }
+            }
+
+            for (int from = 0; from < queried.size(); from += BATCH_QUERY_SIZE) {
+                validateBatchQuery(queried.subList(from, Math.min(from + BATCH_QUERY_SIZE, queried.size())))
+            }
+        }
+    }
+
+    /**
+     * Queries the identifiers and unique values of the entities holding any of the values of the given targets and
+     * rejects the targets whose values are held by another entity
+     */
+    protected void validateBatchQuery(List<UniqueValues> batch) {
+        PersistentEntity constraintEntity = batch.get(0).constraintEntity
+        List<Object> values = new ArrayList<Object>()
+        Set<Object> distinctValues = new HashSet<Object>()
+        for (UniqueValues uniqueValues in batch) {
+            if (distinctValues.add(uniqueValues.getKey(group).get(0))) {
+                values.add(uniqueValues.propertyValue)
             }
-            constraintClass = targetEntity != null? targetEntity.javaClass: constraintClass
         }
 
-        // Re-create the detached criteria based on the new constraint class
-        detachedCriteria = new DetachedCriteria(constraintClass)
+        DetachedCriteria detachedCriteria = new DetachedCriteria(constraintEntity.javaClass)
+        detachedCriteria.inList(constraintPropertyName, values)
+        detachedCriteria = detachedCriteria.id().property(constraintPropertyName)
+        for (prop in group) {
+            detachedCriteria = detachedCriteria.property(prop.toString())
+        }
+
+        // rows of the identifier followed by the unique values, keyed by the constrained value
+        Map<Object, List<List<Object>>> rowsByValue = new HashMap<Object, List<List<Object>>>()
+        for (result in detachedCriteria.list()) {
+            List<Object> row = result instanceof Object[] ? Arrays.asList((Object[]) result) : (List<Object>) result
+            List<Object> existing = new ArrayList<Object>(row.size())
+            existing.add(row.get(0))
+            existing.add(normalizeValue(constraintEntity, constraintPropertyName, row.get(1)))
+            for (int i = 0; i < group.size(); i++) {
+                existing.add(normalizeValue(constraintEntity, group.get(i).toString(), row.get(i + 2)))
+            }
 
-        if(targetEntity == null) {
-            throw new IllegalStateException("Cannot validate object [$target]. It is not a persistent entity")
+            List<List<Object>> rows = rowsByValue.get(existing.get(1))
+            if (rows == null) {
+                rows = new ArrayList<List<Object>>()
+                rowsByValue.put(existing.get(1), rows)
+            }
+            rows.add(existing)
         }
 
-        EntityReflector reflector = targetEntity.reflector
-        String constraintPropertyName = this.constraintPropertyName
-        List group = this.group
-        
+        for (UniqueValues uniqueValues in batch) {
+            List<Object> key = uniqueValues.getKey(group)
+            List<List<Object>> rows = rowsByValue.get(key.get(0))
+            if (rows == null) {
+                continue
+            }
+            for (List<Object> row in rows) {
+                if (uniqueValues.targetId != row.get(0) && groupMatches(key, row)) {
+                    rejectNotUnique(uniqueValues)
+                    break
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the group values of a row match those of a target. Group properties the target holds no value for are
+     * not restricted on, as with the query of a single target.
+     */
+    private static boolean groupMatches(List<Object> key, List<Object> row) {
+        for (int i = 1; i < key.size(); i++) {
+            Object value = key.get(i)
+            if (value != null && value != row.get(i + 1)) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Resolves the values that have to be unique for the given target
+     *
+     * @return The values or null if the target does not have to be validated
+     */
+    protected UniqueValues resolveUniqueValues(Object target, Object propertyValue, Errors errors) {
+        ValidationPlan plan = getValidationPlan(target)
+        String[] groupNames = plan.groupNames
+
         if(target instanceof DirtyCheckable) {
-            Boolean anyChanges = target.hasChanged(constraintPropertyName)
-            for(prop in group) {
-                anyChanges |= target.hasChanged(prop.toString())
+            DirtyCheckable dirtyCheckable = (DirtyCheckable) target
+            boolean anyChanges = dirtyCheckable.hasChanged(constraintPropertyName)
+            for (int i = 0; !anyChanges && i < groupNames.length; i++) {
+                anyChanges = dirtyCheckable.hasChanged(groupNames[i])
             }
             if(!anyChanges) {
-                return
+                return null
             }
         }
 
-        PersistentProperty persistentProperty = targetEntity.getPropertyByName(constraintPropertyName)
-        boolean isToOne = persistentProperty instanceof ToOne
-        if(isToOne) {
-            def associationId = ((Association) persistentProperty).getAssociatedEntity().getReflector().getIdentifier(propertyValue)
+        if(plan.constrainedAssociation != null) {
+            def associationId = plan.constrainedAssociation.getReflector().getIdentifier(propertyValue)
             if(associationId == null) {
                 // unsaved entity
-                return
-            }
-        }
-
-        if (constraintParameter) {
-            boolean shouldValidate = true
-            final ProxyHandler proxyHandler = targetEntity.getMappingContext().proxyHandler
-            detachedCriteria = detachedCriteria.build {
-                eq(constraintPropertyName, propertyValue)
-                if (!group.isEmpty()) {
-                    for (prop in group) {
-                        String propName = prop.toString()
-                        def value = reflector.getProperty(target, propName)
-                        if (value != null) {
-                            PersistentProperty associated = targetEntity.getPropertyByName(propName)
-                            if (associated instanceof ToOne) {
-                                // We are merely verifying that the object is not transient here
-                                def associationId
-                                if (proxyHandler.isProxy(value)) {
-                                    associationId = proxyHandler.getIdentifier(value)
-                                } else {
-                                    associationId = ((Association) associated).getAssociatedEntity().getReflector().getIdentifier(value)
-                                }
-                                if (associationId == null) {
-                                    // no need to validate since this group association is unsaved
-                                    shouldValidate = false
-
-                                    // we aren't validating, so no point continuing
-                                    continue
-                                }
-                            }
-                            eq propName, value
-                        }
-                    }
-                }
-            }.id()
-
-            if (shouldValidate) {
-                def existingId = detachedCriteria.get()
-                if (existingId != null) {
-                    def targetId
-                    if (proxyHandler.isProxy(target)) {
-                        targetId = proxyHandler.getIdentifier(target)
+                return null
+            }
+        }
+
+        if (!constraintParameter) {
+            return null
+        }
+
+        final ProxyHandler proxyHandler = plan.proxyHandler
+        Map<String, Object> values = new LinkedHashMap<String, Object>()
+        values.put(constraintPropertyName, propertyValue)
+        for (int i = 0; i < groupNames.length; i++) {
+            def value = plan.groupReaders[i].read(target)
+            if (value != null) {
+                PersistentEntity associatedEntity = plan.groupAssociations[i]
+                if (associatedEntity != null) {
+                    // We are merely verifying that the object is not transient here
+                    def associationId
+                    if (proxyHandler.isProxy(value)) {
+                        associationId = proxyHandler.getIdentifier(value)
                     } else {
-                        targetId = reflector.getIdentifier(target)
+                        associationId = associatedEntity.getReflector().getIdentifier(value)
                     }
-                    if (targetId != existingId) {
-                        def args = [constraintPropertyName, constraintOwningClass, propertyValue] as Object[]
-                        rejectValue(target, errors, "unique", args, getDefaultMessage("default.not.unique.message"))
+                    if (associationId == null) {
+                        // no need to validate since this group association is unsaved
+                        return null
                     }
                 }
+                values.put(groupNames[i], value)
+            }
+        }
+
+        def targetId
+        if (proxyHandler.isProxy(target)) {
+            targetId = proxyHandler.getIdentifier(target)
+        } else {
+            targetId = plan.reflector.getIdentifier(target)
+        }
+
+        def tenantId = plan.tenantReader != null ? plan.tenantReader.read(target) : null
+        return new UniqueValues(plan, target, propertyValue, errors, values, targetId, tenantId)
+    }
+
+    /**
+     * Obtains the plan for validating instances of the class of the given target, creating it on first use
+     */
+    protected ValidationPlan getValidationPlan(Object target) {
+        Class targetClass = target.getClass()
+        ValidationPlan plan = validationPlans.get(targetClass)
+        if (plan == null) {
+            plan = new ValidationPlan(getOwningEntity(), target, constraintPropertyName, group)
+            validationPlans.put(targetClass, plan)
+        }
+        return plan
+    }
+
+    /**
+     * @return The entity of the constraint owning class, resolved on first use
+     */
+    protected PersistentEntity getOwningEntity() {
+        PersistentEntity entity = owningEntity
+        if (entity == null) {
+            entity = GormEnhancer.findEntity(constraintOwningClass)
+            owningEntity = entity
+        }
+        return entity
+    }
+
+    /**
+     * Looks up the identifiers of the entities holding the given values in a native index, if the datastore of the
+     * entity that defines the constrained property declares one for the properties
+     *
+     * @param plan The plan of the validated instance
+     * @param uniqueValues The values that have to be unique, keyed by property name
+     * @return The identifiers or null if the values have to be queried
+     */
+    protected List<Serializable> lookupUniqueIndex(ValidationPlan plan, Map<String, Object> uniqueValues) {
+        Datastore datastore = plan.datastore
+        if (datastore == null) {
+            // the query applies the tenant restriction
+            return null
+        }
+        List<String> propertyNames = new ArrayList<String>(uniqueValues.keySet())
+        Boolean indexed = plan.uniqueIndexes.get(propertyNames)
+        if (indexed != null && !indexed.booleanValue()) {
+            return null
+        }
+        if (datastore.hasCurrentSession()) {
+            return lookupUniqueIndexInSession(plan, datastore.currentSession, propertyNames, uniqueValues)
+        }
+        return DatastoreUtils.execute(datastore, new SessionCallback<List<Serializable>>() {
+            @Override
+            List<Serializable> doInSession(Session session) {
+                return lookupUniqueIndexInSession(plan, session, propertyNames, uniqueValues)
+            }
+        })
+    }
+
+    protected static List<Serializable> lookupUniqueIndexInSession(ValidationPlan plan, Session session, List<String> propertyNames, Map<String, Object> uniqueValues) {
+        Persister persister = session.getPersister(plan.constraintEntity.javaClass)
+        Boolean indexed = plan.uniqueIndexes.get(propertyNames)
+        if (indexed == null) {
+            indexed = persister instanceof UniqueIndexLookup && ((UniqueIndexLookup) persister).hasUniqueIndex(propertyNames)
+            plan.uniqueIndexes.put(propertyNames, indexed)
+        }
+        return indexed.booleanValue() ? ((UniqueIndexLookup) persister).lookupUnique(uniqueValues) : null
+    }
+
+    /**
+     * Normalizes a value so that values that are equal in the datastore compare equal, with associations compared
+     * by identifier
+     */
+    protected static Object normalizeValue(PersistentEntity entity, String propertyName, Object value) {
+        if (value == null) {
+            return null
+        }
+        PersistentProperty property = entity.getPropertyByName(propertyName)
+        if (property instanceof ToOne) {
+            ProxyHandler proxyHandler = entity.mappingContext.proxyHandler
+            if (proxyHandler.isProxy(value)) {
+                value = proxyHandler.getIdentifier(value)
+            }
+            else if (((ToOne) property).associatedEntity?.javaClass?.isInstance(value)) {
+                value = ((ToOne) property).associatedEntity.reflector.getIdentifier(value)
             }
         }
+        return ValueKeys.equalityKey(value)
+    }
+
+    protected void rejectNotUnique(UniqueValues uniqueValues) {
+        def args = [constraintPropertyName, constraintOwningClass, uniqueValues.propertyValue] as Object[]
+        rejectValue(uniqueValues.target, uniqueValues.errors, "unique", args, getDefaultMessage("default.not.unique.message"))
     }
 
 
@@ -163,4 +415,116 @@ class UniqueConstraint extends AbstractConstraint {
     String getName() {
         return NAME
     }
+
+    /**
+     * What validating the instances of a concrete class requires, which does not change between validations: the
+     * entity that defines the constrained property, the readers of the group properties and which groups of
+     * properties the datastore of the entity has a native unique index for
+     */
+    @CompileStatic
+    protected static class ValidationPlan {
+        final PersistentEntity owningEntity
+        final PersistentEntity constraintEntity
+        final EntityReflector reflector
+        final ProxyHandler proxyHandler
+        final PersistentEntity constrainedAssociation
+        final String[] groupNames
+        final EntityReflector.PropertyReader[] groupReaders
+        final PersistentEntity[] groupAssociations
+        final EntityReflector.PropertyReader tenantReader
+        final Datastore datastore
+        final Map<List<String>, Boolean> uniqueIndexes = new ConcurrentHashMap<List<String>, Boolean>()
+
+        ValidationPlan(PersistentEntity owningEntity, Object target, String constraintPropertyName, List group) {
+            this.owningEntity = owningEntity
+            MappingContext mappingContext = owningEntity.getMappingContext()
+            this.proxyHandler = mappingContext.getProxyHandler()
+            PersistentEntity targetEntity = mappingContext.getPersistentEntity(proxyHandler.getProxiedClass(target).getName())
+            if(targetEntity == null) {
+                throw new IllegalStateException("Cannot validate object [$target]. It is not a persistent entity")
+            }
+
+            // Determine the GORM class that actually defines this field
+            Class<?> constraintClass = owningEntity.javaClass
+            if (!targetEntity.isRoot()) {
+                def property = targetEntity.getPropertyByName(constraintPropertyName)
+                while (property.isInherited() && targetEntity != null) {
+                    targetEntity = mappingContext.getPersistentEntity(targetEntity.javaClass.superclass.name)
+                    if (targetEntity != null) {
+                        property = targetEntity.getPropertyByName(constraintPropertyName)
+                    }
+                }
+                constraintClass = targetEntity != null? targetEntity.javaClass: constraintClass
+            }
+            if(targetEntity == null) {
+                throw new IllegalStateException("Cannot validate object [$target]. It is not a persistent entity")
+            }
+
+            this.reflector = targetEntity.reflector
+            this.constraintEntity = mappingContext.getPersistentEntity(constraintClass.name) ?: targetEntity
+
+            PersistentProperty persistentProperty = targetEntity.getPropertyByName(constraintPropertyName)
+            this.constrainedAssociation = persistentProperty instanceof ToOne ? ((Association) persistentProperty).getAssociatedEntity() : null
+            TenantId tenantId = constraintEntity.isMultiTenant() ? constraintEntity.getTenantId() : null
+            this.tenantReader = tenantId != null ? reflector.getPropertyReader(tenantId.name) : null
+            // the datastore of the static API the uniqueness query is executed with, multi-tenant entities are always queried
+            this.datastore = constraintEntity.isMultiTenant() ? null : GormEnhancer.findStaticApi(constraintEntity.javaClass).datastore
+
+            int groupSize = group.size()
+            this.groupNames = new String[groupSize]
+            this.groupReaders = new EntityReflector.PropertyReader[groupSize]
+            this.groupAssociations = new PersistentEntity[groupSize]
+            for (int i = 0; i < groupSize; i++) {
+                String propName = group.get(i).toString()
+                groupNames[i] = propName
+                groupReaders[i] = reflector.getPropertyReader(propName)
+                PersistentProperty associated = targetEntity.getPropertyByName(propName)
+                groupAssociations[i] = associated instanceof ToOne ? ((Association) associated).getAssociatedEntity() : null
+            }
+        }
+    }
+
+    /**
+     * The values of a target that have to be unique
+     */
+    @CompileStatic
+    protected static class UniqueValues {
+        final ValidationPlan plan
+        final PersistentEntity constraintEntity
+        final Object target
+        final Object propertyValue
+        final Errors errors
+        final Map<String, Object> values
+        final Object targetId
+        final Object tenantId
+        private List<Object> key
+
+        UniqueValues(ValidationPlan plan, Object target, Object propertyValue, Errors errors, Map<String, Object> values, Object targetId, Object tenantId) {
+            this.plan = plan
+            this.constraintEntity = plan.constraintEntity
+            this.target = target
+            this.propertyValue = propertyValue
+            this.errors = errors
+            this.values = values
+            this.targetId = targetId
+            this.tenantId = tenantId
+        }
+
+        /**
+         * @return The normalized constrained value followed by the normalized group values, null for those not held
+         */
+        List<Object> getKey(List group) {
+            if (key == null) {
+                List<Object> newKey = new ArrayList<Object>(group.size() + 1)
+                String propertyName = values.keySet().iterator().next()
+                newKey.add(UniqueConstraint.normalizeValue(constraintEntity, propertyName, propertyValue))
+                for (prop in group) {
+                    String propName = prop.toString()
+                    newKey.add(UniqueConstraint.normalizeValue(constraintEntity, propName, values.get(propName)))
+                }
+                key = newKey
+            }
+            return key
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package org.grails.datastore.gorm.finders
 
+import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext
 import spock.lang.Specification
 
 /**
@@ -24,4 +25,66 @@ class DynamicFinderSpec extends Specification {
         "findBy" | "findByTitleBetween"    | 2          |    1        | "TitleBetween"     |  ['title']
         "findBy" | "findByTitleAndAuthor"  | 2          |    2        | "TitleAndAuthor"   |  ['title', 'author']
     }
+
+    void "test invocations of a finder bind their own arguments to the parsed method name"() {
+        given:
+        def mappingContext = new KeyValueMappingContext("test")
+        mappingContext.addPersistentEntity(FinderPlanBook)
+        def finder = new FindAllByFinder(mappingContext)
+        def methodName = "findAllByTitleAndPagesGreaterThan"
+
+        when:
+        def first = finder.createFinderInvocation(FinderPlanBook, methodName, null, ["A", 10] as Object[])
+        def second = finder.createFinderInvocation(FinderPlanBook, methodName, null, ["B", 20, [max: 1]] as Object[])
+
+        then:
+        first.operator == "And"
+        first.expressions*.getClass() == [MethodExpression.Equal, MethodExpression.GreaterThan]
+        first.expressions*.arguments*.toList() == [["A"], [10]]
+        second.expressions*.arguments*.toList() == [["B"], [20]]
+        second.arguments.toList() == [[max: 1]]
+    }
+
+    void "test invocations of a boolean finder"() {
+        given:
+        def mappingContext = new KeyValueMappingContext("test")
+        mappingContext.addPersistentEntity(FinderPlanBook)
+        def finder = new FindAllByBooleanFinder(mappingContext)
+
+        when:
+        def invocation = finder.createFinderInvocation(FinderPlanBook, "findAllNotPublishedByTitle", null, ["A"] as Object[])
+
+        then:
+        invocation.operator == null
+        invocation.expressions*.propertyName == ["published", "title"]
+        invocation.expressions*.arguments*.toList() == [[false], ["A"]]
+    }
+
+    void "test invocations of a finder create their expressions through the method expression hook"() {
+        given:
+        def mappingContext = new KeyValueMappingContext("test")
+        mappingContext.addPersistentEntity(FinderPlanBook)
+        List<String> created = []
+        def finder = new FindAllByFinder(mappingContext) {
+            @Override
+            protected MethodExpression findMethodExpression(Class clazz, String expression) {
+                created << expression
+                return super.findMethodExpression(clazz, expression)
+            }
+        }
+
+        when:
+        finder.createFinderInvocation(FinderPlanBook, "findAllByTitleAndPagesGreaterThan", null, ["A", 10] as Object[])
+        finder.createFinderInvocation(FinderPlanBook, "findAllByTitleAndPagesGreaterThan", null, ["B", 20] as Object[])
+
+        then:
+        created == ["Title", "PagesGreaterThan", "Title", "PagesGreaterThan"]
+    }
+}
+
+class FinderPlanBook {
+    Long id
+    String title
+    Integer pages
+    Boolean published
 }
@@ -0,0 +1,71 @@
+package org.grails.datastore.gorm.finders
+
+import org.grails.datastore.mapping.model.MappingContext
+import spock.lang.Specification
+
+class FinderMethodResolverSpec extends Specification {
+
+    void "test the first matching finder is resolved once per method name"() {
+        given:
+        FinderMethod findAllBy = Mock(FinderMethod)
+        FinderMethod findBy = Mock(FinderMethod)
+        def resolver = new FinderMethodResolver([findAllBy, findBy])
+
+        when:
+        def first = resolver.resolve("findByTitle")
+        def second = resolver.resolve("findByTitle")
+
+        then:
+        1 * findAllBy.isMethodMatch("findByTitle") >> false
+        1 * findBy.isMethodMatch("findByTitle") >> true
+        first.is(findBy)
+        second.is(findBy)
+    }
+
+    void "test method names no finder matches are not matched again"() {
+        given:
+        FinderMethod findBy = Mock(FinderMethod)
+        def resolver = new FinderMethodResolver([findBy])
+
+        when:
+        def first = resolver.resolve("recentBooks")
+        def second = resolver.resolve("recentBooks")
+
+        then:
+        1 * findBy.isMethodMatch("recentBooks") >> false
+        first == null
+        second == null
+    }
+
+    void "test method names are matched again once the resolutions are invalidated"() {
+        given:
+        FinderMethod findBy = Mock(FinderMethod)
+        def resolver = new FinderMethodResolver([findBy])
+
+        when:
+        def first = resolver.resolve("recentBooks")
+        FinderMethodResolver.invalidateAll()
+        def second = resolver.resolve("recentBooks")
+
+        then:
+        1 * findBy.isMethodMatch("recentBooks") >> false
+        1 * findBy.isMethodMatch("recentBooks") >> true
+        first == null
+        second.is(findBy)
+    }
+
+    void "test changing the pattern of a finder invalidates the resolutions"() {
+        given:
+        def findBy = new FindByFinder(Mock(MappingContext))
+        def resolver = new FinderMethodResolver([findBy])
+
+        expect:
+        resolver.resolve("recentBooks") == null
+
+        when:
+        findBy.setPattern("(recent)(\\w+)")
+
+        then:
+        resolver.resolve("recentBooks").is(findBy)
+    }
+}